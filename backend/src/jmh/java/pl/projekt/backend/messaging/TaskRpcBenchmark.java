@@ -0,0 +1,145 @@
+package pl.projekt.backend.messaging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Address;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.AsyncRabbitTemplate;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.DirectMessageListenerContainer;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.core.ParameterizedTypeReference;
+import pl.projekt.backend.config.TaskRabbitMqConfig;
+import pl.projekt.backend.model.TaskStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wywołania RPC backend -> węzeł przez lokalny broker, w obu trybach {@code tasks.rpc.reply-mode}.
+ * Zamiast węzła odpowiada prosty responder (odpowiedź jak z {@code TaskReplySender} węzła, bez bazy danych),
+ * więc wynik pokazuje koszt samej ścieżki brokera i odbioru odpowiedzi.
+ * <ul>
+ *     <li>{@code roundTrip} - czas pojedynczego wywołania (tryb SampleTime raportuje p0.50 i p0.99).</li>
+ *     <li>{@code pipelined} - zapisy na sekundę przy co najwyżej {@code inFlight} oczekujących odpowiedziach,
+ *     czyli maksymalna przepustowość, którą klient utrzymuje bez narastającej kolejki.</li>
+ * </ul>
+ * Wymaga RabbitMQ (np. {@code docker-compose up -d rabbitmq}); inny adres brokera przez JMH:
+ * {@code -jvmArgsAppend -Drabbit.host=... -Drabbit.port=...}.
+ * Uruchomienie: {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=TaskRpcBenchmark}
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TaskRpcBenchmark {
+    private static final long REPLY_TIMEOUT_MS = 10_000;
+    private static final ParameterizedTypeReference<TaskOperationResult> RESULT_TYPE = new ParameterizedTypeReference<>() {
+    };
+
+    @Param({"direct", "fixed"})
+    private String replyMode;
+
+    @Param({"64"})
+    private int inFlight;
+
+    private CachingConnectionFactory connectionFactory;
+    private DirectMessageListenerContainer responder;
+    private AsyncRabbitTemplate asyncRabbitTemplate;
+    private Queue requestQueue;
+    private Semaphore window;
+    private final AtomicLong failures = new AtomicLong();
+    private final SetTaskStatusCommand command = new SetTaskStatusCommand(1L, TaskStatus.IN_PROGRESS);
+
+    @Setup
+    public void setUp() {
+        connectionFactory = new CachingConnectionFactory(
+                System.getProperty("rabbit.host", "localhost"), Integer.getInteger("rabbit.port", 5672));
+        connectionFactory.setUsername(System.getProperty("rabbit.username", "guest"));
+        connectionFactory.setPassword(System.getProperty("rabbit.password", "guest"));
+        RabbitAdmin rabbitAdmin = new RabbitAdmin(connectionFactory);
+
+        TaskRabbitMqConfig config = new TaskRabbitMqConfig();
+        MessageConverter messageConverter = config.jsonMessageConverter();
+        RabbitTemplate rabbitTemplate = config.rabbitTemplate(connectionFactory, messageConverter, REPLY_TIMEOUT_MS);
+
+        requestQueue = new AnonymousQueue();
+        rabbitAdmin.declareQueue(requestQueue);
+        responder = new DirectMessageListenerContainer(connectionFactory);
+        responder.setQueues(requestQueue);
+        responder.setConsumersPerQueue(4);
+        responder.setMessageListener(request -> reply(rabbitTemplate, messageConverter, request));
+        responder.start();
+
+        Declarables replyDeclarables = config.taskReplyDeclarables(replyMode);
+        replyDeclarables.getDeclarablesByType(Queue.class).forEach(rabbitAdmin::declareQueue);
+        asyncRabbitTemplate = config.asyncRabbitTemplate(
+                rabbitTemplate, replyDeclarables, replyMode, 2, REPLY_TIMEOUT_MS, false);
+        asyncRabbitTemplate.start();
+        window = new Semaphore(inFlight);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        // Czeka na odpowiedzi nadal oczekujące po ostatniej iteracji
+        window.tryAcquire(inFlight, REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (failures.get() > 0) {
+            System.err.println("TaskRpcBenchmark: " + failures.get() + " calls failed or timed out");
+        }
+        asyncRabbitTemplate.stop();
+        responder.stop();
+        connectionFactory.destroy();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public TaskOperationResult roundTrip() {
+        return send().join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void pipelined() throws InterruptedException {
+        window.acquire();
+        send().whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                failures.incrementAndGet();
+            }
+            window.release();
+        });
+    }
+
+    private CompletableFuture<TaskOperationResult> send() {
+        return asyncRabbitTemplate.convertSendAndReceiveAsType("", requestQueue.getName(), command, RESULT_TYPE);
+    }
+
+    private static void reply(RabbitTemplate rabbitTemplate, MessageConverter messageConverter, Message request) {
+        MessageProperties requestProperties = request.getMessageProperties();
+        MessageProperties replyProperties = new MessageProperties();
+        replyProperties.setCorrelationId(requestProperties.getCorrelationId());
+        TaskOperationResult result = new TaskOperationResult(true, 1L, null, null, null, null, false);
+        Address address = new Address(requestProperties.getReplyTo());
+        rabbitTemplate.send(address.getExchangeName(), address.getRoutingKey(),
+                messageConverter.toMessage(result, replyProperties));
+    }
+}
@@ -0,0 +1,73 @@
+package pl.projekt.backend.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import pl.projekt.backend.model.Role;
+import pl.projekt.backend.model.User;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walidacje tokenu JWT na sekundę na jeden wątek (rdzeń): dawna ścieżka filtra
+ * (klucz i parser budowane przy każdym odczycie claimu, trzy parsowania na żądanie)
+ * wobec {@link JwtService#verify(String)} ze współdzielonym kluczem i parserem.
+ * Uruchomienie: {@code mvn -Pbenchmarks test-compile exec:exec}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class JwtServiceBenchmark {
+    private static final String SECRET = "benchmark-secret-benchmark-secret-0123456789";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        jwtService.initialize();
+
+        User user = new User();
+        user.setEmail("jan.kowalski@example.com");
+        user.setRole(Role.USER);
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean perCallParser() {
+        // extractUsername + isTokenValid(extractUsername + isTokenExpired) sprzed zmiany
+        String username = parseWithNewParser().getSubject();
+        boolean sameUser = parseWithNewParser().getSubject().equals(username);
+        return sameUser && !parseWithNewParser().getExpiration().before(new java.util.Date());
+    }
+
+    @Benchmark
+    public VerifiedJwt sharedParser() {
+        return jwtService.verify(token);
+    }
+
+    private Claims parseWithNewParser() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
@@ -0,0 +1,89 @@
+package pl.projekt.backend.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Szyfrowanie sekretów TOTP: pojedyncze wywołania (logowanie użytkownika z 2FA) z pulą instancji Cipher
+ * wobec dawnego {@code Cipher.getInstance} przy każdym wywołaniu oraz wsadowe ponowne szyfrowanie po rotacji klucza.
+ * Uruchomienie: {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=SensitiveDataServiceBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensitiveDataServiceBenchmark {
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final String PREVIOUS_SECRET = "poprzedni-klucz-poprzedni-klucz-00";
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"JBSWY3DPEHPK3PXPJBSWY3DPEHPK3PXP"})
+    private String totpSecret;
+
+    private SensitiveDataService service;
+    private SecretKeySpec keySpec;
+    private String encrypted;
+    private List<String> rotatedBatch;
+
+    @Setup
+    public void setUp() throws Exception {
+        service = new SensitiveDataService(SECRET, List.of(PREVIOUS_SECRET));
+        keySpec = new SecretKeySpec(MessageDigest.getInstance("SHA-256")
+                .digest(SECRET.getBytes(StandardCharsets.UTF_8)), "AES");
+        encrypted = service.encrypt(totpSecret);
+
+        SensitiveDataService previous = new SensitiveDataService(PREVIOUS_SECRET, List.of());
+        rotatedBatch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            rotatedBatch.add(previous.encrypt(totpSecret + i));
+        }
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return service.encrypt(totpSecret);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return service.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public String decryptPerCallCipher() throws Exception {
+        // Ścieżka sprzed zmiany: nowa instancja Cipher i dwie kopie tablic na wywołanie
+        byte[] payload = Base64.getDecoder().decode(encrypted.substring("ENC:".length()));
+        byte[] iv = new byte[12];
+        byte[] cipherText = new byte[payload.length - 12];
+        System.arraycopy(payload, 0, iv, 0, iv.length);
+        System.arraycopy(payload, iv.length, cipherText, 0, cipherText.length);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, keySpec, new GCMParameterSpec(128, iv));
+        return new String(cipher.doFinal(cipherText), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<String> reEncryptAllAfterRotation() {
+        return service.reEncryptAll(rotatedBatch);
+    }
+}
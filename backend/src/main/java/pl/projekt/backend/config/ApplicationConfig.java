@@ -2,6 +2,7 @@ package pl.projekt.backend.config;
 
 import pl.projekt.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -12,6 +13,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import pl.projekt.backend.service.PasswordHashingService;
 
 @Configuration
 @RequiredArgsConstructor
@@ -19,6 +21,13 @@ public class ApplicationConfig {
 
     private final UserRepository userRepository;
 
+    @Value("${security.password-hashing.bcrypt-cost:10}")
+    private int bcryptCost;
+
+    // > 0: koszt BCrypt dobierany przy starcie do docelowego czasu haszowania (nie mniejszy niż bcrypt-cost)
+    @Value("${security.password-hashing.target-ms:0}")
+    private long targetHashMs;
+
     @Bean
     public UserDetailsService userDetailsService() {
         return username -> userRepository.findByEmail(username)
@@ -40,6 +49,9 @@ public class ApplicationConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int strength = targetHashMs > 0
+                ? PasswordHashingService.calibrateBcryptCost(targetHashMs, bcryptCost)
+                : bcryptCost;
+        return new BCryptPasswordEncoder(strength);
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package pl.projekt.backend.config;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Fanout {@code principals.invalidated}: zmiana roli lub 2FA na jednej instancji backendu
+ * unieważnia {@link pl.projekt.backend.security.PrincipalCache} wszystkich instancji.
+ */
+@Configuration
+public class PrincipalRabbitMqConfig {
+    public static final String PRINCIPAL_INVALIDATED_EXCHANGE = "principals.invalidated";
+
+    @Bean
+    public FanoutExchange principalInvalidatedExchange() {
+        return new FanoutExchange(PRINCIPAL_INVALIDATED_EXCHANGE, true, false);
+    }
+
+    /**
+     * Kolejka unieważnień tej instancji - tymczasowa (auto-delete), bo po restarcie cache jest pusty.
+     * Tokeny wystawione przed restartem i unieważnieniem mogą wtedy zachować rolę z claimu do końca ważności.
+     */
+    @Bean
+    public Queue principalInvalidationsQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding principalInvalidationsBinding(Queue principalInvalidationsQueue,
+                                                 FanoutExchange principalInvalidatedExchange) {
+        return BindingBuilder.bind(principalInvalidationsQueue).to(principalInvalidatedExchange);
+    }
+}
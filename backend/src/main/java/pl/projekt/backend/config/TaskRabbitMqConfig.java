@@ -1,16 +1,30 @@
 package pl.projekt.backend.config;
 
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.AsyncRabbitTemplate;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.DirectMessageListenerContainer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import pl.projekt.backend.messaging.TaskPartitioner;
+import pl.projekt.backend.messaging.TaskReplyMode;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class TaskRabbitMqConfig {
@@ -25,6 +39,15 @@ public class TaskRabbitMqConfig {
     public static final String TASK_DELETE_ROUTING_KEY = "tasks.delete";
     public static final String TASK_REVIEW_ROUTING_KEY = "tasks.review";
     public static final String TASK_COMMENT_ROUTING_KEY = "tasks.comment";
+    public static final String TASK_CHANGED_EXCHANGE = "tasks.changed";
+    public static final String TASK_REPLIES_QUEUE_PREFIX = "tasks.replies.";
+    public static final List<String> TASK_ROUTING_KEYS = List.of(
+            TASK_CREATE_ROUTING_KEY,
+            TASK_UPDATE_ROUTING_KEY,
+            TASK_DELETE_ROUTING_KEY,
+            TASK_REVIEW_ROUTING_KEY,
+            TASK_COMMENT_ROUTING_KEY
+    );
 
     @Bean
     public Queue taskCreateQueue() {
@@ -81,6 +104,57 @@ public class TaskRabbitMqConfig {
         return BindingBuilder.bind(taskCommentQueue).to(taskExchange).with(TASK_COMMENT_ROUTING_KEY);
     }
 
+    @Bean
+    public FanoutExchange taskChangedExchange() {
+        return new FanoutExchange(TASK_CHANGED_EXCHANGE, true, false);
+    }
+
+    /**
+     * Kolejka zdarzeń {@code tasks.changed} tej instancji backendu - tymczasowa (auto-delete),
+     * bo po restarcie cache odczytów i tak jest pusty.
+     */
+    @Bean
+    public Queue taskChangesQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding taskChangesBinding(Queue taskChangesQueue, FanoutExchange taskChangedExchange) {
+        return BindingBuilder.bind(taskChangesQueue).to(taskChangedExchange);
+    }
+
+    /**
+     * Kolejki partycji (np. {@code tasks.update.p3}) deklarowane przy {@code tasks.partitions > 1}.
+     */
+    @Bean
+    public Declarables taskPartitionDeclarables(
+            @Value("${tasks.partitions:1}") int partitions,
+            DirectExchange taskExchange) {
+        List<Declarable> declarables = new ArrayList<>();
+        if (partitions > 1) {
+            for (String routingKey : TASK_ROUTING_KEYS) {
+                for (int partition = 0; partition < partitions; partition++) {
+                    Queue queue = new Queue(TaskPartitioner.partitionRoutingKey(routingKey, partition), true);
+                    declarables.add(queue);
+                    declarables.add(BindingBuilder.bind(queue).to(taskExchange).with(queue.getName()));
+                }
+            }
+        }
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Stała kolejka odpowiedzi RPC tej instancji backendu, deklarowana tylko przy {@code tasks.rpc.reply-mode=fixed}.
+     * Tymczasowa (auto-delete, exclusive) - RabbitAdmin deklaruje ją ponownie po zerwaniu połączenia.
+     */
+    @Bean
+    public Declarables taskReplyDeclarables(@Value("${tasks.rpc.reply-mode:direct}") String replyMode) {
+        if (TaskReplyMode.from(replyMode) != TaskReplyMode.FIXED) {
+            return new Declarables();
+        }
+        return new Declarables(new AnonymousQueue(new Base64UrlNamingStrategy(TASK_REPLIES_QUEUE_PREFIX)));
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
@@ -96,4 +170,40 @@ public class TaskRabbitMqConfig {
         rabbitTemplate.setReplyTimeout(replyTimeoutMs);
         return rabbitTemplate;
     }
+
+    /**
+     * Asynchroniczny klient RPC - wątek żądania HTTP nie czeka na odpowiedź brokera.
+     * Odpowiedzi przychodzą przez direct reply-to albo (przy {@code tasks.rpc.reply-mode=fixed}) przez stałą
+     * kolejkę z {@link #taskReplyDeclarables}; w obu trybach nie powstaje kanał ani kolejka na pojedyncze wywołanie.
+     * W trybie wątków wirtualnych również timeouty oczekujących odpowiedzi obsługuje harmonogram na wątkach wirtualnych.
+     */
+    @Bean
+    public AsyncRabbitTemplate asyncRabbitTemplate(
+            RabbitTemplate rabbitTemplate,
+            Declarables taskReplyDeclarables,
+            @Value("${tasks.rpc.reply-mode:direct}") String replyMode,
+            @Value("${tasks.rpc.reply-consumers:2}") int replyConsumers,
+            @Value("${tasks.rabbitmq.reply-timeout-ms:10000}") long replyTimeoutMs,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        AsyncRabbitTemplate asyncRabbitTemplate = switch (TaskReplyMode.from(replyMode)) {
+            case DIRECT -> new AsyncRabbitTemplate(rabbitTemplate);
+            case FIXED -> {
+                Queue replyQueue = taskReplyDeclarables.getDeclarablesByType(Queue.class).get(0);
+                DirectMessageListenerContainer replyContainer =
+                        new DirectMessageListenerContainer(rabbitTemplate.getConnectionFactory());
+                replyContainer.setQueues(replyQueue);
+                replyContainer.setConsumersPerQueue(Math.max(1, replyConsumers));
+                replyContainer.setAcknowledgeMode(AcknowledgeMode.NONE);
+                yield new AsyncRabbitTemplate(rabbitTemplate, replyContainer, replyQueue.getName());
+            }
+        };
+        asyncRabbitTemplate.setReceiveTimeout(replyTimeoutMs);
+        if (virtualThreads) {
+            SimpleAsyncTaskScheduler replyTimeoutScheduler = new SimpleAsyncTaskScheduler();
+            replyTimeoutScheduler.setVirtualThreads(true);
+            replyTimeoutScheduler.setThreadNamePrefix("rpc-reply-timeout-");
+            asyncRabbitTemplate.setTaskScheduler(replyTimeoutScheduler);
+        }
+        return asyncRabbitTemplate;
+    }
 }
@@ -60,6 +60,20 @@ public class AdminController {
         return ResponseEntity.ok(adminService.getAllUsers());
     }
 
+    /**
+     * Szyfruje ponownie sekrety TOTP bieżącym kluczem (po rotacji klucza szyfrowania).
+     * Endpoint dostępny tylko dla roli ADMIN.
+     *
+     * @return odpowiedź HTTP 200 z liczbą zaktualizowanych sekretów
+     */
+    @Operation(summary = "Ponowne szyfrowanie sekretów TOTP")
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/totp-secrets/re-encrypt")
+    public ResponseEntity<String> reEncryptTotpSecrets() {
+        int updated = adminService.reEncryptTotpSecrets();
+        return ResponseEntity.ok("Re-encrypted " + updated + " TOTP secrets");
+    }
+
     @Operation(summary = "Monitoring wezlow")
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/nodes")
@@ -15,6 +15,8 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Kontroler REST do obsługi autoryzacji użytkowników.
  * Udostępnia endpointy do rejestracji, logowania oraz obsługi dwuskładnikowego uwierzytelniania (2FA).
@@ -40,15 +42,16 @@ public class AuthController {
     }
 
     /**
-     * Loguje użytkownika.
+     * Loguje użytkownika. Hasło jest weryfikowane na osobnej puli haszowania;
+     * gdy pula jest przeciążona, zwracana jest odpowiedź HTTP 429.
      *
      * @param request dane logowania użytkownika
      * @return odpowiedź HTTP 200 z tokenem JWT lub informacją o wymaganym 2FA
      */
     @Operation(summary = "Logowanie")
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request) {
-        return ResponseEntity.ok(authService.login(request));
+    public CompletableFuture<ResponseEntity<AuthResponse>> login(@Valid @RequestBody LoginRequest request) {
+        return authService.login(request).thenApply(ResponseEntity::ok);
     }
 
     /**
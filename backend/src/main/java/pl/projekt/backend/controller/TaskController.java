@@ -11,7 +11,9 @@ import pl.projekt.backend.dto.UpdateTaskRequest;
 import pl.projekt.backend.dto.TaskWithAssigneeResponse;
 import pl.projekt.backend.dto.TaskCreatorDetailsResponse;
 import pl.projekt.backend.dto.AddTaskCommentRequest;
-import pl.projekt.backend.model.TaskComment;
+import pl.projekt.backend.dto.TaskPageRequest;
+import pl.projekt.backend.dto.TaskPageResponse;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -21,10 +23,12 @@ import jakarta.validation.Valid;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Kontroler REST do obsługi operacji na zadaniach.
  * Udostępnia endpointy do zarządzania zadaniami, pobierania zadań oraz zmiany statusu.
+ * Operacje zapisu są asynchroniczne - odpowiedź HTTP jest wysyłana po odpowiedzi węzła z RabbitMQ.
  */
 @RestController
 @RequestMapping("/api/tasks")
@@ -32,18 +36,23 @@ import java.util.UUID;
 @Tag(name = "Zadania", description = "Endpointy zadań")
 public class TaskController {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final TaskService taskService;
 
     /**
      * Tworzy nowe zadanie.
      *
      * @param request dane nowego zadania
+     * @param idempotencyKey opcjonalny klucz ponowień - ponowienie z tym samym kluczem zwraca już utworzone zadanie
      * @return odpowiedź HTTP 200 z utworzonym zadaniem
      */
     @Operation(summary = "Tworzenie nowego zadania")
     @PostMapping
-    public ResponseEntity<Task> createTask(@Valid @RequestBody CreateTaskRequest request) {
-        return ResponseEntity.ok(taskService.createTask(request));
+    public CompletableFuture<ResponseEntity<TaskWithAssigneeResponse>> createTask(
+            @Valid @RequestBody CreateTaskRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return taskService.createTask(request, idempotencyKey).thenApply(ResponseEntity::ok);
     }
 
     /**
@@ -55,8 +64,8 @@ public class TaskController {
      */
     @Operation(summary = "Aktualizacja zadania")
     @PutMapping("/{id}")
-    public ResponseEntity<Task> updateTask(@PathVariable Long id, @Valid @RequestBody UpdateTaskRequest request) {
-        return ResponseEntity.ok(taskService.updateTask(id, request));
+    public CompletableFuture<ResponseEntity<TaskWithAssigneeResponse>> updateTask(@PathVariable Long id, @Valid @RequestBody UpdateTaskRequest request) {
+        return taskService.updateTask(id, request).thenApply(ResponseEntity::ok);
     }
 
     /**
@@ -67,9 +76,8 @@ public class TaskController {
      */
     @Operation(summary = "Usuwanie zadania")
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteTask(@PathVariable Long id) {
-        taskService.deleteTask(id);
-        return ResponseEntity.noContent().build();
+    public CompletableFuture<ResponseEntity<Void>> deleteTask(@PathVariable Long id) {
+        return taskService.deleteTask(id).thenApply(result -> ResponseEntity.noContent().<Void>build());
     }
 
     /**
@@ -84,6 +92,22 @@ public class TaskController {
         return ResponseEntity.ok(taskService.getTasksByProject(projectId));
     }
 
+    /**
+     * Pobiera stronę zadań projektu przypisanych do zalogowanego użytkownika.
+     *
+     * @param projectId identyfikator projektu
+     * @param pageRequest kursor, rozmiar strony, kierunek sortowania i filtry
+     * @return odpowiedź HTTP 200 ze stroną zadań i kursorem następnej strony
+     */
+    @Operation(summary = "Pobieranie strony zadań dla projektu")
+    @GetMapping("/project/{projectId}/page")
+    public ResponseEntity<TaskPageResponse> getTaskPageByProject(
+            @PathVariable UUID projectId,
+            @Valid @ParameterObject TaskPageRequest pageRequest) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(taskService.getMyTaskPageForProject(projectId, username, pageRequest));
+    }
+
     /**
      * Pobiera zadania przypisane do aktualnie zalogowanego użytkownika.
      *
@@ -97,6 +121,19 @@ public class TaskController {
         return ResponseEntity.ok(taskService.getTasksForUserWithAssignee(username));
     }
 
+    /**
+     * Pobiera stronę zadań przypisanych do zalogowanego użytkownika.
+     *
+     * @param pageRequest kursor, rozmiar strony, kierunek sortowania i filtry
+     * @return odpowiedź HTTP 200 ze stroną zadań i kursorem następnej strony
+     */
+    @Operation(summary = "Pobieranie strony zadań zalogowanego użytkownika")
+    @GetMapping("/my/page")
+    public ResponseEntity<TaskPageResponse> getMyTaskPage(@Valid @ParameterObject TaskPageRequest pageRequest) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(taskService.getTaskPageForUser(username, pageRequest));
+    }
+
     /**
      * Pobiera wszystkie zadania projektu wraz z przypisanymi użytkownikami (dla MANAGERA).
      *
@@ -110,6 +147,22 @@ public class TaskController {
         return ResponseEntity.ok(taskService.getAllTasksForProjectWithAssignee(projectId));
     }
 
+    /**
+     * Pobiera stronę wszystkich zadań projektu (dla MANAGERA).
+     *
+     * @param projectId identyfikator projektu
+     * @param pageRequest kursor, rozmiar strony, kierunek sortowania i filtry
+     * @return odpowiedź HTTP 200 ze stroną zadań i kursorem następnej strony
+     */
+    @Operation(summary = "Pobieranie strony wszystkich zadań projektu (dla MANAGERA)")
+    @PreAuthorize("hasRole('MANAGER')")
+    @GetMapping("/project/{projectId}/all/page")
+    public ResponseEntity<TaskPageResponse> getAllTaskPageForProject(
+            @PathVariable UUID projectId,
+            @Valid @ParameterObject TaskPageRequest pageRequest) {
+        return ResponseEntity.ok(taskService.getAllTaskPageForProject(projectId, pageRequest));
+    }
+
     /**
      * Pobiera pojedyncze zadanie wraz z przypisanym użytkownikiem.
      *
@@ -142,8 +195,8 @@ public class TaskController {
      */
     @Operation(summary = "Przekazanie zadania do sprawdzenia (zmiana statusu na TO_REVIEW)")
     @PatchMapping("/{id}/to-review")
-    public ResponseEntity<TaskWithAssigneeResponse> setTaskToReview(@PathVariable Long id) {
-        return ResponseEntity.ok(taskService.setTaskStatusToReview(id));
+    public CompletableFuture<ResponseEntity<TaskWithAssigneeResponse>> setTaskToReview(@PathVariable Long id) {
+        return taskService.setTaskStatusToReview(id).thenApply(ResponseEntity::ok);
     }
 
     /**
@@ -151,14 +204,16 @@ public class TaskController {
      *
      * @param taskId id zadania
      * @param request treść komentarza
+     * @param idempotencyKey opcjonalny klucz ponowień - ponowienie z tym samym kluczem zwraca już dodany komentarz
      * @return dodany komentarz
      */
     @Operation(summary = "Dodawanie komentarza do zadania")
     @PostMapping("/{taskId}/comments")
-    public ResponseEntity<TaskComment> addCommentToTask(
+    public CompletableFuture<ResponseEntity<TaskCommentResponse>> addCommentToTask(
             @PathVariable Long taskId,
-            @Valid @RequestBody AddTaskCommentRequest request) {
-        return ResponseEntity.ok(taskService.addCommentToTask(taskId, request));
+            @Valid @RequestBody AddTaskCommentRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return taskService.addCommentToTask(taskId, request, idempotencyKey).thenApply(ResponseEntity::ok);
     }
 
     /**
@@ -21,4 +21,5 @@ public class TaskCreatorDetailsResponse {
     private String creatorFirstName;
     private String creatorLastName;
     private String creatorEmail;
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package pl.projekt.backend.dto;
+
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+import pl.projekt.backend.model.TaskPriority;
+import pl.projekt.backend.model.TaskStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Parametry strony listy zadań (paginacja keyset po {@code updatedAt} i {@code id}).
+ */
+@Data
+public class TaskPageRequest {
+    /** Kursor z poprzedniej odpowiedzi ({@code nextCursor}); brak oznacza pierwszą stronę. */
+    private String cursor;
+
+    @Positive
+    private Integer size;
+
+    /** Kierunek sortowania po dacie modyfikacji: {@code desc} (domyślnie) lub {@code asc}. */
+    private String direction;
+
+    private TaskStatus status;
+    private TaskPriority priority;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime dueFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime dueTo;
+}
@@ -0,0 +1,18 @@
+package pl.projekt.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Strona listy zadań. {@code nextCursor} jest pusty, gdy to ostatnia strona.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskPageResponse {
+    private List<TaskWithAssigneeResponse> items;
+    private String nextCursor;
+}
@@ -5,6 +5,8 @@ import java.time.LocalDateTime;
 import lombok.Data;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
+import pl.projekt.backend.model.TaskPriority;
+import pl.projekt.backend.model.TaskStatus;
 
 @Data
 @AllArgsConstructor
@@ -20,4 +22,24 @@ public class TaskWithAssigneeResponse {
     private LocalDateTime dueDate;
     private String assignedFirstName;
     private String assignedLastName;
+    private Long version;
+
+    public TaskWithAssigneeResponse(Long id, String title, String description, String status, String priority,
+                                    LocalDateTime createdAt, LocalDateTime updatedAt, LocalDateTime dueDate,
+                                    String assignedFirstName, String assignedLastName) {
+        this(id, title, description, status, priority, createdAt, updatedAt, dueDate,
+                assignedFirstName, assignedLastName, null);
+    }
+
+    /**
+     * Konstruktor dla projekcji JPQL ({@code select new ...}) - status i priorytet przychodzą jako enumy.
+     */
+    public TaskWithAssigneeResponse(Long id, String title, String description, TaskStatus status, TaskPriority priority,
+                                    LocalDateTime createdAt, LocalDateTime updatedAt, LocalDateTime dueDate,
+                                    String assignedFirstName, String assignedLastName) {
+        this(id, title, description,
+                status != null ? status.name() : null,
+                priority != null ? priority.name() : null,
+                createdAt, updatedAt, dueDate, assignedFirstName, assignedLastName);
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package pl.projekt.backend.dto;
 
 import jakarta.validation.constraints.FutureOrPresent;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 import pl.projekt.backend.model.TaskPriority;
@@ -24,4 +25,8 @@ public class UpdateTaskRequest {
 
     @Positive
     private Long assignedToId;
+
+    // Wersja odczytana przez klienta; jeśli podana, zapis nieaktualnej wersji kończy się 409
+    @PositiveOrZero
+    private Long version;
 }
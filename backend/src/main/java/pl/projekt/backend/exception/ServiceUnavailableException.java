@@ -0,0 +1,17 @@
+package pl.projekt.backend.exception;
+
+import lombok.Getter;
+
+/**
+ * Polecenie zapisu odrzucone bez wysyłania do węzłów (brak aktywnego węzła zapisu albo otwarty
+ * wyłącznik obwodu RPC). Obsługiwany jako 503 Service Unavailable z nagłówkiem {@code Retry-After}.
+ */
+@Getter
+public class ServiceUnavailableException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
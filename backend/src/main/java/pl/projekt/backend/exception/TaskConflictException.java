@@ -0,0 +1,11 @@
+package pl.projekt.backend.exception;
+
+/**
+ * Zapis zadania odrzucony przez węzeł, bo zadanie zmieniło się od odczytu przez klienta
+ * (nieaktualna wersja). Obsługiwany jako 409 Conflict.
+ */
+public class TaskConflictException extends RuntimeException {
+    public TaskConflictException(String message) {
+        super(message);
+    }
+}
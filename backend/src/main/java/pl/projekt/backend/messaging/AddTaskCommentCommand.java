@@ -11,4 +11,5 @@ public class AddTaskCommentCommand {
     private Long taskId;
     private String comment;
     private String authorEmail;
+    private String idempotencyKey;
 }
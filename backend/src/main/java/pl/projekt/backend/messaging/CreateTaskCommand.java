@@ -21,4 +21,6 @@ public class CreateTaskCommand {
     private LocalDateTime dueDate;
     private Long assignedToId;
     private String createdByEmail;
+    // Klucz z nagłówka Idempotency-Key - ponowienie z tym samym kluczem zwraca pierwotny wynik
+    private String idempotencyKey;
 }
@@ -11,4 +11,5 @@ public class CreateTaskResult {
     private boolean success;
     private Long taskId;
     private String errorMessage;
+    private TaskSnapshot task;
 }
@@ -0,0 +1,19 @@
+package pl.projekt.backend.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Unieważnienie użytkownika (fanout {@code principals.invalidated}) wraz z chwilą, od której
+ * tokeny wystawione wcześniej nie mogą być obsłużone bezstanowo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrincipalInvalidatedEvent {
+    private String subject;
+    private Instant invalidatedAt;
+}
@@ -0,0 +1,27 @@
+package pl.projekt.backend.messaging;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+import pl.projekt.backend.security.PrincipalCache;
+
+/**
+ * Stosuje w lokalnym {@link PrincipalCache} unieważnienia rozgłoszone przez dowolną instancję backendu
+ * (także własne - ponowne zastosowanie tej samej chwili niczego nie zmienia).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PrincipalInvalidationListener {
+    private final PrincipalCache principalCache;
+
+    @RabbitListener(queues = "#{principalInvalidationsQueue.name}")
+    public void onPrincipalInvalidated(PrincipalInvalidatedEvent event) {
+        if (event.getSubject() == null || event.getInvalidatedAt() == null) {
+            return;
+        }
+        log.debug("Invalidating cached principal {} at {}", event.getSubject(), event.getInvalidatedAt());
+        principalCache.invalidate(event.getSubject(), event.getInvalidatedAt());
+    }
+}
@@ -0,0 +1,32 @@
+package pl.projekt.backend.messaging;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+import pl.projekt.backend.config.PrincipalRabbitMqConfig;
+
+import java.time.Instant;
+
+/**
+ * Rozgłasza na fanout {@code principals.invalidated} unieważnienie użytkownika wykonane lokalnie,
+ * aby pozostałe instancje backendu przestały ufać jego wpisom w cache i roli z wcześniejszych tokenów.
+ * Błąd brokera nie przerywa operacji - wpisy pozostałych instancji wygasają po
+ * {@code security.principal-cache.ttl-seconds}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PrincipalInvalidationPublisher {
+    private final RabbitTemplate rabbitTemplate;
+
+    public void publishInvalidated(String subject, Instant invalidatedAt) {
+        try {
+            rabbitTemplate.convertAndSend(PrincipalRabbitMqConfig.PRINCIPAL_INVALIDATED_EXCHANGE, "",
+                    new PrincipalInvalidatedEvent(subject, invalidatedAt));
+        } catch (AmqpException exception) {
+            log.warn("Publishing invalidation of {} to principals.invalidated failed: {}", subject, exception.getMessage());
+        }
+    }
+}
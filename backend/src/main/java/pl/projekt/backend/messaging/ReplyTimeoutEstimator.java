@@ -0,0 +1,89 @@
+package pl.projekt.backend.messaging;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Czas oczekiwania na odpowiedź węzła liczony osobno dla każdego klucza routingu:
+ * percentyl {@code tasks.rpc.timeout.percentile} z ostatnich {@code tasks.rpc.timeout.window} czasów odpowiedzi
+ * pomnożony przez {@code tasks.rpc.timeout.multiplier}, w granicach {@code min-ms} ... {@code tasks.rabbitmq.reply-timeout-ms}.
+ * Dopóki próbek jest mniej niż {@code tasks.rpc.timeout.min-samples}, obowiązuje górna granica.
+ * Przekroczenie czasu jest zapisywane jako próbka równa użytemu limitowi, aby limit rósł, gdy węzeł zwalnia.
+ */
+@Component
+public class ReplyTimeoutEstimator {
+    private final MeterRegistry meterRegistry;
+    private final long minTimeoutMs;
+    private final long maxTimeoutMs;
+    private final double percentile;
+    private final double multiplier;
+    private final int windowSize;
+    private final int minSamples;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    public ReplyTimeoutEstimator(
+            MeterRegistry meterRegistry,
+            @Value("${tasks.rpc.timeout.min-ms:1000}") long minTimeoutMs,
+            @Value("${tasks.rabbitmq.reply-timeout-ms:10000}") long maxTimeoutMs,
+            @Value("${tasks.rpc.timeout.percentile:0.99}") double percentile,
+            @Value("${tasks.rpc.timeout.multiplier:3.0}") double multiplier,
+            @Value("${tasks.rpc.timeout.window:200}") int windowSize,
+            @Value("${tasks.rpc.timeout.min-samples:20}") int minSamples) {
+        this.meterRegistry = meterRegistry;
+        this.maxTimeoutMs = maxTimeoutMs;
+        this.minTimeoutMs = Math.min(minTimeoutMs, maxTimeoutMs);
+        this.percentile = percentile;
+        this.multiplier = multiplier;
+        this.windowSize = Math.max(1, windowSize);
+        this.minSamples = Math.max(1, Math.min(minSamples, this.windowSize));
+    }
+
+    public long timeoutMs(String routingKey) {
+        LatencyWindow window = windows.get(routingKey);
+        return window != null ? window.timeoutMs : maxTimeoutMs;
+    }
+
+    public void recordLatency(String routingKey, long latencyMs) {
+        windowFor(routingKey).add(latencyMs);
+    }
+
+    public void recordTimeout(String routingKey, long timeoutMs) {
+        windowFor(routingKey).add(timeoutMs);
+    }
+
+    private LatencyWindow windowFor(String routingKey) {
+        return windows.computeIfAbsent(routingKey, key -> {
+            LatencyWindow window = new LatencyWindow();
+            Gauge.builder("tasks.rpc.reply-timeout", window, current -> current.timeoutMs)
+                    .tag("routing_key", key)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            return window;
+        });
+    }
+
+    private final class LatencyWindow {
+        private final long[] samples = new long[windowSize];
+        private int next;
+        private int count;
+        private volatile long timeoutMs = maxTimeoutMs;
+
+        synchronized void add(long latencyMs) {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            if (count >= minSamples) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                long observed = sorted[Math.clamp((long) Math.ceil(percentile * count) - 1, 0, count - 1)];
+                timeoutMs = Math.max(minTimeoutMs, Math.min(maxTimeoutMs, (long) Math.ceil(observed * multiplier)));
+            }
+        }
+    }
+}
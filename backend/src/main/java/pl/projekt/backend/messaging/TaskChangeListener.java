@@ -0,0 +1,32 @@
+package pl.projekt.backend.messaging;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+import pl.projekt.backend.service.TaskReadCache;
+
+/**
+ * Usuwa z {@link TaskReadCache} zadania zmienione przez węzły. Każda instancja backendu ma własną
+ * kolejkę tymczasową podpiętą pod fanout {@code tasks.changed}, więc zdarzenie dociera do wszystkich.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TaskChangeListener {
+    private final TaskReadCache taskReadCache;
+
+    @RabbitListener(queues = "#{taskChangesQueue.name}")
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (TaskChangedEvent.PROJECT_DELETED.equals(event.getChangeType())) {
+            log.debug("Evicting all cached tasks after project deletion");
+            taskReadCache.evictAll();
+            return;
+        }
+        if (event.getTaskId() == null) {
+            return;
+        }
+        log.debug("Evicting cached task {} after {}", event.getTaskId(), event.getChangeType());
+        taskReadCache.evict(event.getTaskId());
+    }
+}
@@ -0,0 +1,31 @@
+package pl.projekt.backend.messaging;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+import pl.projekt.backend.config.TaskRabbitMqConfig;
+
+import java.util.UUID;
+
+/**
+ * Publikuje na fanout {@code tasks.changed} zmiany zadań wykonane przez sam backend (poza węzłami),
+ * aby cache odczytów wszystkich instancji backendu został unieważniony.
+ * Błąd brokera nie przerywa operacji - nieusunięte wpisy wygasają po {@code tasks.cache.ttl-seconds}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TaskChangePublisher {
+    private final RabbitTemplate rabbitTemplate;
+
+    public void publishProjectDeleted(UUID projectId) {
+        try {
+            rabbitTemplate.convertAndSend(TaskRabbitMqConfig.TASK_CHANGED_EXCHANGE, "",
+                    new TaskChangedEvent(null, TaskChangedEvent.PROJECT_DELETED));
+        } catch (AmqpException exception) {
+            log.warn("Publishing deletion of project {} to tasks.changed failed: {}", projectId, exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package pl.projekt.backend.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Powiadomienie węzła o zatwierdzonej zmianie zadania (fanout {@code tasks.changed}).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskChangedEvent {
+    // Zadania projektu usunięte kaskadowo przez backend - bez identyfikatora zadania, unieważnia cały cache
+    public static final String PROJECT_DELETED = "PROJECT_DELETED";
+
+    private Long taskId;
+    private String changeType;
+}
@@ -0,0 +1,88 @@
+package pl.projekt.backend.messaging;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AsyncAmqpTemplate;
+import org.springframework.amqp.core.AmqpReplyTimeoutException;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import pl.projekt.backend.config.TaskRabbitMqConfig;
+import pl.projekt.backend.exception.ServiceUnavailableException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Klient RPC wysyłający komendy zadań do węzłów przez RabbitMQ.
+ * Zwraca CompletableFuture, które kończy się po nadejściu odpowiedzi lub po przekroczeniu czasu oczekiwania.
+ * Czas oczekiwania wyznacza {@link ReplyTimeoutEstimator} dla klucza routingu, a {@link TaskRpcCircuitBreaker}
+ * odrzuca polecenia od razu, gdy nie ma aktywnego węzła zapisu lub węzły przestały odpowiadać.
+ */
+@Component
+@RequiredArgsConstructor
+public class TaskCommandClient {
+    private final AsyncAmqpTemplate asyncRabbitTemplate;
+    private final TaskRpcCircuitBreaker circuitBreaker;
+    private final ReplyTimeoutEstimator replyTimeoutEstimator;
+
+    public <T> CompletableFuture<T> send(String routingKey, Object command, ParameterizedTypeReference<T> responseType) {
+        try {
+            circuitBreaker.acquirePermission();
+        } catch (ServiceUnavailableException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+        long timeoutMs = replyTimeoutEstimator.timeoutMs(routingKey);
+        long startedAt = System.nanoTime();
+        CompletableFuture<T> reply;
+        try {
+            reply = asyncRabbitTemplate.convertSendAndReceiveAsType(
+                    TaskRabbitMqConfig.TASK_EXCHANGE,
+                    routingKey,
+                    command,
+                    responseType
+            );
+        } catch (AmqpException exception) {
+            circuitBreaker.onFailure();
+            return CompletableFuture.failedFuture(translate(exception));
+        }
+        return reply.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((result, exception) -> {
+                    if (exception == null) {
+                        replyTimeoutEstimator.recordLatency(routingKey,
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                        circuitBreaker.onSuccess();
+                        return;
+                    }
+                    Throwable cause = unwrap(exception);
+                    if (cause instanceof TimeoutException || cause instanceof AmqpReplyTimeoutException) {
+                        replyTimeoutEstimator.recordTimeout(routingKey, timeoutMs);
+                        // Zwalnia oczekującą korelację w AsyncRabbitTemplate przed jego własnym limitem
+                        reply.cancel(false);
+                    }
+                    circuitBreaker.onFailure();
+                })
+                .exceptionallyCompose(exception -> CompletableFuture.failedFuture(translate(exception)));
+    }
+
+    private RuntimeException translate(Throwable exception) {
+        Throwable cause = unwrap(exception);
+        if (cause instanceof AmqpReplyTimeoutException || cause instanceof TimeoutException) {
+            return new RuntimeException("Task operation timed out", cause);
+        }
+        if (cause instanceof AmqpException) {
+            return new RuntimeException("RabbitMQ request failed: " + cause.getMessage(), cause);
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new RuntimeException(cause);
+    }
+
+    private static Throwable unwrap(Throwable exception) {
+        return exception instanceof CompletionException && exception.getCause() != null
+                ? exception.getCause()
+                : exception;
+    }
+}
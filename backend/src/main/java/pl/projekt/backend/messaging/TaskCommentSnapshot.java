@@ -0,0 +1,23 @@
+package pl.projekt.backend.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stan komentarza po zapisie, zwrócony przez węzeł w odpowiedzi RPC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskCommentSnapshot {
+    private Long id;
+    private Long taskId;
+    private String comment;
+    private LocalDateTime createdAt;
+    private String authorFirstName;
+    private String authorLastName;
+    private String authorEmail;
+}
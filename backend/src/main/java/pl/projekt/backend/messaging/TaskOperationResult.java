@@ -12,4 +12,8 @@ public class TaskOperationResult {
     private Long taskId;
     private Long commentId;
     private String errorMessage;
+    private TaskSnapshot task;
+    private TaskCommentSnapshot comment;
+    // Zapis odrzucony z powodu nieaktualnej wersji zadania
+    private boolean conflict;
 }
@@ -0,0 +1,37 @@
+package pl.projekt.backend.messaging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Wyznacza klucz routingu polecenia przy partycjonowaniu zapisów po identyfikatorze projektu.
+ * Przy {@code tasks.partitions=1} zwraca bazowe klucze, czyli zachowanie bez partycji.
+ * Polecenia jednego projektu trafiają zawsze do tej samej kolejki partycji, więc węzeł będący
+ * jej właścicielem przetwarza je w kolejności.
+ */
+@Component
+public class TaskPartitioner {
+    private final int partitions;
+
+    public TaskPartitioner(@Value("${tasks.partitions:1}") int partitions) {
+        this.partitions = Math.max(1, partitions);
+    }
+
+    public boolean isPartitioned() {
+        return partitions > 1;
+    }
+
+    public int partitionOf(UUID projectId) {
+        return projectId == null ? 0 : Math.floorMod(projectId.hashCode(), partitions);
+    }
+
+    public String routingKey(String baseRoutingKey, UUID projectId) {
+        return isPartitioned() ? partitionRoutingKey(baseRoutingKey, partitionOf(projectId)) : baseRoutingKey;
+    }
+
+    public static String partitionRoutingKey(String baseRoutingKey, int partition) {
+        return baseRoutingKey + ".p" + partition;
+    }
+}
@@ -0,0 +1,25 @@
+package pl.projekt.backend.messaging;
+
+import java.util.Locale;
+
+/**
+ * Sposób odbierania odpowiedzi RPC z węzłów ({@code tasks.rpc.reply-mode}).
+ * <ul>
+ *     <li>{@link #DIRECT} - pseudo-kolejka {@code amq.rabbitmq.reply-to}; konsumenci i kanały są
+ *     współdzielone przez {@code DirectReplyToMessageListenerContainer}, bez deklarowania kolejek.</li>
+ *     <li>{@link #FIXED} - jedna stała kolejka odpowiedzi instancji backendu z własnym kontenerem
+ *     nasłuchującym; odpowiedzi są przypisywane do żądań po {@code correlationId}.</li>
+ * </ul>
+ */
+public enum TaskReplyMode {
+    DIRECT,
+    FIXED;
+
+    public static TaskReplyMode from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Unsupported tasks.rpc.reply-mode: " + value);
+        }
+    }
+}
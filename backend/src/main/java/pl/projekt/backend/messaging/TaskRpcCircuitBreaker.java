@@ -0,0 +1,154 @@
+package pl.projekt.backend.messaging;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pl.projekt.backend.exception.ServiceUnavailableException;
+import pl.projekt.backend.service.NodeMonitoringService;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Wyłącznik obwodu (circuit breaker) przed klientem RPC poleceń zadań. Polecenie jest odrzucane od razu
+ * (503 + {@code Retry-After}), gdy:
+ * <ul>
+ *     <li>według {@link NodeMonitoringService} nie ma aktywnego węzła zapisu - np. w trakcie przejmowania lidera
+ *     (obecność lidera jest odczytywana z bazy najwyżej raz na {@code tasks.rpc.leader-check-ms}),</li>
+ *     <li>{@code tasks.rpc.circuit.failure-threshold} kolejnych poleceń nie dostało odpowiedzi - obwód jest
+ *     otwarty przez {@code tasks.rpc.circuit.open-ms}, po czym przepuszcza jedno polecenie próbne.</li>
+ * </ul>
+ * Odpowiedź węzła z błędem domenowym (brak zadania, konflikt wersji) jest sukcesem z punktu widzenia obwodu.
+ */
+@Slf4j
+@Component
+public class TaskRpcCircuitBreaker {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final NodeMonitoringService nodeMonitoringService;
+    private final int failureThreshold;
+    private final long openMs;
+    private final long leaderCheckMs;
+    private final long noLeaderRetryAfterSeconds;
+    private final LongSupplier clock;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+    private final AtomicLong leaderCheckedAt;
+    private volatile long openedAt;
+    private volatile boolean leaderAlive = true;
+
+    @Autowired
+    public TaskRpcCircuitBreaker(
+            NodeMonitoringService nodeMonitoringService,
+            MeterRegistry meterRegistry,
+            @Value("${tasks.rpc.circuit.failure-threshold:5}") int failureThreshold,
+            @Value("${tasks.rpc.circuit.open-ms:5000}") long openMs,
+            @Value("${tasks.rpc.leader-check-ms:1000}") long leaderCheckMs,
+            @Value("${tasks.rpc.no-leader-retry-after-seconds:5}") long noLeaderRetryAfterSeconds) {
+        this(nodeMonitoringService, meterRegistry, failureThreshold, openMs, leaderCheckMs, noLeaderRetryAfterSeconds,
+                System::currentTimeMillis);
+    }
+
+    TaskRpcCircuitBreaker(
+            NodeMonitoringService nodeMonitoringService,
+            MeterRegistry meterRegistry,
+            int failureThreshold,
+            long openMs,
+            long leaderCheckMs,
+            long noLeaderRetryAfterSeconds,
+            LongSupplier clock) {
+        this.nodeMonitoringService = nodeMonitoringService;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMs = openMs;
+        this.leaderCheckMs = leaderCheckMs;
+        this.noLeaderRetryAfterSeconds = noLeaderRetryAfterSeconds;
+        this.clock = clock;
+        this.leaderCheckedAt = new AtomicLong(clock.getAsLong() - leaderCheckMs);
+        Gauge.builder("tasks.rpc.circuit.state", state, current -> current.get().ordinal())
+                .description("Stan wyłącznika RPC: 0 - zamknięty, 1 - otwarty, 2 - półotwarty")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sprawdza, czy polecenie może zostać wysłane; w przeciwnym razie rzuca {@link ServiceUnavailableException}.
+     */
+    public void acquirePermission() {
+        if (!isLeaderAlive()) {
+            throw new ServiceUnavailableException("No write node is available", noLeaderRetryAfterSeconds);
+        }
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return;
+        }
+        long openFor = clock.getAsLong() - openedAt;
+        if (current == State.OPEN && openFor >= openMs) {
+            state.compareAndSet(State.OPEN, State.HALF_OPEN);
+            current = state.get();
+        }
+        // W stanie półotwartym przechodzi tylko jedno polecenie próbne naraz
+        if (current == State.HALF_OPEN && probeInFlight.compareAndSet(false, true)) {
+            return;
+        }
+        if (current == State.CLOSED) {
+            return;
+        }
+        throw new ServiceUnavailableException("Write nodes are not responding", retryAfterSeconds(openFor));
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        probeInFlight.set(false);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            log.info("Task RPC circuit closed");
+        }
+    }
+
+    /**
+     * Brak odpowiedzi węzła (przekroczenie czasu) lub błąd brokera.
+     */
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open();
+        }
+    }
+
+    State state() {
+        return state.get();
+    }
+
+    private void open() {
+        openedAt = clock.getAsLong();
+        probeInFlight.set(false);
+        if (state.getAndSet(State.OPEN) != State.OPEN) {
+            log.warn("Task RPC circuit opened after {} failed commands", consecutiveFailures.get());
+        }
+    }
+
+    private long retryAfterSeconds(long openFor) {
+        long remainingMs = Math.max(0, openMs - openFor);
+        return Math.max(1, (remainingMs + 999) / 1000);
+    }
+
+    // Odczyt z bazy wykonuje tylko wątek, który przestawił znacznik czasu; pozostałe używają ostatniej wartości
+    private boolean isLeaderAlive() {
+        long now = clock.getAsLong();
+        long checkedAt = leaderCheckedAt.get();
+        if (now - checkedAt >= leaderCheckMs && leaderCheckedAt.compareAndSet(checkedAt, now)) {
+            try {
+                leaderAlive = nodeMonitoringService.isLeaderAlive();
+            } catch (RuntimeException exception) {
+                // Niedostępny monitoring nie blokuje zapisów - o dostępności węzłów decyduje wtedy sam obwód
+                log.warn("Leader presence check failed: {}", exception.getMessage());
+                leaderAlive = true;
+            }
+        }
+        return leaderAlive;
+    }
+}
@@ -0,0 +1,33 @@
+package pl.projekt.backend.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pl.projekt.backend.model.TaskPriority;
+import pl.projekt.backend.model.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Stan zadania po zapisie, zwrócony przez węzeł w odpowiedzi RPC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskSnapshot {
+    private Long id;
+    private UUID projectId;
+    private String title;
+    private String description;
+    private TaskStatus status;
+    private TaskPriority priority;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime dueDate;
+    private Long assignedToId;
+    private String assignedFirstName;
+    private String assignedLastName;
+    private String assignedEmail;
+    private Long version;
+}
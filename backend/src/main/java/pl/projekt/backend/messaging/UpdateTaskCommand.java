@@ -19,4 +19,6 @@ public class UpdateTaskCommand {
     private TaskPriority priority;
     private LocalDateTime dueDate;
     private Long assignedToId;
+    // Wersja zadania znana klientowi; null = zapis bez kontroli wersji
+    private Long version;
 }
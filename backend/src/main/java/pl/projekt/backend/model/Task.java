@@ -18,7 +18,11 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "tasks")
+@Table(name = "tasks", indexes = {
+        // Paginacja keyset list zadań: filtr po projekcie lub przypisanym użytkowniku + sortowanie (updated_at, id)
+        @Index(name = "idx_tasks_project_updated", columnList = "project_id, updated_at, id"),
+        @Index(name = "idx_tasks_assignee_updated", columnList = "assigned_to, updated_at, id")
+})
 public class Task {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -61,5 +65,10 @@ public class Task {
     @OneToMany(mappedBy = "task", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<TaskComment> comments;
 
+    // Blokada optymistyczna zapisów z węzłów; domyślna wartość dla wierszy sprzed dodania kolumny
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
 
 }
\ No newline at end of file
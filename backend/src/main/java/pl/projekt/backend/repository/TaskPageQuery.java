@@ -0,0 +1,25 @@
+package pl.projekt.backend.repository;
+
+import pl.projekt.backend.model.TaskPriority;
+import pl.projekt.backend.model.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Kryteria pobrania strony zadań. Pola {@code null} nie zawężają wyniku;
+ * {@code afterUpdatedAt}/{@code afterId} wskazują ostatni wiersz poprzedniej strony.
+ */
+public record TaskPageQuery(
+        UUID projectId,
+        Long assigneeId,
+        TaskStatus status,
+        TaskPriority priority,
+        LocalDateTime dueFrom,
+        LocalDateTime dueTo,
+        LocalDateTime afterUpdatedAt,
+        Long afterId,
+        boolean ascending,
+        int limit
+) {
+}
@@ -0,0 +1,12 @@
+package pl.projekt.backend.repository;
+
+import pl.projekt.backend.dto.TaskWithAssigneeResponse;
+
+import java.util.List;
+
+/**
+ * Fragment repozytorium zadań z paginacją keyset - zwraca od razu DTO, bez ładowania encji.
+ */
+public interface TaskPageRepository {
+    List<TaskWithAssigneeResponse> findTaskPage(TaskPageQuery query);
+}
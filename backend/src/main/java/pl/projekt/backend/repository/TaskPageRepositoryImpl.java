@@ -0,0 +1,106 @@
+package pl.projekt.backend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import pl.projekt.backend.dto.TaskWithAssigneeResponse;
+import pl.projekt.backend.model.Task;
+import pl.projekt.backend.model.TaskPriority;
+import pl.projekt.backend.model.TaskStatus;
+import pl.projekt.backend.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strona zadań sortowana po ({@code updatedAt}, {@code id}) - warunek keyset zamiast OFFSET,
+ * więc koszt kolejnych stron nie rośnie z ich numerem (indeksy w {@link Task}).
+ */
+public class TaskPageRepositoryImpl implements TaskPageRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TaskWithAssigneeResponse> findTaskPage(TaskPageQuery query) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteria = cb.createTupleQuery();
+        Root<Task> task = criteria.from(Task.class);
+        Join<Task, User> assignee = task.join("assignedTo", JoinType.LEFT);
+        Path<LocalDateTime> updatedAt = task.get("updatedAt");
+        Path<Long> id = task.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (query.projectId() != null) {
+            predicates.add(cb.equal(task.get("project").get("id"), query.projectId()));
+        }
+        if (query.assigneeId() != null) {
+            predicates.add(cb.equal(assignee.get("id"), query.assigneeId()));
+        }
+        if (query.status() != null) {
+            predicates.add(cb.equal(task.get("status"), query.status()));
+        }
+        if (query.priority() != null) {
+            predicates.add(cb.equal(task.get("priority"), query.priority()));
+        }
+        if (query.dueFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(task.get("dueDate"), query.dueFrom()));
+        }
+        if (query.dueTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(task.get("dueDate"), query.dueTo()));
+        }
+        if (query.afterUpdatedAt() != null && query.afterId() != null) {
+            predicates.add(query.ascending()
+                    ? cb.or(cb.greaterThan(updatedAt, query.afterUpdatedAt()),
+                            cb.and(cb.equal(updatedAt, query.afterUpdatedAt()), cb.greaterThan(id, query.afterId())))
+                    : cb.or(cb.lessThan(updatedAt, query.afterUpdatedAt()),
+                            cb.and(cb.equal(updatedAt, query.afterUpdatedAt()), cb.lessThan(id, query.afterId()))));
+        }
+
+        criteria.multiselect(
+                        id,
+                        task.get("title"),
+                        task.get("description"),
+                        task.get("status"),
+                        task.get("priority"),
+                        task.get("createdAt"),
+                        updatedAt,
+                        task.get("dueDate"),
+                        assignee.get("firstName"),
+                        assignee.get("lastName"))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(query.ascending()
+                        ? List.of(cb.asc(updatedAt), cb.asc(id))
+                        : List.of(cb.desc(updatedAt), cb.desc(id)));
+
+        return entityManager.createQuery(criteria)
+                .setMaxResults(query.limit())
+                .getResultList()
+                .stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    private TaskWithAssigneeResponse toResponse(Tuple row) {
+        return new TaskWithAssigneeResponse(
+                row.get(0, Long.class),
+                row.get(1, String.class),
+                row.get(2, String.class),
+                row.get(3, TaskStatus.class),
+                row.get(4, TaskPriority.class),
+                row.get(5, LocalDateTime.class),
+                row.get(6, LocalDateTime.class),
+                row.get(7, LocalDateTime.class),
+                row.get(8, String.class),
+                row.get(9, String.class)
+        );
+    }
+}
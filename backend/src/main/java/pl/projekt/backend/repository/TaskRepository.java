@@ -1,15 +1,41 @@
 package pl.projekt.backend.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import pl.projekt.backend.dto.TaskWithAssigneeResponse;
 import pl.projekt.backend.model.Project;
 import pl.projekt.backend.model.Task;
 import pl.projekt.backend.model.User;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
-public interface TaskRepository extends JpaRepository<Task, Long> {
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskPageRepository {
     List<Task> findByProject(Project project);
     List<Task> findByAssignedTo(User user);
     List<Task> findByProjectAndAssignedTo(Project project, User user);
+
+    @Query("select t.project.id from Task t where t.id = :id")
+    Optional<UUID> findProjectIdById(@Param("id") Long id);
+
+    // Projekcje list zadań: jedno zapytanie z jednym złączeniem users, bez ładowania encji Task i ich relacji
+    @Query("""
+            select new pl.projekt.backend.dto.TaskWithAssigneeResponse(
+                t.id, t.title, t.description, t.status, t.priority, t.createdAt, t.updatedAt, t.dueDate,
+                a.firstName, a.lastName)
+            from Task t left join t.assignedTo a
+            where t.project.id = :projectId
+            """)
+    List<TaskWithAssigneeResponse> findWithAssigneeByProjectId(@Param("projectId") UUID projectId);
+
+    @Query("""
+            select new pl.projekt.backend.dto.TaskWithAssigneeResponse(
+                t.id, t.title, t.description, t.status, t.priority, t.createdAt, t.updatedAt, t.dueDate,
+                a.firstName, a.lastName)
+            from Task t join t.assignedTo a
+            where a.id = :assigneeId
+            """)
+    List<TaskWithAssigneeResponse> findWithAssigneeByAssigneeId(@Param("assigneeId") Long assigneeId);
 }
\ No newline at end of file
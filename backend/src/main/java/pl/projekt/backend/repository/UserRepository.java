@@ -3,9 +3,11 @@ package pl.projekt.backend.repository;
 import pl.projekt.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional <User> findByEmail(String email);
+    List<User> findByTwoFactorSecretIsNotNull();
 }
@@ -1,14 +1,15 @@
 package pl.projekt.backend.security;
 
-
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -23,6 +24,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+
+    // Tryb bezstanowy: podpis, termin ważności i claim roli wystarczają do uwierzytelnienia (bez odczytu users)
+    @Value("${security.jwt.stateless:false}")
+    private boolean statelessAuthentication;
 
     @Override
     protected void doFilterInternal(
@@ -32,6 +38,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
+        final VerifiedJwt token;
         final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -40,24 +47,37 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
-        userEmail = jwtService.extractUsername(jwt);
+        // Jedno parsowanie tokenu: podpis i termin ważności są sprawdzane przy odczycie claimów
+        token = jwtService.verify(jwt);
+        userEmail = token.subject();
 
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-            if (jwtService.isTokenValid(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,
-                        userDetails.getAuthorities()
-                );
-                authToken.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+            if (statelessAuthentication && token.role() != null
+                    && !principalCache.isIssuedBeforeInvalidation(userEmail, token.issuedAt())) {
+                authenticate(request, User.withUsername(userEmail)
+                        .password("")
+                        .authorities(token.role())
+                        .build());
+            } else {
+                // Token sprzed zmiany roli/2FA (lub tryb domyślny) - aktualne uprawnienia z bazy
+                UserDetails userDetails = principalCache.get(userEmail, token.tokenId(), userDetailsService::loadUserByUsername);
+                if (userEmail.equals(userDetails.getUsername())) {
+                    authenticate(request, userDetails);
+                }
             }
         }
         filterChain.doFilter(request, response);
     }
 
-  
+    private void authenticate(HttpServletRequest request, UserDetails userDetails) {
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                userDetails.getAuthorities()
+        );
+        authToken.setDetails(
+                new WebAuthenticationDetailsSource().buildDetails(request)
+        );
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package pl.projekt.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * Ograniczony cache użytkowników uwierzytelnionych tokenem JWT, kluczowany parą {@code subject:jti}.
+ * Dzięki niemu {@link JwtAuthenticationFilter} nie odpytuje tabeli {@code users} przy każdym żądaniu.
+ * Wpisy wygasają po {@code security.principal-cache.ttl-seconds}; zmiana roli lub 2FA usuwa je od razu
+ * na wszystkich instancjach (fanout {@code principals.invalidated}).
+ * Moment unieważnienia jest pamiętany przez czas życia tokenu, żeby tryb bezstanowy
+ * ({@code security.jwt.stateless}) nie ufał roli z tokenów wystawionych wcześniej.
+ */
+@Component
+public class PrincipalCache {
+    private static final char KEY_SEPARATOR = ':';
+
+    private final Cache<String, UserDetails> cache;
+    private final Cache<String, Instant> invalidations;
+
+    public PrincipalCache(
+            @Value("${security.principal-cache.max-size:10000}") long maxSize,
+            @Value("${security.principal-cache.ttl-seconds:60}") long ttlSeconds,
+            @Value("${jwt.expiration}") long tokenLifetimeMs) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.invalidations = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(Math.max(1, tokenLifetimeMs)))
+                .build();
+    }
+
+    /**
+     * Zwraca użytkownika z cache albo ładuje go funkcją {@code loader} (jedno ładowanie na klucz naraz).
+     * Tokeny bez {@code jti} (wydane przed jego wprowadzeniem) współdzielą wpis danego użytkownika.
+     */
+    public UserDetails get(String subject, String tokenId, Function<String, UserDetails> loader) {
+        return cache.get(key(subject, tokenId), ignored -> loader.apply(subject));
+    }
+
+    /**
+     * Usuwa wszystkie wpisy użytkownika, niezależnie od tokenu, którym się uwierzytelnił.
+     * Zwraca chwilę unieważnienia, którą należy rozgłosić pozostałym instancjom.
+     */
+    public Instant invalidate(String subject) {
+        Instant invalidatedAt = Instant.now();
+        invalidate(subject, invalidatedAt);
+        return invalidatedAt;
+    }
+
+    /**
+     * Stosuje unieważnienie z chwilą {@code invalidatedAt} (np. otrzymane z innej instancji).
+     * Zapamiętywana jest zawsze późniejsza chwila, więc kolejność dostarczenia zdarzeń nie ma znaczenia.
+     */
+    public void invalidate(String subject, Instant invalidatedAt) {
+        invalidations.asMap().merge(subject, invalidatedAt, (current, incoming) -> incoming.isAfter(current) ? incoming : current);
+        String prefix = subject + KEY_SEPARATOR;
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Czy token wystawiony w chwili {@code issuedAt} pochodzi sprzed ostatniego unieważnienia użytkownika.
+     * {@code iat} ma dokładność sekundy, więc token z tej samej sekundy też jest traktowany jako nieaktualny.
+     */
+    public boolean isIssuedBeforeInvalidation(String subject, Date issuedAt) {
+        Instant invalidatedAt = invalidations.getIfPresent(subject);
+        return invalidatedAt != null && (issuedAt == null || !issuedAt.toInstant().isAfter(invalidatedAt));
+    }
+
+    private static String key(String subject, String tokenId) {
+        return subject + KEY_SEPARATOR + (tokenId != null ? tokenId : "");
+    }
+}
@@ -0,0 +1,10 @@
+package pl.projekt.backend.security;
+
+import java.util.Date;
+
+/**
+ * Claimy tokenu JWT po weryfikacji podpisu i terminu ważności ({@link JwtService#verify(String)}).
+ * Przekazywane dalej zamiast surowego tokenu, żeby nie parsować go ponownie.
+ */
+public record VerifiedJwt(String subject, String tokenId, String role, Date issuedAt, Date expiration) {
+}
@@ -7,7 +7,11 @@ import pl.projekt.backend.dto.ChangeRoleRequest;
 import pl.projekt.backend.repository.UserRepository;
 import pl.projekt.backend.model.Role;
 import pl.projekt.backend.model.User;
+import pl.projekt.backend.messaging.PrincipalInvalidationPublisher;
+import pl.projekt.backend.security.PrincipalCache;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import pl.projekt.backend.dto.UserResponse;
 
@@ -16,7 +20,10 @@ import pl.projekt.backend.dto.UserResponse;
 public class AdminService {
 
     private final UserRepository userRepository;
-    
+    private final PrincipalCache principalCache;
+    private final PrincipalInvalidationPublisher principalInvalidationPublisher;
+    private final SensitiveDataService sensitiveDataService;
+
     public void changeUserRole(ChangeRoleRequest request) {
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -26,6 +33,7 @@ public class AdminService {
             if (role == Role.USER || role == Role.MANAGER) {
                 user.setRole(role);
                 userRepository.save(user);
+                principalInvalidationPublisher.publishInvalidated(user.getEmail(), principalCache.invalidate(user.getEmail()));
             } else {
                 throw new RuntimeException("Invalid role: " + request.getNewRole());
             }
@@ -34,6 +42,27 @@ public class AdminService {
         }
     }
 
+    /**
+     * Szyfruje sekrety TOTP wszystkich użytkowników bieżącym kluczem po rotacji {@code TOTP_ENCRYPTION_SECRET}.
+     * Zapisywani są tylko użytkownicy, których sekret się zmienił; zwraca ich liczbę.
+     */
+    public int reEncryptTotpSecrets() {
+        List<User> users = userRepository.findByTwoFactorSecretIsNotNull();
+        List<String> reEncrypted = sensitiveDataService.reEncryptAll(
+                users.stream().map(User::getTwoFactorSecret).toList());
+
+        List<User> changed = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (!Objects.equals(user.getTwoFactorSecret(), reEncrypted.get(i))) {
+                user.setTwoFactorSecret(reEncrypted.get(i));
+                changed.add(user);
+            }
+        }
+        userRepository.saveAll(changed);
+        return changed.size();
+    }
+
     public List<UserResponse> getAllUsers() {
         return userRepository.findAll().stream()
                 .map(user -> new UserResponse(
@@ -4,10 +4,12 @@ import pl.projekt.backend.dto.AuthResponse;
 import pl.projekt.backend.dto.LoginRequest;
 import pl.projekt.backend.dto.RegisterRequest;
 import pl.projekt.backend.dto.TotpRequest;
+import pl.projekt.backend.messaging.PrincipalInvalidationPublisher;
 import pl.projekt.backend.model.Role;
 import pl.projekt.backend.model.User;
 import pl.projekt.backend.repository.UserRepository;
 import pl.projekt.backend.security.JwtService;
+import pl.projekt.backend.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -16,6 +18,10 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Service
 @RequiredArgsConstructor
 public class AuthService {
@@ -26,6 +32,11 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final TotpService totpService;
     private final SensitiveDataService sensitiveDataService;
+    private final PrincipalCache principalCache;
+    private final PrincipalInvalidationPublisher principalInvalidationPublisher;
+    private final PasswordHashingService passwordHashingService;
+    // Wykonawca zadań asynchronicznych Spring Boot (wątki wirtualne przy spring.threads.virtual.enabled=true)
+    private final Executor applicationTaskExecutor;
 
     public AuthResponse register(RegisterRequest request) {
         User user = new User();
@@ -46,14 +57,29 @@ public class AuthService {
                 .build();
     }
 
-    public AuthResponse login(LoginRequest request) {
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    public CompletableFuture<AuthResponse> login(LoginRequest request) {
+        Optional<User> user = userRepository.findByEmail(request.getEmail());
+
+        // Sprawdzenie poprawności hasła na puli haszowania (poza wątkiem żądania); nieznany e-mail też
+        // przechodzi przez BCrypt, więc czas odpowiedzi i limit kolejki (429) są takie same
+        CompletableFuture<PasswordHashingService.PasswordVerification> verification = user.isPresent()
+                ? passwordHashingService.verify(request.getPassword(), user.get().getPassword())
+                : passwordHashingService.verifyUnknownUser(request.getPassword());
+        // Reszta logowania (zapis skrótu, 2FA, podpis JWT) na wykonawcy żądań, a nie na puli haszowania
+        return verification.thenApplyAsync(result -> completeLogin(request,
+                        user.orElseThrow(() -> new RuntimeException("User not found")), result),
+                applicationTaskExecutor);
+    }
 
-        // Sprawdzenie poprawności hasła
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+    private AuthResponse completeLogin(LoginRequest request, User user, PasswordHashingService.PasswordVerification verification) {
+        if (!verification.matches()) {
             throw new RuntimeException("Invalid password");
         }
+        // Skrót z niższym kosztem niż bieżący jest zastępowany przy udanym logowaniu
+        if (verification.upgradedHash() != null) {
+            user.setPassword(verification.upgradedHash());
+            userRepository.save(user);
+        }
 
         if (user.isTwoFactorEnabled()) {
             if (request.getTotpCode() == null) {
@@ -80,6 +106,7 @@ public class AuthService {
         user.setTwoFactorSecret(sensitiveDataService.encrypt(secret));
         user.setTwoFactorEnabled(true);
         userRepository.save(user);
+        principalInvalidationPublisher.publishInvalidated(user.getEmail(), principalCache.invalidate(user.getEmail()));
 
         String qrCodeImage = totpService.getQRCodeImageUri(secret, user.getEmail());
 
@@ -94,6 +121,7 @@ public class AuthService {
         if (totpService.verifyCode(request.getTotpCode(), sensitiveDataService.decrypt(user.getTwoFactorSecret()))) {
             user.setTwoFactorEnabled(true);
             userRepository.save(user);
+            principalInvalidationPublisher.publishInvalidated(user.getEmail(), principalCache.invalidate(user.getEmail()));
 
             String token = jwtService.generateToken(user);
             return AuthResponse.builder()
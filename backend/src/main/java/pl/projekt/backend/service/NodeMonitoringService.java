@@ -8,7 +8,6 @@ import pl.projekt.backend.dto.EventTypeCountResponse;
 import pl.projekt.backend.dto.NodeEventResponse;
 import pl.projekt.backend.dto.NodeStatusResponse;
 
-import jakarta.annotation.PostConstruct;
 import java.sql.Timestamp;
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -20,6 +19,9 @@ import java.util.Optional;
 @Service
 @RequiredArgsConstructor
 public class NodeMonitoringService {
+    // Nazwa aplikacji połączenia dzierżawy węzła (PostgresLeaderLease w module node)
+    private static final String LEASE_APPLICATION_NAME_PREFIX = "leader-lease:";
+
     private final JdbcTemplate jdbcTemplate;
 
     @Value("${node.monitoring.expected-nodes:node-1:100,node-2:50,node-3:10}")
@@ -31,13 +33,7 @@ public class NodeMonitoringService {
     @Value("${node.monitoring.events-limit:20}")
     private int eventsLimit;
 
-    @PostConstruct
-    public void initialize() {
-        ensureTable();
-    }
-
     public List<NodeStatusResponse> getStatuses() {
-        ensureTable();
         Map<String, Integer> expected = parseExpectedNodes();
         Map<String, CandidateRow> rows = findRows();
         Optional<String> leaderId = findLeaderId();
@@ -52,7 +48,9 @@ public class NodeMonitoringService {
                     int networkDelayMs = row != null ? row.networkDelayMs() : 0;
                     boolean messageCorruption = row != null && row.messageCorruption();
                     LocalDateTime lastSeen = row != null ? row.lastSeen() : null;
-                    boolean online = lastSeen != null && !lastSeen.isBefore(aliveSince) && !forcedDown;
+                    // Tryb advisory-lock nie wysyła heartbeatu - węzeł działa, dopóki ma otwarte połączenie dzierżawy
+                    boolean alive = (lastSeen != null && !lastSeen.isBefore(aliveSince)) || (row != null && row.leaseConnected());
+                    boolean online = alive && !forcedDown;
                     Long secondsSinceLastSeen = lastSeen != null ? Duration.between(lastSeen, now).getSeconds() : null;
                     boolean leader = online && leaderId.map(entry.getKey()::equals).orElse(false);
                     return new NodeStatusResponse(
@@ -70,6 +68,14 @@ public class NodeMonitoringService {
                 .toList();
     }
 
+    /**
+     * Czy istnieje lider: węzeł trzymający blokadę lidera (tryb advisory-lock) albo, w trybie polling,
+     * aktywny węzeł (z aktualnym heartbeatem i bez wymuszonej awarii), który może być liderem.
+     */
+    public boolean isLeaderAlive() {
+        return findLeaderId().isPresent();
+    }
+
     public void injectFailure(String nodeId) {
         setForcedDown(nodeId, true);
         recordEvent("backend", "NODE_FAILURE_INJECTED", "nodeId=" + nodeId);
@@ -81,7 +87,6 @@ public class NodeMonitoringService {
     }
 
     public void setNetworkDelay(String nodeId, int delayMs) {
-        ensureTable();
         int weight = parseExpectedNodes().getOrDefault(nodeId, 0);
         jdbcTemplate.update("""
                 INSERT INTO node_leader_candidates (node_id, node_weight, last_seen, network_delay_ms)
@@ -97,7 +102,6 @@ public class NodeMonitoringService {
     }
 
     public void setMessageCorruption(String nodeId, boolean enabled) {
-        ensureTable();
         int weight = parseExpectedNodes().getOrDefault(nodeId, 0);
         jdbcTemplate.update("""
                 INSERT INTO node_leader_candidates (node_id, node_weight, last_seen, message_corruption)
@@ -109,7 +113,6 @@ public class NodeMonitoringService {
     }
 
     public List<EventTypeCountResponse> getEventTypeCounts() {
-        ensureEventTable();
         return jdbcTemplate.query("""
                 SELECT event_type, COUNT(*) AS event_count
                 FROM distributed_node_events
@@ -122,7 +125,6 @@ public class NodeMonitoringService {
     }
 
     public List<NodeEventResponse> getEvents() {
-        ensureEventTable();
         return jdbcTemplate.query("""
                 SELECT id, event_time, node_id, event_type, details
                 FROM distributed_node_events
@@ -138,7 +140,6 @@ public class NodeMonitoringService {
     }
 
     private void setForcedDown(String nodeId, boolean forcedDown) {
-        ensureTable();
         int weight = parseExpectedNodes().getOrDefault(nodeId, 0);
         jdbcTemplate.update("""
                 INSERT INTO node_leader_candidates (node_id, node_weight, last_seen, forced_down)
@@ -150,7 +151,9 @@ public class NodeMonitoringService {
 
     private Map<String, CandidateRow> findRows() {
         return jdbcTemplate.query("""
-                SELECT node_id, node_weight, last_seen, forced_down, network_delay_ms, message_corruption
+                SELECT node_id, node_weight, last_seen, forced_down, network_delay_ms, message_corruption,
+                       EXISTS (SELECT 1 FROM pg_stat_activity
+                               WHERE application_name = ? || node_leader_candidates.node_id) AS lease_connected
                 FROM node_leader_candidates
                 """, resultSet -> {
             Map<String, CandidateRow> rows = new LinkedHashMap<>();
@@ -160,24 +163,36 @@ public class NodeMonitoringService {
                         resultSet.getTimestamp("last_seen").toLocalDateTime(),
                         resultSet.getBoolean("forced_down"),
                         resultSet.getInt("network_delay_ms"),
-                        resultSet.getBoolean("message_corruption")
+                        resultSet.getBoolean("message_corruption"),
+                        resultSet.getBoolean("lease_connected")
                 ));
             }
             return rows;
-        });
+        }, LEASE_APPLICATION_NAME_PREFIX);
     }
 
+    /**
+     * Lider opublikowany w {@code node_leader} przez węzeł, który przejął blokadę doradczą - o ile sesja
+     * {@code holder_pid} nadal trzyma blokadę ({@code pg_locks}). Bez takiej sesji (tryb polling) liderem
+     * jest aktywny kandydat o najwyższej wadze, tak jak wybierają go węzły.
+     */
     private Optional<String> findLeaderId() {
         LocalDateTime aliveSince = LocalDateTime.now().minusSeconds(ttlSeconds);
         return jdbcTemplate.query("""
-                SELECT node_id
-                FROM node_leader_candidates
-                WHERE last_seen >= ? AND forced_down = FALSE
-                ORDER BY node_weight DESC, node_id ASC
-                LIMIT 1
+                SELECT COALESCE(
+                    (SELECT leader.node_id
+                     FROM node_leader leader
+                     WHERE leader.id = 1 AND EXISTS (
+                         SELECT 1 FROM pg_locks held
+                         WHERE held.locktype = 'advisory' AND held.granted AND held.pid = leader.holder_pid)),
+                    (SELECT node_id
+                     FROM node_leader_candidates
+                     WHERE last_seen >= ? AND forced_down = FALSE
+                     ORDER BY node_weight DESC, node_id ASC
+                     LIMIT 1)) AS node_id
                 """, resultSet -> {
             if (resultSet.next()) {
-                return Optional.of(resultSet.getString("node_id"));
+                return Optional.ofNullable(resultSet.getString("node_id"));
             }
             return Optional.empty();
         }, Timestamp.valueOf(aliveSince));
@@ -194,51 +209,14 @@ public class NodeMonitoringService {
         return nodes;
     }
 
-    private void ensureTable() {
-        jdbcTemplate.execute("""
-                CREATE TABLE IF NOT EXISTS node_leader_candidates (
-                    node_id VARCHAR(128) PRIMARY KEY,
-                    node_weight INTEGER NOT NULL,
-                    last_seen TIMESTAMP NOT NULL,
-                    forced_down BOOLEAN NOT NULL DEFAULT FALSE
-                )
-                """);
-        jdbcTemplate.execute("""
-                ALTER TABLE node_leader_candidates
-                ADD COLUMN IF NOT EXISTS forced_down BOOLEAN NOT NULL DEFAULT FALSE
-                """);
-        jdbcTemplate.execute("""
-                ALTER TABLE node_leader_candidates
-                ADD COLUMN IF NOT EXISTS network_delay_ms INTEGER NOT NULL DEFAULT 0
-                """);
-        jdbcTemplate.execute("""
-                ALTER TABLE node_leader_candidates
-                ADD COLUMN IF NOT EXISTS message_corruption BOOLEAN NOT NULL DEFAULT FALSE
-                """);
-        ensureEventTable();
-    }
-
     private void recordEvent(String nodeId, String eventType, String details) {
-        ensureEventTable();
         jdbcTemplate.update("""
                 INSERT INTO distributed_node_events (event_time, node_id, event_type, details)
                 VALUES (?, ?, ?, ?)
                 """, Timestamp.valueOf(LocalDateTime.now()), nodeId, eventType, details);
     }
 
-    private void ensureEventTable() {
-        jdbcTemplate.execute("""
-                CREATE TABLE IF NOT EXISTS distributed_node_events (
-                    id BIGSERIAL PRIMARY KEY,
-                    event_time TIMESTAMP NOT NULL,
-                    node_id VARCHAR(128) NOT NULL,
-                    event_type VARCHAR(64) NOT NULL,
-                    details TEXT
-                )
-                """);
-    }
-
     private record CandidateRow(int weight, LocalDateTime lastSeen, boolean forcedDown,
-                                  int networkDelayMs, boolean messageCorruption) {
+                                  int networkDelayMs, boolean messageCorruption, boolean leaseConnected) {
     }
 }
@@ -0,0 +1,120 @@
+package pl.projekt.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Weryfikacja haseł (BCrypt) na osobnej, ograniczonej puli wątków. Fala logowań zajmuje najwyżej
+ * {@code security.password-hashing.threads} rdzeni zamiast wątków Tomcata obsługujących API zadań;
+ * gdy kolejka ({@code security.password-hashing.queue-capacity}) jest pełna, logowanie kończy się HTTP 429.
+ * Logowanie na nieistniejący e-mail również wykonuje haszowanie (względem skrótu zastępczego), aby czas
+ * odpowiedzi i limit kolejki nie zdradzały, czy konto istnieje.
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+    private static final int MAX_BCRYPT_COST = 16;
+
+    private final PasswordEncoder passwordEncoder;
+    private final String unknownUserHash;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejectedVerifications;
+
+    public PasswordHashingService(
+            PasswordEncoder passwordEncoder,
+            MeterRegistry meterRegistry,
+            @Value("${security.password-hashing.threads:0}") int threads,
+            @Value("${security.password-hashing.queue-capacity:64}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        // Skrót losowego hasła z bieżącym kosztem - weryfikacja trwa tyle, co dla istniejącego konta
+        this.unknownUserHash = passwordEncoder.encode(UUID.randomUUID().toString());
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> Thread.ofPlatform().daemon()
+                        .name("password-hashing-" + threadNumber.incrementAndGet())
+                        .unstarted(runnable),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("auth.password.hashing.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Weryfikacje haseł oczekujące na wątek")
+                .register(meterRegistry);
+        this.rejectedVerifications = Counter.builder("auth.password.hashing.rejected").register(meterRegistry);
+    }
+
+    /**
+     * Sprawdza hasło na puli haszowania. Jeśli hasło jest poprawne, a zapisany skrót ma niższy koszt
+     * niż bieżący, wynik zawiera skrót wyliczony ponownie z bieżącym kosztem do zapisania.
+     */
+    public CompletableFuture<PasswordVerification> verify(String rawPassword, String encodedPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                boolean matches = passwordEncoder.matches(rawPassword, encodedPassword);
+                String upgradedHash = matches && passwordEncoder.upgradeEncoding(encodedPassword)
+                        ? passwordEncoder.encode(rawPassword)
+                        : null;
+                return new PasswordVerification(matches, upgradedHash);
+            }, executor);
+        } catch (RejectedExecutionException exception) {
+            rejectedVerifications.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts in progress, retry later");
+        }
+    }
+
+    /**
+     * Sprawdza hasło względem skrótu zastępczego na tej samej puli (dla e-maila bez konta); wynik nigdy nie pasuje.
+     */
+    public CompletableFuture<PasswordVerification> verifyUnknownUser(String rawPassword) {
+        return verify(rawPassword, unknownUserHash);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Dobiera koszt BCrypt tak, aby jedno haszowanie trwało możliwie blisko {@code targetMs}, ale nie dłużej;
+     * nigdy poniżej {@code minCost}. Każdy kolejny poziom kosztu podwaja czas haszowania.
+     */
+    public static int calibrateBcryptCost(long targetMs, int minCost) {
+        String salt = BCrypt.gensalt(minCost);
+        BCrypt.hashpw("calibration", salt);
+        long bestNanos = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        int cost = minCost;
+        double estimatedMs = bestNanos / 1_000_000.0;
+        while (cost < MAX_BCRYPT_COST && estimatedMs * 2 <= targetMs) {
+            cost++;
+            estimatedMs *= 2;
+        }
+        log.info("BCrypt cost calibrated to {} (~{} ms per hash, target {} ms)", cost, Math.round(estimatedMs), targetMs);
+        return cost;
+    }
+
+    public record PasswordVerification(boolean matches, String upgradedHash) {
+    }
+}
@@ -11,6 +11,7 @@ import pl.projekt.backend.dto.CreateProjectRequest;
 import pl.projekt.backend.dto.UpdateProjectRequest;
 import pl.projekt.backend.dto.ProjectMemberResponse;
 import pl.projekt.backend.dto.AddProjectMemberRequest;
+import pl.projekt.backend.messaging.TaskChangePublisher;
 import pl.projekt.backend.model.Project;
 import pl.projekt.backend.model.ProjectMember;
 import pl.projekt.backend.model.ProjectStatus;
@@ -31,6 +32,8 @@ public class ProjectService {
     private final ProjectRepository projectRepository;
     private final UserRepository userRepository;
     private final ProjectMemberRepository projectMemberRepository;
+    private final TaskReadCache taskReadCache;
+    private final TaskChangePublisher taskChangePublisher;
 
     public List<Project> getAllProjectsForCurrentUser() {
         String currentUserEmail = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -72,6 +75,10 @@ public class ProjectService {
 
     public void deleteProject(UUID id) {
         projectRepository.deleteById(id);
+        // Zadania projektu są usuwane kaskadowo przez backend, poza węzłami - węzły nie wyślą zdarzenia
+        // tasks.changed, więc wysyła je backend; własny cache jest czyszczony od razu, bez czekania na zdarzenie
+        taskReadCache.evictAll();
+        taskChangePublisher.publishProjectDeleted(id);
     }
 
     public ProjectMemberResponse addProjectMember(UUID projectId, AddProjectMemberRequest request) {
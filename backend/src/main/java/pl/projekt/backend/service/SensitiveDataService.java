@@ -3,48 +3,60 @@ package pl.projekt.backend.service;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 @Service
 public class SensitiveDataService {
     private static final String PREFIX = "ENC:";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
     private static final int IV_LENGTH_BYTES = 12;
     private static final int TAG_LENGTH_BITS = 128;
 
     private final SecureRandom secureRandom = new SecureRandom();
     private final SecretKeySpec keySpec;
+    // Poprzednie klucze - tylko do odszyfrowania wartości sprzed rotacji (decrypt, reEncryptAll)
+    private final List<SecretKeySpec> previousKeySpecs;
+    // Pula instancji Cipher: Cipher.getInstance jest kosztowne, a instancja nie jest bezpieczna wątkowo
+    private final BlockingQueue<Cipher> cipherPool =
+            new ArrayBlockingQueue<>(Math.max(2, Runtime.getRuntime().availableProcessors() * 2));
 
-    public SensitiveDataService(@Value("${totp.encryption.secret}") String encryptionSecret) {
+    public SensitiveDataService(
+            @Value("${totp.encryption.secret}") String encryptionSecret,
+            @Value("${totp.encryption.previous-secrets:}") List<String> previousEncryptionSecrets) {
         if (encryptionSecret == null || encryptionSecret.length() < 32) {
             throw new IllegalStateException("TOTP_ENCRYPTION_SECRET must contain at least 32 characters");
         }
         this.keySpec = new SecretKeySpec(sha256(encryptionSecret), "AES");
+        this.previousKeySpecs = previousEncryptionSecrets.stream()
+                .filter(secret -> !secret.isBlank())
+                .map(secret -> new SecretKeySpec(sha256(secret), "AES"))
+                .toList();
     }
 
     public String encrypt(String plainText) {
         if (plainText == null || plainText.startsWith(PREFIX)) {
             return plainText;
         }
+        Cipher cipher = borrowCipher();
         try {
-            byte[] iv = new byte[IV_LENGTH_BYTES];
-            secureRandom.nextBytes(iv);
-
-            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
-            byte[] cipherText = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-
-            byte[] payload = new byte[iv.length + cipherText.length];
-            System.arraycopy(iv, 0, payload, 0, iv.length);
-            System.arraycopy(cipherText, 0, payload, iv.length, cipherText.length);
-            return PREFIX + Base64.getEncoder().encodeToString(payload);
-        } catch (Exception exception) {
+            return encrypt(cipher, plainText);
+        } catch (GeneralSecurityException exception) {
             throw new IllegalStateException("Could not encrypt sensitive data", exception);
+        } finally {
+            cipherPool.offer(cipher);
         }
     }
 
@@ -52,18 +64,111 @@ public class SensitiveDataService {
         if (storedValue == null || !storedValue.startsWith(PREFIX)) {
             return storedValue;
         }
+        Cipher cipher = borrowCipher();
         try {
-            byte[] payload = Base64.getDecoder().decode(storedValue.substring(PREFIX.length()));
-            byte[] iv = new byte[IV_LENGTH_BYTES];
-            byte[] cipherText = new byte[payload.length - IV_LENGTH_BYTES];
-            System.arraycopy(payload, 0, iv, 0, iv.length);
-            System.arraycopy(payload, iv.length, cipherText, 0, cipherText.length);
-
-            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
-            return new String(cipher.doFinal(cipherText), StandardCharsets.UTF_8);
-        } catch (Exception exception) {
+            return decryptWithAnyKey(cipher, decodePayload(storedValue));
+        } catch (GeneralSecurityException | IllegalArgumentException exception) {
             throw new IllegalStateException("Could not decrypt sensitive data", exception);
+        } finally {
+            cipherPool.offer(cipher);
+        }
+    }
+
+    /**
+     * Szyfruje ponownie bieżącym kluczem wartości zaszyfrowane jednym z poprzednich kluczy
+     * ({@code totp.encryption.previous-secrets}) oraz niezaszyfrowane wartości historyczne.
+     * Zwraca listę tej samej długości; wartości już zaszyfrowane bieżącym kluczem są zwracane bez zmian,
+     * więc wywołujący może zapisać tylko te pozycje, które się zmieniły.
+     */
+    public List<String> reEncryptAll(List<String> storedValues) {
+        List<String> result = new ArrayList<>(storedValues.size());
+        Cipher cipher = borrowCipher();
+        try {
+            for (String storedValue : storedValues) {
+                result.add(reEncrypt(cipher, storedValue));
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException exception) {
+            throw new IllegalStateException("Could not re-encrypt sensitive data", exception);
+        } finally {
+            cipherPool.offer(cipher);
+        }
+        return result;
+    }
+
+    private String reEncrypt(Cipher cipher, String storedValue) throws GeneralSecurityException {
+        if (storedValue == null) {
+            return null;
+        }
+        if (!storedValue.startsWith(PREFIX)) {
+            return encrypt(cipher, storedValue);
+        }
+        byte[] payload = decodePayload(storedValue);
+        try {
+            decrypt(cipher, keySpec, payload);
+            return storedValue;
+        } catch (AEADBadTagException notCurrentKey) {
+            return encrypt(cipher, decryptWithPreviousKeys(cipher, payload, notCurrentKey));
+        }
+    }
+
+    // Po rotacji klucza wartości sprzed reEncryptAll nadal dają się odczytać (np. przy logowaniu z 2FA)
+    private String decryptWithAnyKey(Cipher cipher, byte[] payload) throws GeneralSecurityException {
+        try {
+            return decrypt(cipher, keySpec, payload);
+        } catch (AEADBadTagException notCurrentKey) {
+            return decryptWithPreviousKeys(cipher, payload, notCurrentKey);
+        }
+    }
+
+    private String decryptWithPreviousKeys(Cipher cipher, byte[] payload, AEADBadTagException notCurrentKey)
+            throws GeneralSecurityException {
+        for (SecretKeySpec previousKey : previousKeySpecs) {
+            try {
+                return decrypt(cipher, previousKey, payload);
+            } catch (AEADBadTagException notThisKey) {
+                // kolejny klucz
+            }
+        }
+        throw notCurrentKey;
+    }
+
+    private String encrypt(Cipher cipher, String plainText) throws GeneralSecurityException {
+        byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+        // Wektor IV i szyfrogram są zapisywane bezpośrednio do jednego bufora wyjściowego
+        ByteBuffer payload = ByteBuffer.allocate(IV_LENGTH_BYTES + plainBytes.length + TAG_LENGTH_BITS / 8);
+        byte[] iv = new byte[IV_LENGTH_BYTES];
+        secureRandom.nextBytes(iv);
+        payload.put(iv);
+
+        cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        cipher.doFinal(ByteBuffer.wrap(plainBytes), payload);
+        return PREFIX + Base64.getEncoder().encodeToString(payload.array());
+    }
+
+    private String decrypt(Cipher cipher, SecretKeySpec key, byte[] payload) throws GeneralSecurityException {
+        // IV i szyfrogram są czytane z tej samej tablicy przez przesunięcie, bez kopiowania
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, payload, 0, IV_LENGTH_BYTES));
+        return new String(cipher.doFinal(payload, IV_LENGTH_BYTES, payload.length - IV_LENGTH_BYTES),
+                StandardCharsets.UTF_8);
+    }
+
+    private byte[] decodePayload(String storedValue) {
+        byte[] payload = Base64.getDecoder().decode(storedValue.substring(PREFIX.length()));
+        if (payload.length <= IV_LENGTH_BYTES) {
+            throw new IllegalArgumentException("Encrypted payload is too short");
+        }
+        return payload;
+    }
+
+    private Cipher borrowCipher() {
+        Cipher cipher = cipherPool.poll();
+        if (cipher != null) {
+            return cipher;
+        }
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException("Could not initialize cipher", exception);
         }
     }
 
@@ -0,0 +1,29 @@
+package pl.projekt.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Nieprzezroczysty kursor strony zadań: kierunek sortowania oraz ({@code updatedAt}, {@code id})
+ * ostatniego zwróconego wiersza, zakodowane w Base64 URL.
+ */
+record TaskPageCursor(boolean ascending, LocalDateTime updatedAt, Long id) {
+
+    String encode() {
+        String raw = (ascending ? "asc" : "desc") + "|" + updatedAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static TaskPageCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3 || !(parts[0].equals("asc") || parts[0].equals("desc"))) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new TaskPageCursor(parts[0].equals("asc"), LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException exception) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
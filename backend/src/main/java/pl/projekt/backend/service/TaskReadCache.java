@@ -0,0 +1,86 @@
+package pl.projekt.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pl.projekt.backend.dto.TaskAssigneeDetailsResponse;
+import pl.projekt.backend.dto.TaskCommentResponse;
+import pl.projekt.backend.dto.TaskCreatorDetailsResponse;
+import pl.projekt.backend.dto.TaskWithAssigneeResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Ograniczony cache odczytów pojedynczego zadania i jego komentarzy, kluczowany identyfikatorem zadania.
+ * Backend nie zapisuje zadań sam - zapisy wykonują węzły, które po zatwierdzeniu transakcji publikują
+ * zdarzenie na {@code tasks.changed}; {@link pl.projekt.backend.messaging.TaskChangeListener} usuwa wtedy wpisy.
+ * Zdarzenie utracone np. przy zerwaniu połączenia z brokerem ogranicza {@code tasks.cache.ttl-seconds}.
+ * Statystyki są dostępne w Actuatorze jako {@code cache.gets}, {@code cache.evictions} itd. z tagiem {@code cache}.
+ */
+@Component
+public class TaskReadCache {
+    private final Cache<Long, TaskWithAssigneeResponse> tasks;
+    private final Cache<Long, TaskAssigneeDetailsResponse> assigneeDetails;
+    private final Cache<Long, TaskCreatorDetailsResponse> creatorDetails;
+    private final Cache<Long, List<TaskCommentResponse>> comments;
+
+    public TaskReadCache(
+            @Value("${tasks.cache.max-size:10000}") long maxSize,
+            @Value("${tasks.cache.ttl-seconds:300}") long ttlSeconds,
+            MeterRegistry meterRegistry) {
+        this.tasks = build("tasks.byId", maxSize, ttlSeconds, meterRegistry);
+        this.assigneeDetails = build("tasks.assigneeDetails", maxSize, ttlSeconds, meterRegistry);
+        this.creatorDetails = build("tasks.creatorDetails", maxSize, ttlSeconds, meterRegistry);
+        this.comments = build("tasks.comments", maxSize, ttlSeconds, meterRegistry);
+    }
+
+    public TaskWithAssigneeResponse getTask(Long taskId, Function<Long, TaskWithAssigneeResponse> loader) {
+        return tasks.get(taskId, loader);
+    }
+
+    public TaskAssigneeDetailsResponse getAssigneeDetails(Long taskId, Function<Long, TaskAssigneeDetailsResponse> loader) {
+        return assigneeDetails.get(taskId, loader);
+    }
+
+    public TaskCreatorDetailsResponse getCreatorDetails(Long taskId, Function<Long, TaskCreatorDetailsResponse> loader) {
+        return creatorDetails.get(taskId, loader);
+    }
+
+    public List<TaskCommentResponse> getComments(Long taskId, Function<Long, List<TaskCommentResponse>> loader) {
+        return comments.get(taskId, loader);
+    }
+
+    /**
+     * Usuwa wszystkie wpisy zadania (dane zadania i komentarze).
+     */
+    public void evict(Long taskId) {
+        tasks.invalidate(taskId);
+        assigneeDetails.invalidate(taskId);
+        creatorDetails.invalidate(taskId);
+        comments.invalidate(taskId);
+    }
+
+    /**
+     * Usuwa wszystkie wpisy - np. po usunięciu projektu razem z zadaniami.
+     */
+    public void evictAll() {
+        tasks.invalidateAll();
+        assigneeDetails.invalidateAll();
+        creatorDetails.invalidateAll();
+        comments.invalidateAll();
+    }
+
+    private static <V> Cache<Long, V> build(String name, long maxSize, long ttlSeconds, MeterRegistry meterRegistry) {
+        Cache<Long, V> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+}
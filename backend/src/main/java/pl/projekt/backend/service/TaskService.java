@@ -1,7 +1,8 @@
 package pl.projekt.backend.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.core.ParameterizedTypeReference;
@@ -13,7 +14,11 @@ import pl.projekt.backend.messaging.CreateTaskCommand;
 import pl.projekt.backend.messaging.CreateTaskResult;
 import pl.projekt.backend.messaging.DeleteTaskCommand;
 import pl.projekt.backend.messaging.SetTaskStatusCommand;
+import pl.projekt.backend.messaging.TaskCommandClient;
+import pl.projekt.backend.messaging.TaskCommentSnapshot;
 import pl.projekt.backend.messaging.TaskOperationResult;
+import pl.projekt.backend.messaging.TaskPartitioner;
+import pl.projekt.backend.messaging.TaskSnapshot;
 import pl.projekt.backend.messaging.UpdateTaskCommand;
 import pl.projekt.backend.repository.*;
 import pl.projekt.backend.dto.CreateTaskRequest;
@@ -23,22 +28,40 @@ import pl.projekt.backend.dto.TaskAssigneeDetailsResponse;
 import pl.projekt.backend.dto.TaskCreatorDetailsResponse;
 import pl.projekt.backend.dto.AddTaskCommentRequest;
 import pl.projekt.backend.dto.TaskCommentResponse;
+import pl.projekt.backend.dto.TaskPageRequest;
+import pl.projekt.backend.dto.TaskPageResponse;
+import pl.projekt.backend.exception.TaskConflictException;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.Authentication;
 
 @Service
 @RequiredArgsConstructor
 public class TaskService {
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+
     private final TaskRepository taskRepository;
     private final ProjectRepository projectRepository;
     private final UserRepository userRepository;
     private final TaskCommentRepository taskCommentRepository;
-    private final RabbitTemplate rabbitTemplate;
+    private final TaskCommandClient taskCommandClient;
+    private final TaskPartitioner taskPartitioner;
+    private final TaskReadCache taskReadCache;
+
+    @Value("${tasks.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${tasks.page.max-size:200}")
+    private int maxPageSize;
 
-    public Task createTask(CreateTaskRequest request) {
+    /**
+     * Tworzy zadanie przez węzeł. Ponowienie z tym samym {@code idempotencyKey} (np. po przekroczeniu
+     * czasu odpowiedzi, gdy węzeł mógł już zapisać zadanie) zwraca pierwotnie utworzone zadanie.
+     */
+    public CompletableFuture<TaskWithAssigneeResponse> createTask(CreateTaskRequest request, String idempotencyKey) {
         String currentUserEmail = org.springframework.security.core.context.SecurityContextHolder.getContext()
                 .getAuthentication().getName();
 
@@ -50,32 +73,30 @@ public class TaskService {
                 request.getPriority(),
                 request.getDueDate(),
                 request.getAssignedToId(),
-                currentUserEmail
+                currentUserEmail,
+                validIdempotencyKey(idempotencyKey)
         );
 
-        CreateTaskResult result = rabbitTemplate.convertSendAndReceiveAsType(
-                TaskRabbitMqConfig.TASK_EXCHANGE,
-                TaskRabbitMqConfig.TASK_CREATE_ROUTING_KEY,
+        return taskCommandClient.send(
+                taskPartitioner.routingKey(TaskRabbitMqConfig.TASK_CREATE_ROUTING_KEY, request.getProjectId()),
                 command,
                 new ParameterizedTypeReference<CreateTaskResult>() {}
-        );
-
-        if (result == null) {
-            throw new RuntimeException("Task creation timed out");
-        }
-        if (!result.isSuccess()) {
-            throw new RuntimeException(result.getErrorMessage() != null
-                    ? result.getErrorMessage()
-                    : "Task creation failed");
-        }
-
-        return taskRepository.findById(result.getTaskId())
-                .orElseThrow(() -> new RuntimeException("Created task not found"));
+        ).thenApply(result -> {
+            if (result == null) {
+                throw new RuntimeException("Task creation timed out");
+            }
+            if (!result.isSuccess()) {
+                throw new RuntimeException(result.getErrorMessage() != null
+                        ? result.getErrorMessage()
+                        : "Task creation failed");
+            }
+            return toTaskResponse(result.getTask());
+        });
     }
 
-    public Task updateTask(Long id, UpdateTaskRequest request) {
-        TaskOperationResult result = sendTaskOperation(
-                TaskRabbitMqConfig.TASK_UPDATE_ROUTING_KEY,
+    public CompletableFuture<TaskWithAssigneeResponse> updateTask(Long id, UpdateTaskRequest request) {
+        return sendTaskOperation(
+                taskRoutingKey(TaskRabbitMqConfig.TASK_UPDATE_ROUTING_KEY, id),
                 new UpdateTaskCommand(
                         id,
                         request.getTitle(),
@@ -83,19 +104,17 @@ public class TaskService {
                         request.getStatus(),
                         request.getPriority(),
                         request.getDueDate(),
-                        request.getAssignedToId()
+                        request.getAssignedToId(),
+                        request.getVersion()
                 )
-        );
-
-        return taskRepository.findById(result.getTaskId())
-                .orElseThrow(() -> new RuntimeException("Updated task not found"));
+        ).thenApply(result -> toTaskResponse(result.getTask()));
     }
 
-    public void deleteTask(Long id) {
-        sendTaskOperation(
-                TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY,
+    public CompletableFuture<Void> deleteTask(Long id) {
+        return sendTaskOperation(
+                taskRoutingKey(TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY, id),
                 new DeleteTaskCommand(id)
-        );
+        ).thenAccept(result -> { });
     }
 
     // Zadania przypisane do użytkownika (wszystkie projekty)
@@ -124,25 +143,23 @@ public class TaskService {
     }
 
     public List<TaskWithAssigneeResponse> getAllTasksForProjectWithAssignee(UUID projectId) {
-        Project project = projectRepository.findById(projectId)
-            .orElseThrow(() -> new EntityNotFoundException("Project not found"));
-        return taskRepository.findByProject(project).stream()
-            .map(task -> new TaskWithAssigneeResponse(
-                task.getId(),
-                task.getTitle(),
-                task.getDescription(),
-                task.getStatus() != null ? task.getStatus().name() : null,
-                task.getPriority() != null ? task.getPriority().name() : null,
-                task.getCreatedAt(),
-                task.getUpdatedAt(),
-                task.getDueDate(),
-                task.getAssignedTo() != null ? task.getAssignedTo().getFirstName() : null,
-                task.getAssignedTo() != null ? task.getAssignedTo().getLastName() : null
-            ))
-            .toList();
+        requireProject(projectId);
+        return taskRepository.findWithAssigneeByProjectId(projectId);
     }
 
     public TaskWithAssigneeResponse getTaskWithAssigneeById(Long id) {
+        return taskReadCache.getTask(id, this::loadTaskWithAssignee);
+    }
+
+    public TaskAssigneeDetailsResponse getTaskAssigneeDetailsById(Long id) {
+        return taskReadCache.getAssigneeDetails(id, this::loadTaskAssigneeDetails);
+    }
+
+    public TaskCreatorDetailsResponse getTaskCreatorDetailsById(Long id) {
+        return taskReadCache.getCreatorDetails(id, this::loadTaskCreatorDetails);
+    }
+
+    private TaskWithAssigneeResponse loadTaskWithAssignee(Long id) {
         Task task = taskRepository.findById(id)
             .orElseThrow(() -> new EntityNotFoundException("Task not found"));
         return new TaskWithAssigneeResponse(
@@ -159,7 +176,7 @@ public class TaskService {
         );
     }
 
-    public TaskAssigneeDetailsResponse getTaskAssigneeDetailsById(Long id) {
+    private TaskAssigneeDetailsResponse loadTaskAssigneeDetails(Long id) {
         Task task = taskRepository.findById(id)
             .orElseThrow(() -> new EntityNotFoundException("Task not found"));
         return new TaskAssigneeDetailsResponse(
@@ -177,7 +194,7 @@ public class TaskService {
         );
     }
 
-    public TaskCreatorDetailsResponse getTaskCreatorDetailsById(Long id) {
+    private TaskCreatorDetailsResponse loadTaskCreatorDetails(Long id) {
         Task task = taskRepository.findById(id)
             .orElseThrow(() -> new EntityNotFoundException("Task not found"));
         return new TaskCreatorDetailsResponse(
@@ -191,58 +208,43 @@ public class TaskService {
             task.getDueDate(),
             task.getCreatedBy() != null ? task.getCreatedBy().getFirstName() : null,
             task.getCreatedBy() != null ? task.getCreatedBy().getLastName() : null,
-            task.getCreatedBy() != null ? task.getCreatedBy().getEmail() : null
+            task.getCreatedBy() != null ? task.getCreatedBy().getEmail() : null,
+            task.getVersion()
         );
     }
 
-    public TaskWithAssigneeResponse setTaskStatusToReview(Long id) {
-        TaskOperationResult result = sendTaskOperation(
-                TaskRabbitMqConfig.TASK_REVIEW_ROUTING_KEY,
+    public CompletableFuture<TaskWithAssigneeResponse> setTaskStatusToReview(Long id) {
+        return sendTaskOperation(
+                taskRoutingKey(TaskRabbitMqConfig.TASK_REVIEW_ROUTING_KEY, id),
                 new SetTaskStatusCommand(id, TaskStatus.TO_REVIEW)
-        );
-        Task task = taskRepository.findById(result.getTaskId())
-            .orElseThrow(() -> new EntityNotFoundException("Task not found"));
-        User assigned = task.getAssignedTo();
-        return new TaskWithAssigneeResponse(
-            task.getId(),
-            task.getTitle(),
-            task.getDescription(),
-            task.getStatus().name(),
-            task.getPriority() != null ? task.getPriority().name() : null,
-            task.getCreatedAt(),
-            task.getUpdatedAt(),
-            task.getDueDate(),
-            assigned != null ? assigned.getFirstName() : null,
-            assigned != null ? assigned.getLastName() : null
-        );
+        ).thenApply(result -> toTaskResponse(result.getTask()));
     }
 
     /**
      * Dodaje komentarz do zadania.
      * @param taskId id zadania
      * @param request treść komentarza
-     * @return dodany komentarz
+     * @param idempotencyKey klucz ponowień z nagłówka {@code Idempotency-Key} (opcjonalny)
+     * @return dodany komentarz (po odpowiedzi węzła)
      */
-    public TaskComment addCommentToTask(Long taskId, AddTaskCommentRequest request) {
+    public CompletableFuture<TaskCommentResponse> addCommentToTask(Long taskId, AddTaskCommentRequest request, String idempotencyKey) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String email = authentication.getName();
 
-        TaskOperationResult result = sendTaskOperation(
-                TaskRabbitMqConfig.TASK_COMMENT_ROUTING_KEY,
-                new AddTaskCommentCommand(taskId, request.getComment(), email)
-        );
-
-        if (result.getCommentId() == null) {
-            throw new RuntimeException("Created comment id missing");
-        }
-        return taskCommentRepository.findById(result.getCommentId())
-                .orElseThrow(() -> new RuntimeException("Created comment not found"));
+        return sendTaskOperation(
+                taskRoutingKey(TaskRabbitMqConfig.TASK_COMMENT_ROUTING_KEY, taskId),
+                new AddTaskCommentCommand(taskId, request.getComment(), email, validIdempotencyKey(idempotencyKey))
+        ).thenApply(result -> toCommentResponse(result.getComment()));
     }
 
     /**
      * Pobiera komentarze do zadania.
      */
     public List<TaskCommentResponse> getCommentsForTask(Long taskId) {
+        return taskReadCache.getComments(taskId, this::loadCommentsForTask);
+    }
+
+    private List<TaskCommentResponse> loadCommentsForTask(Long taskId) {
         Task task = taskRepository.findById(taskId)
                 .orElseThrow(() -> new RuntimeException("Task not found"));
         List<TaskComment> comments = taskCommentRepository.findByTask(task);
@@ -262,38 +264,146 @@ public class TaskService {
     public List<TaskWithAssigneeResponse> getTasksForUserWithAssignee(String username) {
         User user = userRepository.findByEmail(username)
             .orElseThrow(() -> new UsernameNotFoundException("User not found"));
-        return taskRepository.findByAssignedTo(user).stream()
-            .map(task -> new TaskWithAssigneeResponse(
-                task.getId(),
-                task.getTitle(),
-                task.getDescription(),
-                task.getStatus() != null ? task.getStatus().name() : null,
-                task.getPriority() != null ? task.getPriority().name() : null,
-                task.getCreatedAt(),
-                task.getUpdatedAt(),
-                task.getDueDate(),
-                task.getAssignedTo() != null ? task.getAssignedTo().getFirstName() : null,
-                task.getAssignedTo() != null ? task.getAssignedTo().getLastName() : null
-            ))
-            .toList();
+        return taskRepository.findWithAssigneeByAssigneeId(user.getId());
+    }
+
+    // Strona zadań przypisanych do użytkownika (wszystkie projekty)
+    public TaskPageResponse getTaskPageForUser(String username, TaskPageRequest request) {
+        User user = userRepository.findByEmail(username)
+            .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        return findTaskPage(null, user.getId(), request);
+    }
+
+    // Strona wszystkich zadań projektu (dla MANAGERA)
+    public TaskPageResponse getAllTaskPageForProject(UUID projectId, TaskPageRequest request) {
+        requireProject(projectId);
+        return findTaskPage(projectId, null, request);
+    }
+
+    // Strona zadań projektu przypisanych do zalogowanego użytkownika
+    public TaskPageResponse getMyTaskPageForProject(UUID projectId, String username, TaskPageRequest request) {
+        requireProject(projectId);
+        User user = userRepository.findByEmail(username)
+            .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        return findTaskPage(projectId, user.getId(), request);
+    }
+
+    private void requireProject(UUID projectId) {
+        if (!projectRepository.existsById(projectId)) {
+            throw new EntityNotFoundException("Project not found");
+        }
+    }
+
+    private TaskPageResponse findTaskPage(UUID projectId, Long assigneeId, TaskPageRequest request) {
+        int size = Math.min(request.getSize() != null ? request.getSize() : defaultPageSize, maxPageSize);
+        boolean ascending = request.getDirection() != null
+                && Sort.Direction.fromString(request.getDirection()).isAscending();
+        TaskPageCursor cursor = request.getCursor() != null && !request.getCursor().isBlank()
+                ? TaskPageCursor.decode(request.getCursor())
+                : null;
+        if (cursor != null && cursor.ascending() != ascending) {
+            throw new IllegalArgumentException("Invalid cursor for the requested direction");
+        }
+
+        // Jeden wiersz więcej niż rozmiar strony mówi, czy istnieje kolejna strona
+        List<TaskWithAssigneeResponse> rows = taskRepository.findTaskPage(new TaskPageQuery(
+                projectId,
+                assigneeId,
+                request.getStatus(),
+                request.getPriority(),
+                request.getDueFrom(),
+                request.getDueTo(),
+                cursor != null ? cursor.updatedAt() : null,
+                cursor != null ? cursor.id() : null,
+                ascending,
+                size + 1
+        ));
+        if (rows.size() <= size) {
+            return new TaskPageResponse(rows, null);
+        }
+        List<TaskWithAssigneeResponse> page = rows.subList(0, size);
+        TaskWithAssigneeResponse last = page.get(size - 1);
+        return new TaskPageResponse(page, new TaskPageCursor(ascending, last.getUpdatedAt(), last.getId()).encode());
+    }
+
+    // Limit odpowiada kolumnie idempotency_key w task_command_dedup; pusty nagłówek = brak klucza
+    private static String validIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be at most " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        return idempotencyKey;
     }
 
-    private TaskOperationResult sendTaskOperation(String routingKey, Object command) {
-        TaskOperationResult result = rabbitTemplate.convertSendAndReceiveAsType(
-                TaskRabbitMqConfig.TASK_EXCHANGE,
+    // Przy partycjonowaniu polecenie musi trafić do partycji projektu zadania.
+    // Nieistniejące zadanie trafia do partycji 0 - węzeł odpowiada "Task not found" jak bez partycji.
+    private String taskRoutingKey(String baseRoutingKey, Long taskId) {
+        if (!taskPartitioner.isPartitioned()) {
+            return baseRoutingKey;
+        }
+        UUID projectId = taskRepository.findProjectIdById(taskId).orElse(null);
+        return taskPartitioner.routingKey(baseRoutingKey, projectId);
+    }
+
+    private CompletableFuture<TaskOperationResult> sendTaskOperation(String routingKey, Object command) {
+        return taskCommandClient.send(
                 routingKey,
                 command,
                 new ParameterizedTypeReference<TaskOperationResult>() {}
-        );
+        ).thenApply(result -> {
+            if (result == null) {
+                throw new RuntimeException("Task operation timed out");
+            }
+            if (result.isConflict()) {
+                throw new TaskConflictException(result.getErrorMessage());
+            }
+            if (!result.isSuccess()) {
+                throw new RuntimeException(result.getErrorMessage() != null
+                        ? result.getErrorMessage()
+                        : "Task operation failed");
+            }
+            // Zapis z tej instancji jest widoczny od razu, bez czekania na zdarzenie tasks.changed
+            if (result.getTaskId() != null) {
+                taskReadCache.evict(result.getTaskId());
+            }
+            return result;
+        });
+    }
 
-        if (result == null) {
-            throw new RuntimeException("Task operation timed out");
+    // Odpowiedź budowana z migawki zwróconej przez węzeł - bez ponownego odczytu z bazy
+    private TaskWithAssigneeResponse toTaskResponse(TaskSnapshot snapshot) {
+        if (snapshot == null) {
+            throw new RuntimeException("Node reply does not contain task state");
         }
-        if (!result.isSuccess()) {
-            throw new RuntimeException(result.getErrorMessage() != null
-                    ? result.getErrorMessage()
-                    : "Task operation failed");
+        TaskWithAssigneeResponse response = new TaskWithAssigneeResponse(
+            snapshot.getId(),
+            snapshot.getTitle(),
+            snapshot.getDescription(),
+            snapshot.getStatus(),
+            snapshot.getPriority(),
+            snapshot.getCreatedAt(),
+            snapshot.getUpdatedAt(),
+            snapshot.getDueDate(),
+            snapshot.getAssignedFirstName(),
+            snapshot.getAssignedLastName()
+        );
+        response.setVersion(snapshot.getVersion());
+        return response;
+    }
+
+    private TaskCommentResponse toCommentResponse(TaskCommentSnapshot snapshot) {
+        if (snapshot == null) {
+            throw new RuntimeException("Node reply does not contain comment state");
         }
-        return result;
+        TaskCommentResponse dto = new TaskCommentResponse();
+        dto.setId(snapshot.getId());
+        dto.setComment(snapshot.getComment());
+        dto.setCreatedAt(snapshot.getCreatedAt());
+        dto.setAuthorFirstName(snapshot.getAuthorFirstName());
+        dto.setAuthorLastName(snapshot.getAuthorLastName());
+        dto.setAuthorEmail(snapshot.getAuthorEmail());
+        return dto;
     }
 }
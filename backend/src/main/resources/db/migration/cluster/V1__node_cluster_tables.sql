@@ -0,0 +1,30 @@
+-- Tabele klastra wspoldzielone przez backend i wezly.
+-- Plik musi byc identyczny w module backend i node (ta sama suma kontrolna w cluster_schema_history).
+-- IF NOT EXISTS pozwala przejac bazy, w ktorych tabele utworzyl wczesniej kod aplikacji.
+
+CREATE TABLE IF NOT EXISTS node_leader_candidates (
+    node_id VARCHAR(128) PRIMARY KEY,
+    node_weight INTEGER NOT NULL,
+    last_seen TIMESTAMP NOT NULL,
+    forced_down BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+ALTER TABLE node_leader_candidates
+    ADD COLUMN IF NOT EXISTS forced_down BOOLEAN NOT NULL DEFAULT FALSE;
+
+ALTER TABLE node_leader_candidates
+    ADD COLUMN IF NOT EXISTS network_delay_ms INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE node_leader_candidates
+    ADD COLUMN IF NOT EXISTS message_corruption BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE IF NOT EXISTS distributed_node_events (
+    id BIGSERIAL PRIMARY KEY,
+    event_time TIMESTAMP NOT NULL,
+    node_id VARCHAR(128) NOT NULL,
+    event_type VARCHAR(64) NOT NULL,
+    details TEXT
+);
+
+CREATE INDEX IF NOT EXISTS idx_distributed_node_events_time
+    ON distributed_node_events (event_time DESC, id DESC);
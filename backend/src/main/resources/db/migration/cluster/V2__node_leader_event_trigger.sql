@@ -0,0 +1,22 @@
+-- Powiadomienia NOTIFY o zmianie flagi awarii i wstrzykiwanych awarii wezla
+-- (kanal node_leader_events, uzywany przez tryb wyboru lidera advisory-lock).
+-- Plik musi byc identyczny w module backend i node.
+
+CREATE OR REPLACE FUNCTION notify_node_leader_event() RETURNS trigger AS $$
+BEGIN
+    IF OLD.forced_down IS DISTINCT FROM NEW.forced_down THEN
+        PERFORM pg_notify('node_leader_events', 'forced:' || NEW.node_id || ':' || NEW.forced_down);
+    END IF;
+    IF OLD.network_delay_ms IS DISTINCT FROM NEW.network_delay_ms
+            OR OLD.message_corruption IS DISTINCT FROM NEW.message_corruption THEN
+        PERFORM pg_notify('node_leader_events', 'faults:' || NEW.node_id || ':' || NEW.network_delay_ms
+                || ':' || NEW.message_corruption);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER node_leader_candidates_events
+    AFTER UPDATE OF forced_down, network_delay_ms, message_corruption ON node_leader_candidates
+    FOR EACH ROW
+    EXECUTE FUNCTION notify_node_leader_event();
@@ -0,0 +1,10 @@
+-- Outbox zmian zadan: wezel zapisuje wiersz w tej samej transakcji co zmiane zadania,
+-- a przekaznik (TaskOutboxRelay) publikuje wiersze na exchange tasks.changed i usuwa potwierdzone.
+-- Plik musi byc identyczny w module backend i node.
+
+CREATE TABLE IF NOT EXISTS task_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    task_id BIGINT NOT NULL,
+    change_type VARCHAR(50) NOT NULL
+);
@@ -12,6 +12,8 @@ import pl.projekt.backend.dto.RegisterRequest;
 import pl.projekt.backend.dto.TotpRequest;
 import pl.projekt.backend.service.AuthService;
 
+import java.util.concurrent.CompletableFuture;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -78,9 +80,9 @@ class AuthControllerTest {
     @Test
     @DisplayName("Logowanie użytkownika")
     void login_ShouldReturnToken() {
-        when(authService.login(loginRequest)).thenReturn(authResponse);
+        when(authService.login(loginRequest)).thenReturn(CompletableFuture.completedFuture(authResponse));
 
-        ResponseEntity<AuthResponse> response = authController.login(loginRequest);
+        ResponseEntity<AuthResponse> response = authController.login(loginRequest).join();
 
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
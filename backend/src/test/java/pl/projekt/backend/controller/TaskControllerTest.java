@@ -6,6 +6,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import pl.projekt.backend.dto.*;
 import pl.projekt.backend.model.Task;
 import pl.projekt.backend.model.TaskPriority;
@@ -14,6 +16,7 @@ import pl.projekt.backend.service.TaskService;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -59,7 +62,7 @@ class TaskControllerTest {
         taskCreatorDetails = new TaskCreatorDetailsResponse(
                 1L, "Testowe zadanie", "Opis zadania", "TODO", "HIGH",
                 LocalDateTime.now(), LocalDateTime.now(), LocalDateTime.now().plusDays(1),
-                "Jan", "Kowalski", "jan.kowalski@example.com"
+                "Jan", "Kowalski", "jan.kowalski@example.com", 0L
         );
 
         taskList = List.of(task);
@@ -73,14 +76,14 @@ class TaskControllerTest {
     @DisplayName("Tworzenie nowego zadania")
     void createTask_ShouldReturnCreatedTask() {
         CreateTaskRequest request = new CreateTaskRequest();
-        when(taskService.createTask(request)).thenReturn(task);
+        when(taskService.createTask(request, "create-key-1")).thenReturn(CompletableFuture.completedFuture(taskWithAssignee));
 
-        ResponseEntity<Task> response = taskController.createTask(request);
+        ResponseEntity<TaskWithAssigneeResponse> response = taskController.createTask(request, "create-key-1").join();
 
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
-        assertEquals(task, response.getBody());
-        verify(taskService).createTask(request);
+        assertEquals(taskWithAssignee, response.getBody());
+        verify(taskService).createTask(request, "create-key-1");
     }
 
     /**
@@ -90,13 +93,13 @@ class TaskControllerTest {
     @DisplayName("Aktualizacja zadania")
     void updateTask_ShouldReturnUpdatedTask() {
         UpdateTaskRequest request = new UpdateTaskRequest();
-        when(taskService.updateTask(1L, request)).thenReturn(task);
+        when(taskService.updateTask(1L, request)).thenReturn(CompletableFuture.completedFuture(taskWithAssignee));
 
-        ResponseEntity<Task> response = taskController.updateTask(1L, request);
+        ResponseEntity<TaskWithAssigneeResponse> response = taskController.updateTask(1L, request).join();
 
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
-        assertEquals(task, response.getBody());
+        assertEquals(taskWithAssignee, response.getBody());
         verify(taskService).updateTask(1L, request);
     }
 
@@ -106,7 +109,9 @@ class TaskControllerTest {
     @Test
     @DisplayName("Usuwanie zadania")
     void deleteTask_ShouldReturnNoContent() {
-        ResponseEntity<Void> response = taskController.deleteTask(1L);
+        when(taskService.deleteTask(1L)).thenReturn(CompletableFuture.completedFuture(null));
+
+        ResponseEntity<Void> response = taskController.deleteTask(1L).join();
 
         assertNotNull(response);
         assertEquals(204, response.getStatusCodeValue());
@@ -204,13 +209,36 @@ class TaskControllerTest {
     @Test
     @DisplayName("Zmiana statusu zadania na TO_REVIEW")
     void setTaskToReview_ShouldReturnTaskWithStatusToReview() {
-        when(taskService.setTaskStatusToReview(1L)).thenReturn(taskWithAssignee);
+        when(taskService.setTaskStatusToReview(1L)).thenReturn(CompletableFuture.completedFuture(taskWithAssignee));
 
-        ResponseEntity<TaskWithAssigneeResponse> response = taskController.setTaskToReview(1L);
+        ResponseEntity<TaskWithAssigneeResponse> response = taskController.setTaskToReview(1L).join();
 
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
         assertEquals(taskWithAssignee, response.getBody());
         verify(taskService).setTaskStatusToReview(1L);
     }
-}
\ No newline at end of file
+
+    /**
+     * Powinien zwrócić stronę zadań zalogowanego użytkownika.
+     */
+    @Test
+    @DisplayName("Pobieranie strony zadań zalogowanego użytkownika")
+    void getMyTaskPage_ShouldReturnPage() {
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getName()).thenReturn("jan.kowalski@example.com");
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        TaskPageRequest request = new TaskPageRequest();
+        TaskPageResponse page = new TaskPageResponse(taskWithAssigneeList, "cursor");
+        when(taskService.getTaskPageForUser("jan.kowalski@example.com", request)).thenReturn(page);
+
+        try {
+            ResponseEntity<TaskPageResponse> response = taskController.getMyTaskPage(request);
+
+            assertEquals(200, response.getStatusCode().value());
+            assertEquals(page, response.getBody());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -61,6 +62,27 @@ class GlobalExceptionHandlerTest {
         assertEquals("must not be blank", response.getBody().getValidationErrors().get("title"));
     }
 
+    @Test
+    @DisplayName("Konflikt wersji zadania mapowany na 409")
+    void handleConflict_ShouldReturnConflict() {
+        ResponseEntity<ErrorResponse> response = handler.handleConflict(
+                new TaskConflictException("Task was modified by another request"), request);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals("Task was modified by another request", response.getBody().getMessage());
+    }
+
+    @Test
+    @DisplayName("Odrzucenie polecenia bez dostępnego węzła mapowane na 503 z Retry-After")
+    void handleServiceUnavailable_ShouldReturnServiceUnavailableWithRetryAfter() {
+        ResponseEntity<ErrorResponse> response = handler.handleServiceUnavailable(
+                new ServiceUnavailableException("No write node is available", 5), request);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("5", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("No write node is available", response.getBody().getMessage());
+    }
+
     @Test
     @DisplayName("Niepoprawny JSON / nieznana wartość enum mapowane na 400")
     void handleMalformedRequest_ShouldReturnBadRequest() {
@@ -0,0 +1,207 @@
+package pl.projekt.backend.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Test obciazeniowy trybu watkow wirtualnych, uruchamiany na zywym stosie docker-compose z
+ * {@code SPRING_THREADS_VIRTUAL_ENABLED=true} (backend pod adresem {@code integration.baseUrl}).
+ * <p>
+ * Lider dostaje opoznienie sieciowe, a backend {@code load.writes} rownoleglych aktualizacji zadania
+ * (domyslnie 400 - wiecej niz 200 watkow Tomcata), ktore czekaja na odpowiedz az do timeoutu RPC.
+ * W tym samym czasie odczyty ({@code load.reads}) musza konczyc sie poprawnie i szybko, a kazdy zapis
+ * musi dostac odpowiedz 200 albo 503 (timeout RPC) - bez odrzuconych polaczen i bledow 500.
+ * Uruchom: {@code mvn test -Pintegration-tests -Dtest=VirtualThreadLoadIT}
+ */
+@Slf4j
+@Tag("integration")
+class VirtualThreadLoadIT {
+
+    private static final String BASE_URL = System.getProperty("integration.baseUrl", "http://localhost:8080");
+    private static final int WRITES = Integer.getInteger("load.writes", 400);
+    private static final int READS = Integer.getInteger("load.reads", 200);
+    private static final int LEADER_DELAY_MS = Integer.getInteger("load.leaderDelayMs", 3000);
+    private static final long MAX_READ_P95_MS = Long.getLong("load.maxReadP95Ms", 2000);
+    private static final ExecutorService CLIENT_THREADS = Executors.newVirtualThreadPerTaskExecutor();
+    private static final HttpClient HTTP = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(CLIENT_THREADS)
+            .build();
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static String adminToken;
+    private static String managerToken;
+    private static String leaderNodeId;
+    private static long taskId;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        adminToken = login("admin@example.com", "admin123");
+        managerToken = login("manager@example.com", "manager123");
+        leaderNodeId = currentLeaderNodeId();
+
+        JsonNode projects = getJson("/api/projects", managerToken);
+        assertTrue(projects.size() > 0, "Manager needs at least one project");
+        String body = """
+                {
+                  "projectId": "%s",
+                  "title": "Load test task",
+                  "description": "Created by VirtualThreadLoadIT",
+                  "status": "TODO",
+                  "priority": "LOW",
+                  "assignedToId": %d
+                }
+                """.formatted(projects.get(0).get("id").asText(), findUserIdByEmail("manager@example.com"));
+        HttpResponse<String> created = send(request("/api/tasks", managerToken)
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build());
+        assertEquals(200, created.statusCode(), created.body());
+        taskId = JSON.readTree(created.body()).get("id").asLong();
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        setNetworkDelay(leaderNodeId, 0);
+        if (taskId != 0) {
+            send(request("/api/tasks/" + taskId, managerToken).DELETE().build());
+        }
+        CLIENT_THREADS.close();
+    }
+
+    @Test
+    void readsStayFastWhileWritesWaitForReplyTimeout() throws Exception {
+        setNetworkDelay(leaderNodeId, LEADER_DELAY_MS);
+
+        List<CompletableFuture<HttpResponse<String>>> writes = new ArrayList<>(WRITES);
+        for (int i = 0; i < WRITES; i++) {
+            String body = """
+                    {
+                      "title": "Load test task %d",
+                      "description": "Updated by VirtualThreadLoadIT",
+                      "status": "TODO",
+                      "priority": "LOW"
+                    }
+                    """.formatted(i);
+            writes.add(HTTP.sendAsync(request("/api/tasks/" + taskId, managerToken)
+                    .timeout(Duration.ofSeconds(60))
+                    .PUT(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString()));
+        }
+
+        // Odczyty w trakcie, gdy zapisy czekaja na odpowiedz lidera
+        Thread.sleep(500);
+        List<Long> readLatencies = Collections.synchronizedList(new ArrayList<>(READS));
+        List<CompletableFuture<Void>> reads = new ArrayList<>(READS);
+        for (int i = 0; i < READS; i++) {
+            long start = System.nanoTime();
+            reads.add(HTTP.sendAsync(request("/api/tasks/my", managerToken).GET().build(),
+                            HttpResponse.BodyHandlers.ofString())
+                    .thenAccept(response -> {
+                        assertEquals(200, response.statusCode(), response.body());
+                        readLatencies.add((System.nanoTime() - start) / 1_000_000);
+                    }));
+        }
+        CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).join();
+
+        int ok = 0;
+        int timedOut = 0;
+        for (CompletableFuture<HttpResponse<String>> write : writes) {
+            HttpResponse<String> response = write.join();
+            switch (response.statusCode()) {
+                case 200 -> ok++;
+                case 503 -> timedOut++;
+                default -> fail("Unexpected write status " + response.statusCode() + ": " + response.body());
+            }
+        }
+
+        List<Long> sorted = new ArrayList<>(readLatencies);
+        Collections.sort(sorted);
+        long p95 = sorted.get((int) Math.ceil(sorted.size() * 0.95) - 1);
+        log.info("Writes: {} ok, {} reply timeouts; reads: {}, p95 {} ms, max {} ms",
+                ok, timedOut, sorted.size(), p95, sorted.get(sorted.size() - 1));
+
+        assertEquals(WRITES, ok + timedOut);
+        assertEquals(READS, sorted.size());
+        assertTrue(p95 <= MAX_READ_P95_MS, "Read p95 " + p95 + " ms exceeds " + MAX_READ_P95_MS + " ms");
+    }
+
+    private static String currentLeaderNodeId() throws Exception {
+        for (JsonNode node : getJson("/api/admin/nodes", adminToken)) {
+            if (node.get("leader").asBoolean()) {
+                return node.get("nodeId").asText();
+            }
+        }
+        fail("No leader elected");
+        return null;
+    }
+
+    private static long findUserIdByEmail(String email) throws Exception {
+        for (JsonNode user : getJson("/api/admin/users", adminToken)) {
+            if (email.equals(user.get("email").asText())) {
+                return user.get("id").asLong();
+            }
+        }
+        fail("User not found: " + email);
+        return -1;
+    }
+
+    private static void setNetworkDelay(String nodeId, int delayMs) throws Exception {
+        HttpResponse<String> response = send(request("/api/admin/nodes/" + nodeId + "/network-delay", adminToken)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"delayMs\":" + delayMs + "}")).build());
+        assertEquals(204, response.statusCode(), response.body());
+    }
+
+    private static String login(String email, String password) throws Exception {
+        String body = """
+                {
+                  "email": "%s",
+                  "password": "%s"
+                }
+                """.formatted(email, password);
+        HttpResponse<String> response = send(request("/api/auth/login", null)
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build());
+        assertEquals(200, response.statusCode(), response.body());
+        return JSON.readTree(response.body()).get("token").asText();
+    }
+
+    private static JsonNode getJson(String path, String token) throws Exception {
+        HttpResponse<String> response = send(request(path, token).GET().build());
+        assertEquals(200, response.statusCode(), response.body());
+        return JSON.readTree(response.body());
+    }
+
+    private static HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + path))
+                .timeout(Duration.ofSeconds(20))
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private static HttpResponse<String> send(HttpRequest request) throws Exception {
+        return HTTP.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
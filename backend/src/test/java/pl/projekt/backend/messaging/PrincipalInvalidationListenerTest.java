@@ -0,0 +1,131 @@
+package pl.projekt.backend.messaging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+import pl.projekt.backend.config.PrincipalRabbitMqConfig;
+import pl.projekt.backend.model.Role;
+import pl.projekt.backend.model.User;
+import pl.projekt.backend.security.JwtAuthenticationFilter;
+import pl.projekt.backend.security.JwtService;
+import pl.projekt.backend.security.PrincipalCache;
+import pl.projekt.backend.security.VerifiedJwt;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testy rozgłaszania unieważnień {@link PrincipalCache} między instancjami backendu.
+ * Fanout {@code principals.invalidated} jest symulowany doręczeniem zdarzenia do słuchaczy obu instancji.
+ */
+@DisplayName("Testy PrincipalInvalidationListener")
+class PrincipalInvalidationListenerTest {
+
+    private final JwtService jwtService = mock(JwtService.class);
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+
+    private final PrincipalCache firstCache = new PrincipalCache(100, 60, 60_000);
+    private final PrincipalCache secondCache = new PrincipalCache(100, 60, 60_000);
+    private final JwtAuthenticationFilter firstFilter = new JwtAuthenticationFilter(jwtService, userDetailsService, firstCache);
+    private final JwtAuthenticationFilter secondFilter = new JwtAuthenticationFilter(jwtService, userDetailsService, secondCache);
+    private final PrincipalInvalidationPublisher publisher = new PrincipalInvalidationPublisher(rabbitTemplate);
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.clearContext();
+        user = new User();
+        user.setEmail("jan.kowalski@example.com");
+        user.setRole(Role.USER);
+        Date issuedAt = new Date(System.currentTimeMillis() - 5_000);
+        when(jwtService.verify("token")).thenReturn(
+                new VerifiedJwt(user.getEmail(), "jti-1", "ROLE_USER", issuedAt, new Date(issuedAt.getTime() + 60_000)));
+        when(userDetailsService.loadUserByUsername(user.getEmail())).thenAnswer(invocation -> user);
+
+        List<PrincipalInvalidationListener> listeners = List.of(
+                new PrincipalInvalidationListener(firstCache), new PrincipalInvalidationListener(secondCache));
+        doAnswer(invocation -> {
+            PrincipalInvalidatedEvent event = invocation.getArgument(2);
+            listeners.forEach(listener -> listener.onPrincipalInvalidated(event));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(eq(PrincipalRabbitMqConfig.PRINCIPAL_INVALIDATED_EXCHANGE), eq(""), any(Object.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Zmiana roli na jednej instancji sprawia, że druga przestaje ufać claimowi roli z wcześniejszego tokenu.
+     */
+    @Test
+    @DisplayName("Tryb bezstanowy - unieważnienie z innej instancji odrzuca rolę z tokenu")
+    void onPrincipalInvalidated_ShouldStopTrustingRoleClaimOnOtherInstance() throws Exception {
+        ReflectionTestUtils.setField(firstFilter, "statelessAuthentication", true);
+        ReflectionTestUtils.setField(secondFilter, "statelessAuthentication", true);
+        assertEquals("ROLE_USER", authenticate(secondFilter));
+
+        user.setRole(Role.MANAGER);
+        publisher.publishInvalidated(user.getEmail(), firstCache.invalidate(user.getEmail()));
+
+        assertEquals("ROLE_MANAGER", authenticate(secondFilter));
+        assertEquals("ROLE_MANAGER", authenticate(firstFilter));
+    }
+
+    /**
+     * Unieważnienie z innej instancji usuwa lokalne wpisy użytkownika, więc kolejne żądanie czyta go ponownie.
+     */
+    @Test
+    @DisplayName("Tryb domyślny - unieważnienie z innej instancji usuwa wpisy użytkownika")
+    void onPrincipalInvalidated_ShouldEvictEntriesOnOtherInstance() throws Exception {
+        assertEquals("ROLE_USER", authenticate(secondFilter));
+        assertEquals("ROLE_USER", authenticate(secondFilter));
+        verify(userDetailsService, times(1)).loadUserByUsername(user.getEmail());
+
+        user.setRole(Role.MANAGER);
+        publisher.publishInvalidated(user.getEmail(), firstCache.invalidate(user.getEmail()));
+
+        assertEquals("ROLE_MANAGER", authenticate(secondFilter));
+        verify(userDetailsService, times(2)).loadUserByUsername(user.getEmail());
+    }
+
+    /**
+     * Spóźnione zdarzenie ze starszą chwilą nie cofa późniejszego unieważnienia.
+     */
+    @Test
+    @DisplayName("Starsze unieważnienie nie nadpisuje nowszego")
+    void onPrincipalInvalidated_ShouldKeepLatestInvalidation() {
+        Instant latest = Instant.now();
+        PrincipalInvalidationListener listener = new PrincipalInvalidationListener(secondCache);
+
+        listener.onPrincipalInvalidated(new PrincipalInvalidatedEvent(user.getEmail(), latest));
+        listener.onPrincipalInvalidated(new PrincipalInvalidatedEvent(user.getEmail(), latest.minusSeconds(30)));
+
+        assertTrue(secondCache.isIssuedBeforeInvalidation(user.getEmail(), Date.from(latest.minusSeconds(10))));
+    }
+
+    private String authenticate(JwtAuthenticationFilter filter) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/my");
+        request.addHeader("Authorization", "Bearer token");
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication().getAuthorities().iterator().next().getAuthority();
+    }
+}
@@ -0,0 +1,53 @@
+package pl.projekt.backend.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe adaptacyjnego limitu czasu odpowiedzi.
+ */
+@DisplayName("Testy ReplyTimeoutEstimator")
+class ReplyTimeoutEstimatorTest {
+
+    private final ReplyTimeoutEstimator estimator =
+            new ReplyTimeoutEstimator(new SimpleMeterRegistry(), 100, 10_000, 0.9, 2.0, 10, 5);
+
+    /**
+     * Bez wystarczającej liczby próbek obowiązuje górna granica, potem percentyl razy mnożnik - osobno dla klucza.
+     */
+    @Test
+    @DisplayName("Limit z percentyla czasów odpowiedzi dla klucza routingu")
+    void timeoutMs_ShouldFollowPercentilePerRoutingKey() {
+        for (long latency = 100; latency <= 400; latency += 100) {
+            estimator.recordLatency("tasks.update", latency);
+        }
+        assertEquals(10_000, estimator.timeoutMs("tasks.update"));
+
+        for (long latency = 500; latency <= 1000; latency += 100) {
+            estimator.recordLatency("tasks.update", latency);
+        }
+
+        assertEquals(1800, estimator.timeoutMs("tasks.update"));
+        assertEquals(10_000, estimator.timeoutMs("tasks.delete"));
+    }
+
+    /**
+     * Limit nie spada poniżej minimum, a przekroczenia czasu podnoszą go, gdy węzeł zwalnia.
+     */
+    @Test
+    @DisplayName("Dolna granica i wzrost limitu po przekroczeniach czasu")
+    void timeoutMs_ShouldRespectMinimum_AndGrowAfterTimeouts() {
+        for (int i = 0; i < 10; i++) {
+            estimator.recordLatency("tasks.review", 5);
+        }
+        assertEquals(100, estimator.timeoutMs("tasks.review"));
+
+        estimator.recordTimeout("tasks.review", 100);
+        estimator.recordTimeout("tasks.review", 100);
+
+        assertEquals(200, estimator.timeoutMs("tasks.review"));
+    }
+}
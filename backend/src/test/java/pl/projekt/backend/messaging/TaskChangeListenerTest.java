@@ -0,0 +1,61 @@
+package pl.projekt.backend.messaging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.projekt.backend.service.TaskReadCache;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Testy jednostkowe unieważniania cache zadań po zdarzeniach {@code tasks.changed}.
+ */
+@DisplayName("Testy TaskChangeListener")
+@ExtendWith(MockitoExtension.class)
+class TaskChangeListenerTest {
+
+    @Mock
+    private TaskReadCache taskReadCache;
+
+    @InjectMocks
+    private TaskChangeListener taskChangeListener;
+
+    /**
+     * Zmiana zadania usuwa z cache tylko wpisy tego zadania.
+     */
+    @Test
+    @DisplayName("Zdarzenie zmiany zadania usuwa jego wpisy")
+    void onTaskChanged_ShouldEvictChangedTask() {
+        taskChangeListener.onTaskChanged(new TaskChangedEvent(5L, "TASK_UPDATED"));
+
+        verify(taskReadCache).evict(5L);
+        verify(taskReadCache, never()).evictAll();
+    }
+
+    /**
+     * Usunięcie projektu na innej instancji backendu czyści cały cache, bo zdarzenie nie wskazuje zadań.
+     */
+    @Test
+    @DisplayName("Usunięcie projektu czyści cały cache")
+    void onTaskChanged_ShouldEvictAll_WhenProjectWasDeleted() {
+        taskChangeListener.onTaskChanged(new TaskChangedEvent(null, TaskChangedEvent.PROJECT_DELETED));
+
+        verify(taskReadCache).evictAll();
+    }
+
+    /**
+     * Zdarzenie bez zadania i bez znanego typu jest pomijane.
+     */
+    @Test
+    @DisplayName("Zdarzenie bez identyfikatora zadania jest pomijane")
+    void onTaskChanged_ShouldIgnoreEventWithoutTask() {
+        taskChangeListener.onTaskChanged(new TaskChangedEvent(null, "TASK_UPDATED"));
+
+        verifyNoInteractions(taskReadCache);
+    }
+}
@@ -0,0 +1,169 @@
+package pl.projekt.backend.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.AmqpReplyTimeoutException;
+import org.springframework.amqp.core.AsyncAmqpTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import pl.projekt.backend.config.TaskRabbitMqConfig;
+import pl.projekt.backend.exception.ServiceUnavailableException;
+import pl.projekt.backend.service.NodeMonitoringService;
+
+import java.net.ConnectException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testy jednostkowe klienta TaskCommandClient.
+ * Sprawdzają mapowanie odpowiedzi i błędów asynchronicznego RPC.
+ */
+@DisplayName("Testy klienta TaskCommandClient")
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class TaskCommandClientTest {
+
+    @Mock
+    private AsyncAmqpTemplate asyncRabbitTemplate;
+
+    @Mock
+    private NodeMonitoringService nodeMonitoringService;
+
+    private TaskRpcCircuitBreaker circuitBreaker;
+
+    private TaskCommandClient taskCommandClient;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        lenient().when(nodeMonitoringService.isLeaderAlive()).thenReturn(true);
+        circuitBreaker = new TaskRpcCircuitBreaker(nodeMonitoringService, meterRegistry, 2, 5000, 1000, 5);
+        ReplyTimeoutEstimator estimator = new ReplyTimeoutEstimator(meterRegistry, 50, 200, 0.99, 3.0, 10, 1);
+        taskCommandClient = new TaskCommandClient(asyncRabbitTemplate, circuitBreaker, estimator);
+    }
+
+    @Test
+    @DisplayName("Zwraca odpowiedź węzła")
+    void send_ShouldCompleteWithReply() {
+        TaskOperationResult reply = new TaskOperationResult(true, 5L, null, null, null, null, false);
+        when(asyncRabbitTemplate.convertSendAndReceiveAsType(
+                eq(TaskRabbitMqConfig.TASK_EXCHANGE),
+                eq(TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY),
+                any(DeleteTaskCommand.class),
+                ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
+        )).thenReturn(CompletableFuture.completedFuture(reply));
+
+        TaskOperationResult result = taskCommandClient.send(
+                TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY,
+                new DeleteTaskCommand(5L),
+                new ParameterizedTypeReference<TaskOperationResult>() {}
+        ).join();
+
+        assertSame(reply, result);
+    }
+
+    @Test
+    @DisplayName("Przekroczenie czasu odpowiedzi mapowane na 'timed out'")
+    void send_ShouldMapReplyTimeout() {
+        when(asyncRabbitTemplate.convertSendAndReceiveAsType(
+                any(String.class),
+                any(String.class),
+                any(DeleteTaskCommand.class),
+                ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
+        )).thenReturn(CompletableFuture.failedFuture(new AmqpReplyTimeoutException("Reply timed out", null)));
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> taskCommandClient.send(
+                TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY,
+                new DeleteTaskCommand(5L),
+                new ParameterizedTypeReference<TaskOperationResult>() {}
+        ).join());
+
+        assertEquals("Task operation timed out", exception.getCause().getMessage());
+    }
+
+    @Test
+    @DisplayName("Błąd połączenia przy wysyłce zwraca nieudane future")
+    void send_ShouldReturnFailedFutureWhenBrokerUnavailable() {
+        when(asyncRabbitTemplate.convertSendAndReceiveAsType(
+                any(String.class),
+                any(String.class),
+                any(DeleteTaskCommand.class),
+                ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
+        )).thenThrow(new AmqpConnectException(new ConnectException("Connection refused")));
+
+        CompletableFuture<TaskOperationResult> future = taskCommandClient.send(
+                TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY,
+                new DeleteTaskCommand(5L),
+                new ParameterizedTypeReference<TaskOperationResult>() {}
+        );
+
+        CompletionException exception = assertThrows(CompletionException.class, future::join);
+        assertTrue(exception.getCause().getMessage().startsWith("RabbitMQ request failed"));
+    }
+
+    /**
+     * Bez aktywnego węzła zapisu polecenie jest odrzucane od razu, bez wysyłania do brokera.
+     */
+    @Test
+    @DisplayName("Brak lidera - natychmiastowe 503 bez wysyłki")
+    void send_ShouldFailFast_WhenNoLeaderIsAlive() {
+        when(nodeMonitoringService.isLeaderAlive()).thenReturn(false);
+        circuitBreaker = new TaskRpcCircuitBreaker(nodeMonitoringService, new SimpleMeterRegistry(), 2, 5000, 1000, 7);
+        taskCommandClient = new TaskCommandClient(asyncRabbitTemplate, circuitBreaker,
+                new ReplyTimeoutEstimator(new SimpleMeterRegistry(), 50, 200, 0.99, 3.0, 10, 1));
+
+        CompletableFuture<TaskOperationResult> future = taskCommandClient.send(
+                TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY,
+                new DeleteTaskCommand(5L),
+                new ParameterizedTypeReference<TaskOperationResult>() {}
+        );
+
+        CompletionException exception = assertThrows(CompletionException.class, future::join);
+        ServiceUnavailableException cause = assertInstanceOf(ServiceUnavailableException.class, exception.getCause());
+        assertEquals(7, cause.getRetryAfterSeconds());
+        verifyNoInteractions(asyncRabbitTemplate);
+    }
+
+    /**
+     * Odpowiedź, która nie nadeszła w wyznaczonym czasie, kończy polecenie przed limitem AsyncRabbitTemplate,
+     * a kolejne przekroczenia otwierają obwód.
+     */
+    @Test
+    @DisplayName("Własny limit czasu odpowiedzi i otwarcie obwodu po kolejnych przekroczeniach")
+    void send_ShouldTimeOutAndOpenCircuit_WhenNodesDoNotReply() {
+        when(asyncRabbitTemplate.convertSendAndReceiveAsType(
+                any(String.class),
+                any(String.class),
+                any(DeleteTaskCommand.class),
+                ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
+        )).thenAnswer(invocation -> new CompletableFuture<TaskOperationResult>());
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            CompletionException exception = assertThrows(CompletionException.class, () -> taskCommandClient.send(
+                    TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY,
+                    new DeleteTaskCommand(5L),
+                    new ParameterizedTypeReference<TaskOperationResult>() {}
+            ).join());
+            assertEquals("Task operation timed out", exception.getCause().getMessage());
+        }
+
+        assertEquals(TaskRpcCircuitBreaker.State.OPEN, circuitBreaker.state());
+        CompletionException rejected = assertThrows(CompletionException.class, () -> taskCommandClient.send(
+                TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY,
+                new DeleteTaskCommand(5L),
+                new ParameterizedTypeReference<TaskOperationResult>() {}
+        ).join());
+        assertInstanceOf(ServiceUnavailableException.class, rejected.getCause());
+    }
+}
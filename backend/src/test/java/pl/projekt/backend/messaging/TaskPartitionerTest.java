@@ -0,0 +1,44 @@
+package pl.projekt.backend.messaging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe dla TaskPartitioner.
+ */
+@DisplayName("Testy TaskPartitioner")
+class TaskPartitionerTest {
+
+    /**
+     * Przy jednej partycji powinien zwrócić bazowy klucz routingu.
+     */
+    @Test
+    @DisplayName("Brak partycjonowania zachowuje bazowy klucz")
+    void routingKey_ShouldReturnBaseKeyForSinglePartition() {
+        TaskPartitioner partitioner = new TaskPartitioner(1);
+
+        assertFalse(partitioner.isPartitioned());
+        assertEquals("tasks.create", partitioner.routingKey("tasks.create", UUID.randomUUID()));
+    }
+
+    /**
+     * Ten sam projekt powinien zawsze trafiać do tej samej partycji z zakresu.
+     */
+    @Test
+    @DisplayName("Stabilne przypisanie projektu do partycji")
+    void routingKey_ShouldBeStableForProject() {
+        TaskPartitioner partitioner = new TaskPartitioner(4);
+        UUID projectId = UUID.randomUUID();
+
+        int partition = partitioner.partitionOf(projectId);
+
+        assertTrue(partition >= 0 && partition < 4);
+        assertEquals("tasks.update.p" + partition, partitioner.routingKey("tasks.update", projectId));
+        assertEquals(partitioner.routingKey("tasks.update", projectId), partitioner.routingKey("tasks.update", projectId));
+        assertEquals(0, partitioner.partitionOf(null));
+    }
+}
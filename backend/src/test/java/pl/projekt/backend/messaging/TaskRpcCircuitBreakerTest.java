@@ -0,0 +1,96 @@
+package pl.projekt.backend.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.projekt.backend.exception.ServiceUnavailableException;
+import pl.projekt.backend.service.NodeMonitoringService;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testy jednostkowe wyłącznika obwodu RPC.
+ * Czas jest sterowany ręcznie, aby sprawdzić przejścia stanów bez oczekiwania.
+ */
+@DisplayName("Testy TaskRpcCircuitBreaker")
+@ExtendWith(MockitoExtension.class)
+class TaskRpcCircuitBreakerTest {
+
+    @Mock
+    private NodeMonitoringService nodeMonitoringService;
+
+    private final AtomicLong now = new AtomicLong(100_000);
+
+    private TaskRpcCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = new TaskRpcCircuitBreaker(nodeMonitoringService, new SimpleMeterRegistry(),
+                3, 5000, 1000, 5, now::get);
+    }
+
+    /**
+     * Po progu kolejnych błędów obwód odrzuca polecenia z czasem Retry-After równym pozostałemu czasowi otwarcia.
+     */
+    @Test
+    @DisplayName("Otwarcie obwodu po progu kolejnych błędów")
+    void onFailure_ShouldOpenCircuit_AfterThreshold() {
+        when(nodeMonitoringService.isLeaderAlive()).thenReturn(true);
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.acquirePermission();
+        circuitBreaker.onFailure();
+
+        now.addAndGet(1500);
+        ServiceUnavailableException exception = assertThrows(ServiceUnavailableException.class,
+                () -> circuitBreaker.acquirePermission());
+
+        assertEquals(TaskRpcCircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertEquals(4, exception.getRetryAfterSeconds());
+    }
+
+    /**
+     * Po czasie otwarcia przechodzi jedno polecenie próbne; jego sukces zamyka obwód.
+     */
+    @Test
+    @DisplayName("Polecenie próbne w stanie półotwartym zamyka obwód")
+    void acquirePermission_ShouldAllowSingleProbe_AfterOpenPeriod() {
+        when(nodeMonitoringService.isLeaderAlive()).thenReturn(true);
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+        now.addAndGet(5000);
+
+        circuitBreaker.acquirePermission();
+        assertEquals(TaskRpcCircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+        assertThrows(ServiceUnavailableException.class, () -> circuitBreaker.acquirePermission());
+
+        circuitBreaker.onSuccess();
+        assertEquals(TaskRpcCircuitBreaker.State.CLOSED, circuitBreaker.state());
+        assertDoesNotThrow(() -> circuitBreaker.acquirePermission());
+    }
+
+    /**
+     * Obecność lidera jest odczytywana z bazy najwyżej raz na interwał; brak lidera odrzuca polecenia.
+     */
+    @Test
+    @DisplayName("Brak lidera odrzuca polecenia, a odczyt obecności jest buforowany")
+    void acquirePermission_ShouldRejectWithoutLeader_AndCacheLeaderPresence() {
+        when(nodeMonitoringService.isLeaderAlive()).thenReturn(false, true);
+
+        assertThrows(ServiceUnavailableException.class, () -> circuitBreaker.acquirePermission());
+        now.addAndGet(500);
+        assertThrows(ServiceUnavailableException.class, () -> circuitBreaker.acquirePermission());
+        now.addAndGet(500);
+        assertDoesNotThrow(() -> circuitBreaker.acquirePermission());
+
+        verify(nodeMonitoringService, times(2)).isLeaderAlive();
+    }
+}
@@ -0,0 +1,111 @@
+package pl.projekt.backend.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+import pl.projekt.backend.model.Role;
+import pl.projekt.backend.model.User;
+
+import java.util.Date;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testy jednostkowe filtra uwierzytelniania JWT.
+ * Sprawdzają tryb domyślny (użytkownik z bazy/cache) oraz bezstanowy (rola z tokenu).
+ */
+@DisplayName("Testy filtra JwtAuthenticationFilter")
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    @Mock private JwtService jwtService;
+    @Mock private UserDetailsService userDetailsService;
+    @Mock private PrincipalCache principalCache;
+
+    @InjectMocks private JwtAuthenticationFilter filter;
+
+    private MockHttpServletRequest request;
+    private User user;
+    private VerifiedJwt token;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.clearContext();
+        request = new MockHttpServletRequest("GET", "/api/tasks/my");
+        request.addHeader("Authorization", "Bearer token");
+        user = new User();
+        user.setEmail("jan.kowalski@example.com");
+        user.setRole(Role.MANAGER);
+        Date issuedAt = new Date();
+        token = new VerifiedJwt(user.getEmail(), "jti-1", "ROLE_USER", issuedAt, new Date(issuedAt.getTime() + 60_000));
+        when(jwtService.verify("token")).thenReturn(token);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * W trybie domyślnym uprawnienia pochodzą z encji użytkownika, a nie z claimu roli.
+     */
+    @Test
+    @DisplayName("Tryb domyślny - użytkownik z cache/bazy")
+    @SuppressWarnings("unchecked")
+    void doFilter_ShouldLoadUserByDefault() throws Exception {
+        when(principalCache.get(eq(user.getEmail()), eq("jti-1"), any(Function.class))).thenReturn(user);
+
+        filter.doFilterInternal(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertSame(user, authentication.getPrincipal());
+        assertEquals("ROLE_MANAGER", authentication.getAuthorities().iterator().next().getAuthority());
+    }
+
+    /**
+     * W trybie bezstanowym rola z tokenu wystarcza - bez odczytu użytkownika.
+     */
+    @Test
+    @DisplayName("Tryb bezstanowy - rola z tokenu bez dostępu do bazy")
+    void doFilter_ShouldTrustRoleClaimInStatelessMode() throws Exception {
+        ReflectionTestUtils.setField(filter, "statelessAuthentication", true);
+        when(principalCache.isIssuedBeforeInvalidation(user.getEmail(), token.issuedAt())).thenReturn(false);
+
+        filter.doFilterInternal(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals(user.getEmail(), authentication.getName());
+        assertEquals("ROLE_USER", authentication.getAuthorities().iterator().next().getAuthority());
+        verify(principalCache, never()).get(any(), any(), any());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    /**
+     * Token wystawiony przed zmianą roli nie jest obsługiwany bezstanowo - uprawnienia są odczytywane ponownie.
+     */
+    @Test
+    @DisplayName("Tryb bezstanowy - token sprzed unieważnienia wraca do odczytu użytkownika")
+    @SuppressWarnings("unchecked")
+    void doFilter_ShouldFallBackForInvalidatedToken() throws Exception {
+        ReflectionTestUtils.setField(filter, "statelessAuthentication", true);
+        when(principalCache.isIssuedBeforeInvalidation(user.getEmail(), token.issuedAt())).thenReturn(true);
+        when(principalCache.get(eq(user.getEmail()), eq("jti-1"), any(Function.class))).thenReturn(user);
+
+        filter.doFilterInternal(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals("ROLE_MANAGER", authentication.getAuthorities().iterator().next().getAuthority());
+    }
+}
@@ -0,0 +1,80 @@
+package pl.projekt.backend.security;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import pl.projekt.backend.model.Role;
+import pl.projekt.backend.model.User;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe serwisu JWT.
+ * Sprawdzają wystawianie tokenu oraz jego jednoprzebiegową weryfikację.
+ */
+@DisplayName("Testy serwisu JwtService")
+class JwtServiceTest {
+
+    private JwtService jwtService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = createService(60_000);
+        user = new User();
+        user.setEmail("jan.kowalski@example.com");
+        user.setRole(Role.MANAGER);
+    }
+
+    /**
+     * Zweryfikowany token powinien zawierać subject, jti oraz rolę.
+     */
+    @Test
+    @DisplayName("Weryfikacja wystawionego tokenu")
+    void verify_ShouldReturnClaimsOfIssuedToken() {
+        String token = jwtService.generateToken(user);
+
+        VerifiedJwt verified = jwtService.verify(token);
+
+        assertEquals(user.getEmail(), verified.subject());
+        assertNotNull(verified.tokenId());
+        assertEquals(user.getAuthorities().iterator().next().getAuthority(), verified.role());
+        assertTrue(jwtService.isTokenValid(token, user));
+    }
+
+    /**
+     * Token podpisany innym kluczem powinien zostać odrzucony.
+     */
+    @Test
+    @DisplayName("Odrzucenie tokenu z obcym podpisem")
+    void verify_ShouldRejectForeignSignature() {
+        JwtService other = new JwtService();
+        ReflectionTestUtils.setField(other, "secretKey", "inny-sekret-inny-sekret-inny-sekret-0123");
+        ReflectionTestUtils.setField(other, "jwtExpiration", 60_000L);
+        other.initialize();
+        String token = other.generateToken(user);
+
+        assertThrows(JwtException.class, () -> jwtService.verify(token));
+    }
+
+    /**
+     * Wygasły token powinien zostać odrzucony.
+     */
+    @Test
+    @DisplayName("Odrzucenie wygasłego tokenu")
+    void verify_ShouldRejectExpiredToken() {
+        String token = createService(-1_000).generateToken(user);
+
+        assertThrows(JwtException.class, () -> jwtService.verify(token));
+    }
+
+    private JwtService createService(long expirationMs) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKey", "testowy-sekret-testowy-sekret-0123456789");
+        ReflectionTestUtils.setField(service, "jwtExpiration", expirationMs);
+        service.initialize();
+        return service;
+    }
+}
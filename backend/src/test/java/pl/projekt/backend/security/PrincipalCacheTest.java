@@ -0,0 +1,78 @@
+package pl.projekt.backend.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import pl.projekt.backend.model.Role;
+import pl.projekt.backend.model.User;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe cache użytkowników uwierzytelnionych tokenem JWT.
+ */
+@DisplayName("Testy PrincipalCache")
+class PrincipalCacheTest {
+
+    private final PrincipalCache principalCache = new PrincipalCache(100, 60, 60_000);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<String, UserDetails> loader = email -> {
+        loads.incrementAndGet();
+        User user = new User();
+        user.setEmail(email);
+        user.setRole(Role.USER);
+        return user;
+    };
+
+    /**
+     * Kolejne żądania z tym samym tokenem nie powinny ponownie ładować użytkownika.
+     */
+    @Test
+    @DisplayName("Ponowne użycie tokenu nie ładuje użytkownika z bazy")
+    void get_ShouldLoadOncePerToken() {
+        UserDetails first = principalCache.get("jan@example.com", "jti-1", loader);
+        UserDetails second = principalCache.get("jan@example.com", "jti-1", loader);
+        principalCache.get("jan@example.com", "jti-2", loader);
+
+        assertSame(first, second);
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * Unieważnienie powinno usunąć wpisy wszystkich tokenów użytkownika i tylko jego.
+     */
+    @Test
+    @DisplayName("Unieważnienie usuwa wpisy wszystkich tokenów użytkownika")
+    void invalidate_ShouldEvictAllTokensOfUser() {
+        principalCache.get("jan@example.com", "jti-1", loader);
+        principalCache.get("jan@example.com", null, loader);
+        principalCache.get("jan@example.com.pl", "jti-3", loader);
+
+        principalCache.invalidate("jan@example.com");
+        principalCache.get("jan@example.com", "jti-1", loader);
+        principalCache.get("jan@example.com", null, loader);
+        principalCache.get("jan@example.com.pl", "jti-3", loader);
+
+        assertEquals(5, loads.get());
+    }
+
+    /**
+     * Tokeny wystawione przed unieważnieniem nie mogą być obsłużone bezstanowo; nowsze tak.
+     */
+    @Test
+    @DisplayName("Rozpoznanie tokenu wystawionego przed unieważnieniem")
+    void isIssuedBeforeInvalidation_ShouldCompareWithInvalidationTime() {
+        Date beforeInvalidation = new Date(System.currentTimeMillis() - 5_000);
+        assertFalse(principalCache.isIssuedBeforeInvalidation("jan@example.com", beforeInvalidation));
+
+        principalCache.invalidate("jan@example.com");
+
+        assertTrue(principalCache.isIssuedBeforeInvalidation("jan@example.com", beforeInvalidation));
+        assertFalse(principalCache.isIssuedBeforeInvalidation("jan@example.com", new Date(System.currentTimeMillis() + 5_000)));
+        assertFalse(principalCache.isIssuedBeforeInvalidation("anna@example.com", beforeInvalidation));
+    }
+}
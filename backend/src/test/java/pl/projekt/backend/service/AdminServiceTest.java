@@ -7,10 +7,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import pl.projekt.backend.dto.ChangeRoleRequest;
 import pl.projekt.backend.dto.UserResponse;
+import pl.projekt.backend.messaging.PrincipalInvalidationPublisher;
 import pl.projekt.backend.model.Role;
 import pl.projekt.backend.model.User;
 import pl.projekt.backend.repository.UserRepository;
+import pl.projekt.backend.security.PrincipalCache;
 
+import java.time.Instant;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +30,15 @@ class AdminServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private PrincipalCache principalCache;
+
+    @Mock
+    private PrincipalInvalidationPublisher principalInvalidationPublisher;
+
+    @Mock
+    private SensitiveDataService sensitiveDataService;
+
     @InjectMocks
     private AdminService adminService;
 
@@ -54,11 +66,14 @@ class AdminServiceTest {
 
         when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
         when(userRepository.save(any(User.class))).thenReturn(user);
+        Instant invalidatedAt = Instant.now();
+        when(principalCache.invalidate(user.getEmail())).thenReturn(invalidatedAt);
 
         adminService.changeUserRole(request);
 
         assertEquals(Role.MANAGER, user.getRole());
         verify(userRepository).save(user);
+        verify(principalInvalidationPublisher).publishInvalidated(user.getEmail(), invalidatedAt);
     }
 
     /**
@@ -95,6 +110,27 @@ class AdminServiceTest {
         verify(userRepository, never()).save(any());
     }
 
+    /**
+     * Po rotacji klucza powinien zapisać tylko użytkowników, których sekret TOTP się zmienił.
+     */
+    @Test
+    @DisplayName("Ponowne szyfrowanie sekretów TOTP")
+    void reEncryptTotpSecrets_ShouldSaveOnlyChangedSecrets() {
+        user.setTwoFactorSecret("ENC:stary");
+        User other = new User();
+        other.setEmail("anna.nowak@example.com");
+        other.setTwoFactorSecret("ENC:aktualny");
+        when(userRepository.findByTwoFactorSecretIsNotNull()).thenReturn(List.of(user, other));
+        when(sensitiveDataService.reEncryptAll(List.of("ENC:stary", "ENC:aktualny")))
+                .thenReturn(List.of("ENC:nowy", "ENC:aktualny"));
+
+        int updated = adminService.reEncryptTotpSecrets();
+
+        assertEquals(1, updated);
+        assertEquals("ENC:nowy", user.getTwoFactorSecret());
+        verify(userRepository).saveAll(List.of(user));
+    }
+
     /**
      * Powinien zwrócić listę wszystkich użytkowników.
      */
@@ -5,17 +5,24 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import pl.projekt.backend.dto.*;
+import pl.projekt.backend.messaging.PrincipalInvalidationPublisher;
 import pl.projekt.backend.model.Role;
 import pl.projekt.backend.model.User;
 import pl.projekt.backend.repository.UserRepository;
 import pl.projekt.backend.security.JwtService;
+import pl.projekt.backend.security.PrincipalCache;
+import pl.projekt.backend.service.PasswordHashingService.PasswordVerification;
 
+import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,6 +41,10 @@ class AuthServiceTest {
     @Mock private AuthenticationManager authenticationManager;
     @Mock private TotpService totpService;
     @Mock private SensitiveDataService sensitiveDataService;
+    @Mock private PrincipalCache principalCache;
+    @Mock private PrincipalInvalidationPublisher principalInvalidationPublisher;
+    @Mock private PasswordHashingService passwordHashingService;
+    @Spy private SyncTaskExecutor applicationTaskExecutor = new SyncTaskExecutor();
 
     @InjectMocks private AuthService authService;
 
@@ -86,14 +97,78 @@ class AuthServiceTest {
         request.setPassword("haslo123");
 
         when(userRepository.findByEmail(request.getEmail())).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches(request.getPassword(), user.getPassword())).thenReturn(true);
+        when(passwordHashingService.verify(request.getPassword(), user.getPassword()))
+                .thenReturn(CompletableFuture.completedFuture(new PasswordVerification(true, null)));
         when(jwtService.generateToken(user)).thenReturn("mocked-token");
 
-        AuthResponse response = authService.login(request);
+        AuthResponse response = authService.login(request).join();
 
         assertNotNull(response);
         assertEquals("mocked-token", response.getToken());
         assertFalse(response.isRequires2FA());
+        // Dokończenie logowania (podpis JWT) nie zajmuje wątku puli haszowania
+        verify(applicationTaskExecutor).execute(any(Runnable.class));
+    }
+
+    /**
+     * Nieznany e-mail powinien przejść przez weryfikację skrótu zastępczego na puli haszowania.
+     */
+    @Test
+    @DisplayName("Logowanie na nieistniejący e-mail")
+    void login_ShouldVerifyUnknownUserOnHashingPool() {
+        LoginRequest request = new LoginRequest();
+        request.setEmail("nieznany@example.com");
+        request.setPassword("haslo123");
+
+        when(userRepository.findByEmail(request.getEmail())).thenReturn(Optional.empty());
+        when(passwordHashingService.verifyUnknownUser(request.getPassword()))
+                .thenReturn(CompletableFuture.completedFuture(new PasswordVerification(false, null)));
+
+        CompletionException ex = assertThrows(CompletionException.class, () -> authService.login(request).join());
+        assertEquals("User not found", ex.getCause().getMessage());
+        verify(passwordHashingService, never()).verify(any(), any());
+        verifyNoInteractions(jwtService);
+    }
+
+    /**
+     * Powinien odrzucić logowanie z błędnym hasłem.
+     */
+    @Test
+    @DisplayName("Logowanie z błędnym hasłem")
+    void login_ShouldThrowOnInvalidPassword() {
+        LoginRequest request = new LoginRequest();
+        request.setEmail("jan.kowalski@example.com");
+        request.setPassword("zle-haslo");
+
+        when(userRepository.findByEmail(request.getEmail())).thenReturn(Optional.of(user));
+        when(passwordHashingService.verify(request.getPassword(), user.getPassword()))
+                .thenReturn(CompletableFuture.completedFuture(new PasswordVerification(false, null)));
+
+        CompletionException ex = assertThrows(CompletionException.class, () -> authService.login(request).join());
+        assertEquals("Invalid password", ex.getCause().getMessage());
+        verifyNoInteractions(jwtService);
+    }
+
+    /**
+     * Skrót hasła o niższym koszcie powinien zostać zastąpiony po udanym logowaniu.
+     */
+    @Test
+    @DisplayName("Ponowne haszowanie hasła przy logowaniu")
+    void login_ShouldStoreUpgradedHash() {
+        LoginRequest request = new LoginRequest();
+        request.setEmail("jan.kowalski@example.com");
+        request.setPassword("haslo123");
+
+        when(userRepository.findByEmail(request.getEmail())).thenReturn(Optional.of(user));
+        when(passwordHashingService.verify(request.getPassword(), user.getPassword()))
+                .thenReturn(CompletableFuture.completedFuture(new PasswordVerification(true, "nowy-skrot")));
+        when(jwtService.generateToken(user)).thenReturn("mocked-token");
+
+        AuthResponse response = authService.login(request).join();
+
+        assertEquals("mocked-token", response.getToken());
+        assertEquals("nowy-skrot", user.getPassword());
+        verify(userRepository).save(user);
     }
 
     /**
@@ -108,9 +183,10 @@ class AuthServiceTest {
         request.setPassword("haslo123");
 
         when(userRepository.findByEmail(request.getEmail())).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches(request.getPassword(), user.getPassword())).thenReturn(true);
+        when(passwordHashingService.verify(request.getPassword(), user.getPassword()))
+                .thenReturn(CompletableFuture.completedFuture(new PasswordVerification(true, null)));
 
-        AuthResponse response = authService.login(request);
+        AuthResponse response = authService.login(request).join();
 
         assertNotNull(response);
         assertTrue(response.isRequires2FA());
@@ -130,12 +206,13 @@ class AuthServiceTest {
         request.setTotpCode("000000");
 
         when(userRepository.findByEmail(request.getEmail())).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches(request.getPassword(), user.getPassword())).thenReturn(true);
+        when(passwordHashingService.verify(request.getPassword(), user.getPassword()))
+                .thenReturn(CompletableFuture.completedFuture(new PasswordVerification(true, null)));
         when(totpService.verifyCode("000000", null)).thenReturn(false);
         when(sensitiveDataService.decrypt(null)).thenReturn(null);
 
-        RuntimeException ex = assertThrows(RuntimeException.class, () -> authService.login(request));
-        assertEquals("Invalid 2FA code", ex.getMessage());
+        CompletionException ex = assertThrows(CompletionException.class, () -> authService.login(request).join());
+        assertEquals("Invalid 2FA code", ex.getCause().getMessage());
     }
 
     /**
@@ -154,12 +231,15 @@ class AuthServiceTest {
         when(sensitiveDataService.encrypt("sekret2fa")).thenReturn("encrypted-sekret2fa");
         when(userRepository.save(user)).thenReturn(user);
         when(totpService.getQRCodeImageUri("sekret2fa", user.getEmail())).thenReturn("qrCodeImage");
+        Instant invalidatedAt = Instant.now();
+        when(principalCache.invalidate(user.getEmail())).thenReturn(invalidatedAt);
 
         AuthResponse response = authService.enable2FA();
 
         assertNotNull(response);
         assertEquals("qrCodeImage", response.getQrCodeImage());
         assertTrue(user.isTwoFactorEnabled());
+        verify(principalInvalidationPublisher).publishInvalidated(user.getEmail(), invalidatedAt);
     }
 
     /**
@@ -179,6 +259,8 @@ class AuthServiceTest {
         when(totpService.verifyCode("123456", "sekret2fa")).thenReturn(true);
         when(userRepository.save(user)).thenReturn(user);
         when(jwtService.generateToken(user)).thenReturn("mocked-token");
+        Instant invalidatedAt = Instant.now();
+        when(principalCache.invalidate(user.getEmail())).thenReturn(invalidatedAt);
 
         AuthResponse response = authService.verify2FA(request);
 
@@ -186,6 +268,7 @@ class AuthServiceTest {
         assertEquals("mocked-token", response.getToken());
         assertFalse(response.isRequires2FA());
         assertTrue(user.isTwoFactorEnabled());
+        verify(principalInvalidationPublisher).publishInvalidated(user.getEmail(), invalidatedAt);
     }
 
     /**
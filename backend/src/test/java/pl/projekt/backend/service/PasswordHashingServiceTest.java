@@ -0,0 +1,112 @@
+package pl.projekt.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+import pl.projekt.backend.service.PasswordHashingService.PasswordVerification;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testy jednostkowe puli weryfikacji haseł.
+ * Sprawdzają ponowne haszowanie, odrzucanie przy przeciążeniu oraz kalibrację kosztu BCrypt.
+ */
+@DisplayName("Testy serwisu PasswordHashingService")
+class PasswordHashingServiceTest {
+
+    private PasswordHashingService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    /**
+     * Poprawne hasło ze skrótem o niższym koszcie powinno zwrócić nowy skrót z bieżącym kosztem.
+     */
+    @Test
+    @DisplayName("Ponowne haszowanie skrótu o niższym koszcie")
+    void verify_ShouldReturnUpgradedHashForWeakerCost() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(5);
+        service = new PasswordHashingService(encoder, new SimpleMeterRegistry(), 1, 4);
+        String weakHash = new BCryptPasswordEncoder(4).encode("haslo123");
+
+        PasswordVerification verification = service.verify("haslo123", weakHash).join();
+        PasswordVerification wrongPassword = service.verify("zle-haslo", weakHash).join();
+
+        assertTrue(verification.matches());
+        assertNotNull(verification.upgradedHash());
+        assertTrue(encoder.matches("haslo123", verification.upgradedHash()));
+        assertFalse(encoder.upgradeEncoding(verification.upgradedHash()));
+        assertFalse(wrongPassword.matches());
+        assertNull(wrongPassword.upgradedHash());
+    }
+
+    /**
+     * Weryfikacja dla nieistniejącego konta powinna haszować z bieżącym kosztem i nigdy nie pasować.
+     */
+    @Test
+    @DisplayName("Weryfikacja skrótu zastępczego dla nieznanego e-maila")
+    void verifyUnknownUser_ShouldNeverMatch() {
+        PasswordEncoder encoder = spy(new BCryptPasswordEncoder(5));
+        service = new PasswordHashingService(encoder, new SimpleMeterRegistry(), 1, 4);
+
+        PasswordVerification verification = service.verifyUnknownUser("haslo123").join();
+
+        assertFalse(verification.matches());
+        assertNull(verification.upgradedHash());
+        verify(encoder).matches(eq("haslo123"), argThat(hash -> hash != null && !encoder.upgradeEncoding(hash)));
+    }
+
+    /**
+     * Przy zajętym wątku i pełnej kolejce kolejna weryfikacja powinna zakończyć się HTTP 429.
+     */
+    @Test
+    @DisplayName("Odrzucenie logowania przy pełnej kolejce")
+    void verify_ShouldRejectWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.matches(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return true;
+        });
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        service = new PasswordHashingService(encoder, meterRegistry, 1, 1);
+
+        var running = service.verify("a", "hash");
+        started.await();
+        var queued = service.verify("b", "hash");
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> service.verify("c", "hash"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+        assertEquals(1.0, meterRegistry.get("auth.password.hashing.rejected").counter().count());
+
+        release.countDown();
+        assertTrue(running.join().matches());
+        assertTrue(queued.join().matches());
+    }
+
+    /**
+     * Kalibracja nie powinna zejść poniżej minimalnego kosztu ani przekroczyć limitu.
+     */
+    @Test
+    @DisplayName("Kalibracja kosztu BCrypt")
+    void calibrateBcryptCost_ShouldStayWithinBounds() {
+        assertEquals(4, PasswordHashingService.calibrateBcryptCost(0, 4));
+        int cost = PasswordHashingService.calibrateBcryptCost(50, 4);
+        assertTrue(cost >= 4 && cost <= 16);
+    }
+}
@@ -11,6 +11,7 @@ import pl.projekt.backend.dto.AddProjectMemberRequest;
 import pl.projekt.backend.dto.CreateProjectRequest;
 import pl.projekt.backend.dto.UpdateProjectRequest;
 import pl.projekt.backend.dto.ProjectMemberResponse;
+import pl.projekt.backend.messaging.TaskChangePublisher;
 import pl.projekt.backend.model.*;
 import pl.projekt.backend.repository.ProjectMemberRepository;
 import pl.projekt.backend.repository.ProjectRepository;
@@ -33,6 +34,8 @@ public class ProjectServiceTest {
     @Mock private ProjectRepository projectRepository;
     @Mock private UserRepository userRepository;
     @Mock private ProjectMemberRepository projectMemberRepository;
+    @Mock private TaskReadCache taskReadCache;
+    @Mock private TaskChangePublisher taskChangePublisher;
 
     @InjectMocks private ProjectService projectService;
 
@@ -139,6 +142,8 @@ public class ProjectServiceTest {
     void deleteProject_ShouldDeleteProject() {
         projectService.deleteProject(project.getId());
         verify(projectRepository).deleteById(project.getId());
+        verify(taskReadCache).evictAll();
+        verify(taskChangePublisher).publishProjectDeleted(project.getId());
     }
 
     /**
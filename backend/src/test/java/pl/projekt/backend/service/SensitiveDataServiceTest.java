@@ -3,6 +3,9 @@ package pl.projekt.backend.service;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -14,7 +17,7 @@ class SensitiveDataServiceTest {
     @Test
     @DisplayName("Szyfrowanie i odszyfrowanie sekretu")
     void encryptAndDecrypt_ShouldRestoreOriginalValue() {
-        SensitiveDataService service = new SensitiveDataService("0123456789abcdef0123456789abcdef");
+        SensitiveDataService service = new SensitiveDataService("0123456789abcdef0123456789abcdef", List.of());
 
         String encrypted = service.encrypt("secret-totp-value");
         String decrypted = service.decrypt(encrypted);
@@ -27,6 +30,54 @@ class SensitiveDataServiceTest {
     @Test
     @DisplayName("Zbyt krotki sekret szyfrowania")
     void constructor_ShouldRejectShortEncryptionSecret() {
-        assertThrows(IllegalStateException.class, () -> new SensitiveDataService("short"));
+        assertThrows(IllegalStateException.class, () -> new SensitiveDataService("short", List.of()));
+    }
+
+    @Test
+    @DisplayName("Ponowne szyfrowanie sekretow po rotacji klucza")
+    void reEncryptAll_ShouldMoveValuesToCurrentKey() {
+        SensitiveDataService oldService = new SensitiveDataService("stary-klucz-stary-klucz-stary-klucz", List.of());
+        SensitiveDataService service = new SensitiveDataService("0123456789abcdef0123456789abcdef",
+                List.of("stary-klucz-stary-klucz-stary-klucz"));
+        String oldValue = oldService.encrypt("sekret-1");
+        String currentValue = service.encrypt("sekret-2");
+
+        List<String> result = service.reEncryptAll(Arrays.asList(oldValue, currentValue, "sekret-3", null));
+
+        assertNotEquals(oldValue, result.get(0));
+        assertEquals("sekret-1", service.decrypt(result.get(0)));
+        assertEquals(currentValue, result.get(1));
+        assertEquals("sekret-3", service.decrypt(result.get(2)));
+        assertEquals(null, result.get(3));
+    }
+
+    @Test
+    @DisplayName("Odszyfrowanie poprzednim kluczem przed ponownym szyfrowaniem")
+    void decrypt_ShouldFallBackToPreviousKeys_AfterRotation() {
+        String oldValue = new SensitiveDataService("stary-klucz-stary-klucz-stary-klucz", List.of()).encrypt("sekret-1");
+        SensitiveDataService service = new SensitiveDataService("0123456789abcdef0123456789abcdef",
+                List.of("inny-klucz-inny-klucz-inny-klucz-00", "stary-klucz-stary-klucz-stary-klucz"));
+
+        assertEquals("sekret-1", service.decrypt(oldValue));
+        assertEquals("sekret-2", service.decrypt(service.encrypt("sekret-2")));
+    }
+
+    @Test
+    @DisplayName("Odszyfrowanie wartosci zaszyfrowanej nieznanym kluczem")
+    void decrypt_ShouldRejectUnknownKey() {
+        String foreign = new SensitiveDataService("obcy-klucz-obcy-klucz-obcy-klucz-00", List.of()).encrypt("sekret");
+        SensitiveDataService service = new SensitiveDataService("0123456789abcdef0123456789abcdef",
+                List.of("stary-klucz-stary-klucz-stary-klucz"));
+
+        assertThrows(IllegalStateException.class, () -> service.decrypt(foreign));
+    }
+
+    @Test
+    @DisplayName("Wartosc zaszyfrowana nieznanym kluczem")
+    void reEncryptAll_ShouldRejectUnknownKey() {
+        String foreign = new SensitiveDataService("obcy-klucz-obcy-klucz-obcy-klucz-00", List.of()).encrypt("sekret");
+        SensitiveDataService service = new SensitiveDataService("0123456789abcdef0123456789abcdef", List.of());
+
+        assertThrows(IllegalStateException.class, () -> service.reEncryptAll(List.of(foreign)));
     }
 }
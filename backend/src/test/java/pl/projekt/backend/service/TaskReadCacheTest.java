@@ -0,0 +1,90 @@
+package pl.projekt.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.projekt.backend.dto.TaskCommentResponse;
+import pl.projekt.backend.dto.TaskWithAssigneeResponse;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe cache odczytów zadań.
+ */
+@DisplayName("Testy TaskReadCache")
+class TaskReadCacheTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TaskReadCache taskReadCache = new TaskReadCache(100, 60, meterRegistry);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, TaskWithAssigneeResponse> loader = id -> {
+        loads.incrementAndGet();
+        TaskWithAssigneeResponse response = new TaskWithAssigneeResponse();
+        response.setId(id);
+        return response;
+    };
+
+    /**
+     * Ponowny odczyt zadania nie powinien wywoływać ładowania, a statystyki trafiają do rejestru metryk.
+     */
+    @Test
+    @DisplayName("Ponowny odczyt zadania z cache i metryki trafień")
+    void getTask_ShouldLoadOnceAndRecordHitsAndMisses() {
+        taskReadCache.getTask(1L, loader);
+        taskReadCache.getTask(1L, loader);
+        taskReadCache.getTask(1L, loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(2.0, meterRegistry.get("cache.gets")
+                .tag("cache", "tasks.byId").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tag("cache", "tasks.byId").tag("result", "miss").functionCounter().count());
+    }
+
+    /**
+     * Unieważnienie zadania usuwa zarówno dane zadania, jak i jego komentarze - pozostałe zadania zostają.
+     */
+    @Test
+    @DisplayName("Unieważnienie usuwa wpisy tylko wskazanego zadania")
+    void evict_ShouldRemoveTaskAndCommentEntries() {
+        AtomicInteger commentLoads = new AtomicInteger();
+        Function<Long, List<TaskCommentResponse>> commentLoader = id -> {
+            commentLoads.incrementAndGet();
+            return List.of(new TaskCommentResponse());
+        };
+        taskReadCache.getTask(1L, loader);
+        taskReadCache.getTask(2L, loader);
+        taskReadCache.getComments(1L, commentLoader);
+
+        taskReadCache.evict(1L);
+        taskReadCache.getTask(1L, loader);
+        taskReadCache.getTask(2L, loader);
+        taskReadCache.getComments(1L, commentLoader);
+
+        assertEquals(3, loads.get());
+        assertEquals(2, commentLoads.get());
+    }
+
+    /**
+     * Brak zadania nie jest zapamiętywany - kolejny odczyt ponownie pyta bazę.
+     */
+    @Test
+    @DisplayName("Wyjątek ładowania nie zostaje zapisany w cache")
+    void getTask_ShouldNotCacheMissingTask() {
+        Function<Long, TaskWithAssigneeResponse> missing = id -> {
+            loads.incrementAndGet();
+            throw new EntityNotFoundException("Task not found");
+        };
+
+        assertThrows(EntityNotFoundException.class, () -> taskReadCache.getTask(5L, missing));
+        assertThrows(EntityNotFoundException.class, () -> taskReadCache.getTask(5L, missing));
+
+        assertEquals(2, loads.get());
+    }
+}
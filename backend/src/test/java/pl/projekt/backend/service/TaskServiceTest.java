@@ -5,23 +5,30 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
 import pl.projekt.backend.config.TaskRabbitMqConfig;
 import pl.projekt.backend.dto.*;
+import pl.projekt.backend.exception.TaskConflictException;
 import pl.projekt.backend.messaging.CreateTaskCommand;
 import pl.projekt.backend.messaging.CreateTaskResult;
 import pl.projekt.backend.messaging.DeleteTaskCommand;
 import pl.projekt.backend.messaging.SetTaskStatusCommand;
+import pl.projekt.backend.messaging.TaskCommandClient;
 import pl.projekt.backend.messaging.TaskOperationResult;
+import pl.projekt.backend.messaging.TaskPartitioner;
+import pl.projekt.backend.messaging.TaskSnapshot;
 import pl.projekt.backend.messaging.UpdateTaskCommand;
 import pl.projekt.backend.model.*;
 import pl.projekt.backend.repository.*;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -38,7 +45,9 @@ class TaskServiceTest {
     @Mock private ProjectRepository projectRepository;
     @Mock private UserRepository userRepository;
     @Mock private TaskCommentRepository taskCommentRepository;
-    @Mock private RabbitTemplate rabbitTemplate;
+    @Mock private TaskCommandClient taskCommandClient;
+    @Spy private TaskPartitioner taskPartitioner = new TaskPartitioner(1);
+    @Spy private TaskReadCache taskReadCache = new TaskReadCache(100, 60, new SimpleMeterRegistry());
 
     @InjectMocks private TaskService taskService;
 
@@ -77,6 +86,9 @@ class TaskServiceTest {
         task.setProject(project);
         task.setCreatedBy(user);
         task.setAssignedTo(assignedTo);
+
+        ReflectionTestUtils.setField(taskService, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(taskService, "maxPageSize", 3);
     }
 
     /**
@@ -94,31 +106,43 @@ class TaskServiceTest {
         req.setDueDate(LocalDateTime.now().plusDays(1));
         req.setAssignedToId(assignedTo.getId());
 
-        when(rabbitTemplate.convertSendAndReceiveAsType(
-                eq(TaskRabbitMqConfig.TASK_EXCHANGE),
+        when(taskCommandClient.send(
                 eq(TaskRabbitMqConfig.TASK_CREATE_ROUTING_KEY),
                 any(CreateTaskCommand.class),
                 ArgumentMatchers.<ParameterizedTypeReference<CreateTaskResult>>any()
-        )).thenReturn(new CreateTaskResult(true, task.getId(), null));
-        when(taskRepository.findById(task.getId())).thenReturn(Optional.of(task));
+        )).thenReturn(CompletableFuture.completedFuture(new CreateTaskResult(true, task.getId(), null, snapshotOf(task))));
 
-       
         Authentication authentication = mock(Authentication.class);
         when(authentication.getName()).thenReturn(user.getEmail());
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
-        Task result = taskService.createTask(req);
+        TaskWithAssigneeResponse result = taskService.createTask(req, "create-key-1").join();
 
         assertNotNull(result);
+        assertEquals(task.getId(), result.getId());
         assertEquals("Test Task", result.getTitle());
-        verify(rabbitTemplate).convertSendAndReceiveAsType(
-                eq(TaskRabbitMqConfig.TASK_EXCHANGE),
+        assertEquals(assignedTo.getLastName(), result.getAssignedLastName());
+        verify(taskCommandClient).send(
                 eq(TaskRabbitMqConfig.TASK_CREATE_ROUTING_KEY),
-                any(CreateTaskCommand.class),
+                argThat((CreateTaskCommand command) -> "create-key-1".equals(command.getIdempotencyKey())),
                 ArgumentMatchers.<ParameterizedTypeReference<CreateTaskResult>>any()
         );
-        verify(taskRepository).findById(task.getId());
-        verify(taskRepository, never()).save(any(Task.class));
+        verifyNoInteractions(taskRepository);
+    }
+
+    /**
+     * Zbyt długi klucz idempotencji jest odrzucany przed wysłaniem polecenia do węzła.
+     */
+    @Test
+    @DisplayName("Odrzucenie zbyt długiego klucza Idempotency-Key")
+    void createTask_ShouldRejectTooLongIdempotencyKey() {
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getName()).thenReturn(user.getEmail());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> taskService.createTask(new CreateTaskRequest(), "k".repeat(101)));
+        verifyNoInteractions(taskCommandClient);
     }
 
     /**
@@ -135,30 +159,30 @@ class TaskServiceTest {
         req.setDueDate(LocalDateTime.now().plusDays(2));
         req.setAssignedToId(assignedTo.getId());
 
-        when(rabbitTemplate.convertSendAndReceiveAsType(
-                eq(TaskRabbitMqConfig.TASK_EXCHANGE),
+        when(taskCommandClient.send(
                 eq(TaskRabbitMqConfig.TASK_UPDATE_ROUTING_KEY),
                 any(UpdateTaskCommand.class),
                 ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
-        )).thenReturn(new TaskOperationResult(true, task.getId(), null, null));
-        task.setTitle("Nowy tytuł");
-        task.setStatus(TaskStatus.IN_PROGRESS);
-        task.setPriority(TaskPriority.LOW);
-        when(taskRepository.findById(task.getId())).thenReturn(Optional.of(task));
+        )).thenAnswer(invocation -> {
+            task.setTitle("Nowy tytuł");
+            task.setStatus(TaskStatus.IN_PROGRESS);
+            task.setPriority(TaskPriority.LOW);
+            return CompletableFuture.completedFuture(new TaskOperationResult(true, task.getId(), null, null, snapshotOf(task), null, false));
+        });
 
-        Task result = taskService.updateTask(task.getId(), req);
+        TaskWithAssigneeResponse result = taskService.updateTask(task.getId(), req).join();
 
         assertNotNull(result);
         assertEquals("Nowy tytuł", result.getTitle());
-        assertEquals(TaskStatus.IN_PROGRESS, result.getStatus());
-        assertEquals(TaskPriority.LOW, result.getPriority());
-        verify(rabbitTemplate).convertSendAndReceiveAsType(
-                eq(TaskRabbitMqConfig.TASK_EXCHANGE),
+        assertEquals("IN_PROGRESS", result.getStatus());
+        assertEquals("LOW", result.getPriority());
+        assertEquals(assignedTo.getFirstName(), result.getAssignedFirstName());
+        verify(taskCommandClient).send(
                 eq(TaskRabbitMqConfig.TASK_UPDATE_ROUTING_KEY),
                 any(UpdateTaskCommand.class),
                 ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
         );
-        verify(taskRepository, never()).save(any(Task.class));
+        verifyNoInteractions(taskRepository);
     }
 
     /**
@@ -167,16 +191,15 @@ class TaskServiceTest {
     @Test
     @DisplayName("Usuwanie zadania")
     void deleteTask_ShouldDeleteTask() {
-        when(rabbitTemplate.convertSendAndReceiveAsType(
-                eq(TaskRabbitMqConfig.TASK_EXCHANGE),
+        when(taskCommandClient.send(
                 eq(TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY),
                 any(DeleteTaskCommand.class),
                 ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
-        )).thenReturn(new TaskOperationResult(true, task.getId(), null, null));
+        )).thenReturn(CompletableFuture.completedFuture(new TaskOperationResult(true, task.getId(), null, null, null, null, false)));
+
+        taskService.deleteTask(task.getId()).join();
 
-        taskService.deleteTask(task.getId());
-        verify(rabbitTemplate).convertSendAndReceiveAsType(
-                eq(TaskRabbitMqConfig.TASK_EXCHANGE),
+        verify(taskCommandClient).send(
                 eq(TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY),
                 any(DeleteTaskCommand.class),
                 ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
@@ -184,6 +207,32 @@ class TaskServiceTest {
         verify(taskRepository, never()).deleteById(task.getId());
     }
 
+    /**
+     * Przy partycjonowaniu polecenie powinno trafić do partycji projektu zadania.
+     */
+    @Test
+    @DisplayName("Usuwanie zadania w trybie partycjonowanym")
+    void deleteTask_ShouldRouteToProjectPartition() {
+        TaskPartitioner partitioner = new TaskPartitioner(4);
+        TaskService partitionedService = new TaskService(taskRepository, projectRepository, userRepository,
+                taskCommentRepository, taskCommandClient, partitioner, taskReadCache);
+        String expectedRoutingKey = partitioner.routingKey(TaskRabbitMqConfig.TASK_DELETE_ROUTING_KEY, project.getId());
+        when(taskRepository.findProjectIdById(task.getId())).thenReturn(Optional.of(project.getId()));
+        when(taskCommandClient.send(
+                eq(expectedRoutingKey),
+                any(DeleteTaskCommand.class),
+                ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
+        )).thenReturn(CompletableFuture.completedFuture(new TaskOperationResult(true, task.getId(), null, null, null, null, false)));
+
+        partitionedService.deleteTask(task.getId()).join();
+
+        verify(taskCommandClient).send(
+                eq(expectedRoutingKey),
+                any(DeleteTaskCommand.class),
+                ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
+        );
+    }
+
     /**
      * Powinien zwrócić zadania przypisane do użytkownika.
      */
@@ -235,6 +284,42 @@ class TaskServiceTest {
         assertEquals(task, result.get(0));
     }
 
+    /**
+     * Lista zadań projektu powinna pochodzić z projekcji, bez ładowania encji Task.
+     */
+    @Test
+    @DisplayName("Pobieranie zadań projektu z przypisanymi użytkownikami (projekcja)")
+    void getAllTasksForProjectWithAssignee_ShouldUseProjection() {
+        TaskWithAssigneeResponse row = new TaskWithAssigneeResponse(task.getId(), task.getTitle(), null,
+                TaskStatus.TODO, TaskPriority.HIGH, null, null, null, assignedTo.getFirstName(), assignedTo.getLastName());
+        when(projectRepository.existsById(project.getId())).thenReturn(true);
+        when(taskRepository.findWithAssigneeByProjectId(project.getId())).thenReturn(List.of(row));
+
+        List<TaskWithAssigneeResponse> result = taskService.getAllTasksForProjectWithAssignee(project.getId());
+
+        assertEquals(List.of(row), result);
+        assertEquals("TODO", result.get(0).getStatus());
+        verify(taskRepository, never()).findByProject(any());
+    }
+
+    /**
+     * Lista zadań użytkownika powinna być pobierana projekcją po identyfikatorze użytkownika.
+     */
+    @Test
+    @DisplayName("Pobieranie zadań użytkownika z przypisanymi użytkownikami (projekcja)")
+    void getTasksForUserWithAssignee_ShouldUseProjection() {
+        TaskWithAssigneeResponse row = new TaskWithAssigneeResponse(task.getId(), task.getTitle(), null,
+                TaskStatus.TODO, null, null, null, null, user.getFirstName(), user.getLastName());
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(taskRepository.findWithAssigneeByAssigneeId(user.getId())).thenReturn(List.of(row));
+
+        List<TaskWithAssigneeResponse> result = taskService.getTasksForUserWithAssignee(user.getEmail());
+
+        assertEquals(List.of(row), result);
+        assertNull(result.get(0).getPriority());
+        verify(taskRepository, never()).findByAssignedTo(any());
+    }
+
     /**
      * Powinien zwrócić szczegóły zadania z przypisanym użytkownikiem.
      */
@@ -250,6 +335,31 @@ class TaskServiceTest {
         assertEquals(assignedTo.getFirstName(), response.getAssignedFirstName());
     }
 
+    /**
+     * Powinien odczytać zadanie z bazy tylko raz, a po zapisie przez węzeł odczytać je ponownie.
+     */
+    @Test
+    @DisplayName("Cache odczytu zadania i jego unieważnienie po zapisie")
+    void getTaskWithAssigneeById_ShouldUseCacheUntilTaskIsWritten() {
+        when(taskRepository.findById(task.getId())).thenReturn(Optional.of(task));
+        when(taskCommandClient.send(
+                eq(TaskRabbitMqConfig.TASK_REVIEW_ROUTING_KEY),
+                any(SetTaskStatusCommand.class),
+                ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
+        )).thenReturn(CompletableFuture.completedFuture(
+                new TaskOperationResult(true, task.getId(), null, null, snapshotOf(task), null, false)));
+
+        taskService.getTaskWithAssigneeById(task.getId());
+        taskService.getTaskWithAssigneeById(task.getId());
+        verify(taskRepository, times(1)).findById(task.getId());
+
+        taskService.setTaskStatusToReview(task.getId()).join();
+        taskService.getTaskWithAssigneeById(task.getId());
+
+        verify(taskRepository, times(2)).findById(task.getId());
+        verify(taskReadCache).evict(task.getId());
+    }
+
     /**
      * Powinien zwrócić szczegóły zadania z twórcą.
      */
@@ -271,25 +381,163 @@ class TaskServiceTest {
     @Test
     @DisplayName("Zmiana statusu zadania na TO_REVIEW")
     void setTaskStatusToReview_ShouldUpdateStatus() {
-        when(rabbitTemplate.convertSendAndReceiveAsType(
-                eq(TaskRabbitMqConfig.TASK_EXCHANGE),
+        when(taskCommandClient.send(
                 eq(TaskRabbitMqConfig.TASK_REVIEW_ROUTING_KEY),
                 any(SetTaskStatusCommand.class),
                 ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
-        )).thenReturn(new TaskOperationResult(true, task.getId(), null, null));
-        task.setStatus(TaskStatus.TO_REVIEW);
-        when(taskRepository.findById(task.getId())).thenReturn(Optional.of(task));
+        )).thenAnswer(invocation -> {
+            task.setStatus(TaskStatus.TO_REVIEW);
+            return CompletableFuture.completedFuture(new TaskOperationResult(true, task.getId(), null, null, snapshotOf(task), null, false));
+        });
 
-        TaskWithAssigneeResponse response = taskService.setTaskStatusToReview(task.getId());
+        TaskWithAssigneeResponse response = taskService.setTaskStatusToReview(task.getId()).join();
 
         assertNotNull(response);
         assertEquals("TO_REVIEW", response.getStatus());
-        verify(rabbitTemplate).convertSendAndReceiveAsType(
-                eq(TaskRabbitMqConfig.TASK_EXCHANGE),
+        verify(taskCommandClient).send(
                 eq(TaskRabbitMqConfig.TASK_REVIEW_ROUTING_KEY),
                 any(SetTaskStatusCommand.class),
                 ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
         );
-        verify(taskRepository, never()).save(any(Task.class));
+        verifyNoInteractions(taskRepository);
+    }
+
+    /**
+     * Powinien zakończyć future wyjątkiem, gdy węzeł zwróci błąd operacji.
+     */
+    @Test
+    @DisplayName("Błąd operacji zwrócony przez węzeł")
+    void updateTask_ShouldFailWhenNodeReturnsError() {
+        when(taskCommandClient.send(
+                eq(TaskRabbitMqConfig.TASK_UPDATE_ROUTING_KEY),
+                any(UpdateTaskCommand.class),
+                ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
+        )).thenReturn(CompletableFuture.completedFuture(new TaskOperationResult(false, null, null, "Task not found", null, null, false)));
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> taskService.updateTask(task.getId(), new UpdateTaskRequest()).join());
+
+        assertEquals("Task not found", exception.getCause().getMessage());
+        verify(taskRepository, never()).findById(any());
+    }
+
+    /**
+     * Powinien przekazać wersję z żądania do węzła i zgłosić konflikt, gdy węzeł odrzuci nieaktualną wersję.
+     */
+    @Test
+    @DisplayName("Konflikt wersji przy aktualizacji zadania")
+    void updateTask_ShouldFailWithConflict_WhenNodeRejectsStaleVersion() {
+        UpdateTaskRequest request = new UpdateTaskRequest();
+        request.setTitle("Nowy tytuł");
+        request.setVersion(3L);
+        when(taskCommandClient.send(
+                eq(TaskRabbitMqConfig.TASK_UPDATE_ROUTING_KEY),
+                argThat((UpdateTaskCommand command) -> Long.valueOf(3L).equals(command.getVersion())),
+                ArgumentMatchers.<ParameterizedTypeReference<TaskOperationResult>>any()
+        )).thenReturn(CompletableFuture.completedFuture(new TaskOperationResult(
+                false, null, null, "Task was modified by another request", null, null, true)));
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> taskService.updateTask(task.getId(), request).join());
+
+        assertInstanceOf(TaskConflictException.class, exception.getCause());
+        assertEquals("Task was modified by another request", exception.getCause().getMessage());
+    }
+
+    /**
+     * Powinien zwrócić pierwszą stronę i kursor wskazujący ostatni element strony.
+     */
+    @Test
+    @DisplayName("Pierwsza strona zadań z kursorem następnej strony")
+    void getTaskPageForUser_ShouldReturnPageWithNextCursor() {
+        LocalDateTime now = LocalDateTime.now();
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(taskRepository.findTaskPage(any(TaskPageQuery.class))).thenReturn(List.of(
+                pageRow(3L, now), pageRow(2L, now.minusMinutes(1)), pageRow(1L, now.minusMinutes(2))));
+
+        TaskPageResponse page = taskService.getTaskPageForUser(user.getEmail(), new TaskPageRequest());
+
+        assertEquals(2, page.getItems().size());
+        assertNotNull(page.getNextCursor());
+        ArgumentCaptor<TaskPageQuery> query = ArgumentCaptor.forClass(TaskPageQuery.class);
+        verify(taskRepository).findTaskPage(query.capture());
+        assertEquals(user.getId(), query.getValue().assigneeId());
+        assertEquals(3, query.getValue().limit());
+        assertFalse(query.getValue().ascending());
+        assertNull(query.getValue().afterId());
+    }
+
+    /**
+     * Kursor z poprzedniej strony powinien zostać przekazany jako warunek keyset.
+     */
+    @Test
+    @DisplayName("Kolejna strona zadań na podstawie kursora")
+    void getAllTaskPageForProject_ShouldApplyCursorAndFilters() {
+        LocalDateTime updatedAt = LocalDateTime.of(2025, 5, 1, 12, 30);
+        when(projectRepository.existsById(project.getId())).thenReturn(true);
+        when(taskRepository.findTaskPage(any(TaskPageQuery.class)))
+                .thenReturn(List.of(pageRow(7L, updatedAt), pageRow(6L, updatedAt)))
+                .thenReturn(List.of(pageRow(6L, updatedAt), pageRow(5L, updatedAt)));
+
+        TaskPageRequest request = new TaskPageRequest();
+        request.setStatus(TaskStatus.TODO);
+        request.setSize(10);
+        TaskPageResponse first = taskService.getAllTaskPageForProject(project.getId(), request);
+        assertNull(first.getNextCursor());
+
+        request.setSize(1);
+        TaskPageResponse second = taskService.getAllTaskPageForProject(project.getId(), request);
+        request.setCursor(second.getNextCursor());
+        taskService.getAllTaskPageForProject(project.getId(), request);
+
+        ArgumentCaptor<TaskPageQuery> query = ArgumentCaptor.forClass(TaskPageQuery.class);
+        verify(taskRepository, times(3)).findTaskPage(query.capture());
+        TaskPageQuery last = query.getAllValues().get(2);
+        assertEquals(project.getId(), last.projectId());
+        assertEquals(TaskStatus.TODO, last.status());
+        assertEquals(updatedAt, last.afterUpdatedAt());
+        assertEquals(6L, last.afterId());
+        assertEquals(4, query.getAllValues().get(0).limit());
+    }
+
+    /**
+     * Niepoprawny kursor powinien zakończyć się błędem walidacji.
+     */
+    @Test
+    @DisplayName("Niepoprawny kursor strony zadań")
+    void getTaskPageForUser_ShouldRejectInvalidCursor() {
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        TaskPageRequest request = new TaskPageRequest();
+        request.setCursor("not-a-cursor");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> taskService.getTaskPageForUser(user.getEmail(), request));
+
+        assertEquals("Invalid cursor", exception.getMessage());
+        verify(taskRepository, never()).findTaskPage(any());
+    }
+
+    private TaskWithAssigneeResponse pageRow(Long id, LocalDateTime updatedAt) {
+        return new TaskWithAssigneeResponse(id, "Zadanie " + id, null, "TODO", "HIGH",
+                updatedAt, updatedAt, null, "Anna", "Nowak");
+    }
+
+    private TaskSnapshot snapshotOf(Task source) {
+        return new TaskSnapshot(
+                source.getId(),
+                source.getProject().getId(),
+                source.getTitle(),
+                source.getDescription(),
+                source.getStatus(),
+                source.getPriority(),
+                source.getCreatedAt(),
+                source.getUpdatedAt(),
+                source.getDueDate(),
+                source.getAssignedTo().getId(),
+                source.getAssignedTo().getFirstName(),
+                source.getAssignedTo().getLastName(),
+                source.getAssignedTo().getEmail(),
+                source.getVersion()
+        );
     }
 }
@@ -1,4 +1,4 @@
-import { useState, useEffect } from "react";
+import { useState, useEffect, useRef } from "react";
 import { useParams, useNavigate } from "react-router-dom";
 import { useAuth } from "@/auth/AuthProvider";
 import { Card, CardContent, CardHeader, CardTitle } from "@/components/ui/card";
@@ -41,6 +41,8 @@ const AddTask = () => {
   const { getToken } = useAuth();
   const [members, setMembers] = useState([]);
   const [loading, setLoading] = useState(true);
+  // Ten sam klucz przy ponownym wyslaniu formularza - serwer nie utworzy zadania drugi raz
+  const idempotencyKey = useRef(crypto.randomUUID());
   const [form, setForm] = useState({
     title: "",
     description: "",
@@ -120,7 +122,12 @@ const AddTask = () => {
           ...form,
           dueDate: dueDateFormatted,
         },
-        { headers: { Authorization: `Bearer ${getToken()}` } }
+        {
+          headers: {
+            Authorization: `Bearer ${getToken()}`,
+            "Idempotency-Key": idempotencyKey.current,
+          },
+        }
       );
       toast.success("Zadanie zostało dodane");
       navigate(`/dashboard/projects/${projectId}`);
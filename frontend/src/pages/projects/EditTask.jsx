@@ -41,6 +41,7 @@ const EditTask = () => {
   const { getToken } = useAuth();
   const [loading, setLoading] = useState(true);
   const [saving, setSaving] = useState(false);
+  const [version, setVersion] = useState(null);
   const [form, setForm] = useState({
     title: "",
     description: "",
@@ -63,6 +64,7 @@ const EditTask = () => {
           priority: t.priority || "LOW",
           dueDate: t.dueDate ? t.dueDate.slice(0, 16) : "",
         });
+        setVersion(t.version ?? null);
       } catch (error) {
         toast.error("Nie udało się pobrać zadania");
       } finally {
@@ -130,6 +132,7 @@ const EditTask = () => {
         {
           ...form,
           dueDate: form.dueDate ? form.dueDate : null,
+          version,
         },
         {
           headers: { Authorization: `Bearer ${getToken()}` },
@@ -138,6 +141,10 @@ const EditTask = () => {
       toast.success("Zadanie zaktualizowane");
       navigate(`/dashboard/projects/${id}/tasks/${taskId}`);
     } catch (error) {
+      if (error.response?.status === 409) {
+        toast.error("Zadanie zostało w międzyczasie zmienione - odśwież stronę i spróbuj ponownie");
+        return;
+      }
       toast.error("Nie udało się zaktualizować zadania");
     } finally {
       setSaving(false);
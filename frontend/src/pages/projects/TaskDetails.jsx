@@ -38,6 +38,8 @@ const TaskDetails = () => {
   const [commentText, setCommentText] = useState("");
   const [addingComment, setAddingComment] = useState(false);
   const commentInputRef = useRef(null);
+  // Klucz ponowien dodawania komentarza - zmieniany dopiero po udanym dodaniu
+  const commentIdempotencyKey = useRef(crypto.randomUUID());
 
   // Pobierz szczegóły zadania
   useEffect(() => {
@@ -83,8 +85,14 @@ const TaskDetails = () => {
       await api.post(
         `/tasks/${taskId}/comments`,
         { comment: commentText },
-        { headers: { Authorization: `Bearer ${getToken()}` } }
+        {
+          headers: {
+            Authorization: `Bearer ${getToken()}`,
+            "Idempotency-Key": commentIdempotencyKey.current,
+          },
+        }
       );
+      commentIdempotencyKey.current = crypto.randomUUID();
       setCommentText("");
       // Odśwież komentarze po dodaniu
       const response = await api.get(`/tasks/${taskId}/comments`, {
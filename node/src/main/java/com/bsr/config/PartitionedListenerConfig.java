@@ -0,0 +1,129 @@
+package com.bsr.config;
+
+import com.bsr.messaging.AddTaskCommentCommand;
+import com.bsr.messaging.CreateTaskCommand;
+import com.bsr.messaging.DeleteTaskCommand;
+import com.bsr.messaging.SetTaskStatusCommand;
+import com.bsr.messaging.TaskBatchListener;
+import com.bsr.messaging.TaskCreationListener;
+import com.bsr.messaging.TaskOperationListener;
+import com.bsr.messaging.UpdateTaskCommand;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.listener.MethodRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Rejestruje listenery zapisu dla każdej partycji ({@code tasks.partitions > 1}).
+ * Endpointy wskazują na te same metody co listenery z adnotacjami, więc obsługa odpowiedzi
+ * i konwersja poleceń są identyczne; różni się tylko kolejka i identyfikator listenera.
+ * Listenery startuje {@link com.bsr.service.LeaderElectionService} dla partycji, których węzeł jest właścicielem.
+ */
+@Configuration
+public class PartitionedListenerConfig implements RabbitListenerConfigurer {
+    private final TaskCreationListener taskCreationListener;
+    private final TaskOperationListener taskOperationListener;
+    private final TaskBatchListener taskBatchListener;
+    private final RabbitListenerContainerFactory<?> batchContainerFactory;
+    private final RabbitListenerContainerFactory<?> writeContainerFactory;
+    private final int partitions;
+    private final boolean batchListenersEnabled;
+
+    public PartitionedListenerConfig(
+            TaskCreationListener taskCreationListener,
+            TaskOperationListener taskOperationListener,
+            TaskBatchListener taskBatchListener,
+            @Qualifier(TaskRabbitMqConfig.BATCH_CONTAINER_FACTORY) RabbitListenerContainerFactory<?> batchContainerFactory,
+            @Qualifier(TaskRabbitMqConfig.WRITE_CONTAINER_FACTORY) RabbitListenerContainerFactory<?> writeContainerFactory,
+            @Value("${tasks.partitions:1}") int partitions,
+            @Value("${node.listener.batch.enabled:false}") boolean batchListenersEnabled) {
+        this.taskCreationListener = taskCreationListener;
+        this.taskOperationListener = taskOperationListener;
+        this.taskBatchListener = taskBatchListener;
+        this.batchContainerFactory = batchContainerFactory;
+        this.writeContainerFactory = writeContainerFactory;
+        this.partitions = partitions;
+        this.batchListenersEnabled = batchListenersEnabled;
+    }
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        if (partitions <= 1) {
+            return;
+        }
+        DefaultMessageHandlerMethodFactory handlerMethodFactory = new DefaultMessageHandlerMethodFactory();
+        handlerMethodFactory.afterPropertiesSet();
+
+        for (int partition = 0; partition < partitions; partition++) {
+            for (PartitionEndpoint endpoint : endpoints()) {
+                MethodRabbitListenerEndpoint listenerEndpoint = new MethodRabbitListenerEndpoint();
+                listenerEndpoint.setId(TaskRabbitMqConfig.partitionListenerId(endpoint.listenerId(), partition));
+                listenerEndpoint.setQueueNames(TaskRabbitMqConfig.partitionQueue(endpoint.queue(), partition));
+                listenerEndpoint.setBean(endpoint.bean());
+                listenerEndpoint.setMethod(endpoint.method());
+                listenerEndpoint.setMessageHandlerMethodFactory(handlerMethodFactory);
+                listenerEndpoint.setAutoStartup(false);
+                if (endpoint.batch()) {
+                    listenerEndpoint.setBatchListener(true);
+                    registrar.registerEndpoint(listenerEndpoint, batchContainerFactory);
+                } else {
+                    registrar.registerEndpoint(listenerEndpoint, writeContainerFactory);
+                }
+            }
+        }
+    }
+
+    private List<PartitionEndpoint> endpoints() {
+        if (batchListenersEnabled) {
+            return List.of(
+                    batch(TaskRabbitMqConfig.TASK_CREATE_QUEUE, TaskRabbitMqConfig.TASK_CREATE_BATCH_LISTENER_ID, "createBatch"),
+                    batch(TaskRabbitMqConfig.TASK_UPDATE_QUEUE, TaskRabbitMqConfig.TASK_UPDATE_BATCH_LISTENER_ID, "updateBatch"),
+                    single(TaskRabbitMqConfig.TASK_DELETE_QUEUE, TaskRabbitMqConfig.TASK_DELETE_LISTENER_ID,
+                            taskOperationListener, "delete", DeleteTaskCommand.class),
+                    single(TaskRabbitMqConfig.TASK_REVIEW_QUEUE, TaskRabbitMqConfig.TASK_REVIEW_LISTENER_ID,
+                            taskOperationListener, "setStatus", SetTaskStatusCommand.class),
+                    batch(TaskRabbitMqConfig.TASK_COMMENT_QUEUE, TaskRabbitMqConfig.TASK_COMMENT_BATCH_LISTENER_ID, "commentBatch")
+            );
+        }
+        return List.of(
+                single(TaskRabbitMqConfig.TASK_CREATE_QUEUE, TaskRabbitMqConfig.TASK_CREATE_LISTENER_ID,
+                        taskCreationListener, "handle", CreateTaskCommand.class),
+                single(TaskRabbitMqConfig.TASK_UPDATE_QUEUE, TaskRabbitMqConfig.TASK_UPDATE_LISTENER_ID,
+                        taskOperationListener, "update", UpdateTaskCommand.class),
+                single(TaskRabbitMqConfig.TASK_DELETE_QUEUE, TaskRabbitMqConfig.TASK_DELETE_LISTENER_ID,
+                        taskOperationListener, "delete", DeleteTaskCommand.class),
+                single(TaskRabbitMqConfig.TASK_REVIEW_QUEUE, TaskRabbitMqConfig.TASK_REVIEW_LISTENER_ID,
+                        taskOperationListener, "setStatus", SetTaskStatusCommand.class),
+                single(TaskRabbitMqConfig.TASK_COMMENT_QUEUE, TaskRabbitMqConfig.TASK_COMMENT_LISTENER_ID,
+                        taskOperationListener, "addComment", AddTaskCommentCommand.class)
+        );
+    }
+
+    private PartitionEndpoint single(String queue, String listenerId, Object bean, String methodName, Class<?> commandType) {
+        return new PartitionEndpoint(queue, listenerId, bean, findMethod(bean, methodName, commandType), false);
+    }
+
+    private PartitionEndpoint batch(String queue, String listenerId, String methodName) {
+        return new PartitionEndpoint(queue, listenerId, taskBatchListener,
+                findMethod(taskBatchListener, methodName, List.class), true);
+    }
+
+    private Method findMethod(Object bean, String methodName, Class<?> parameterType) {
+        Method method = ReflectionUtils.findMethod(bean.getClass(), methodName, parameterType);
+        if (method == null) {
+            throw new IllegalStateException("Listener method " + methodName + " not found on " + bean.getClass().getName());
+        }
+        return method;
+    }
+
+    private record PartitionEndpoint(String queue, String listenerId, Object bean, Method method, boolean batch) {
+    }
+}
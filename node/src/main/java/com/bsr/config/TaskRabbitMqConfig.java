@@ -1,15 +1,25 @@
 package com.bsr.config;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 
 @Configuration
 public class TaskRabbitMqConfig {
@@ -24,11 +34,17 @@ public class TaskRabbitMqConfig {
     public static final String TASK_DELETE_ROUTING_KEY = "tasks.delete";
     public static final String TASK_REVIEW_ROUTING_KEY = "tasks.review";
     public static final String TASK_COMMENT_ROUTING_KEY = "tasks.comment";
+    public static final String TASK_CHANGED_EXCHANGE = "tasks.changed";
     public static final String TASK_CREATE_LISTENER_ID = "taskCreateListener";
     public static final String TASK_UPDATE_LISTENER_ID = "taskUpdateListener";
     public static final String TASK_DELETE_LISTENER_ID = "taskDeleteListener";
     public static final String TASK_REVIEW_LISTENER_ID = "taskReviewListener";
     public static final String TASK_COMMENT_LISTENER_ID = "taskCommentListener";
+    public static final String TASK_CREATE_BATCH_LISTENER_ID = "taskCreateBatchListener";
+    public static final String TASK_UPDATE_BATCH_LISTENER_ID = "taskUpdateBatchListener";
+    public static final String TASK_COMMENT_BATCH_LISTENER_ID = "taskCommentBatchListener";
+    public static final String BATCH_CONTAINER_FACTORY = "taskBatchListenerContainerFactory";
+    public static final String WRITE_CONTAINER_FACTORY = "taskWriteListenerContainerFactory";
     public static final List<String> WRITE_LISTENER_IDS = List.of(
             TASK_CREATE_LISTENER_ID,
             TASK_UPDATE_LISTENER_ID,
@@ -36,6 +52,32 @@ public class TaskRabbitMqConfig {
             TASK_REVIEW_LISTENER_ID,
             TASK_COMMENT_LISTENER_ID
     );
+    // Tryb wsadowy: create/update/comment obsługują listenery paczek, delete/review zostają pojedyncze
+    public static final List<String> BATCH_WRITE_LISTENER_IDS = List.of(
+            TASK_CREATE_BATCH_LISTENER_ID,
+            TASK_UPDATE_BATCH_LISTENER_ID,
+            TASK_DELETE_LISTENER_ID,
+            TASK_REVIEW_LISTENER_ID,
+            TASK_COMMENT_BATCH_LISTENER_ID
+    );
+    public static final List<String> PARTITIONED_QUEUES = List.of(
+            TASK_CREATE_QUEUE,
+            TASK_UPDATE_QUEUE,
+            TASK_DELETE_QUEUE,
+            TASK_REVIEW_QUEUE,
+            TASK_COMMENT_QUEUE
+    );
+
+    /**
+     * Nazwa kolejki (i klucza routingu) partycji, np. {@code tasks.update.p3}.
+     */
+    public static String partitionQueue(String queue, int partition) {
+        return queue + ".p" + partition;
+    }
+
+    public static String partitionListenerId(String listenerId, int partition) {
+        return listenerId + "-p" + partition;
+    }
 
     @Bean
     public Queue taskCreateQueue() {
@@ -92,8 +134,81 @@ public class TaskRabbitMqConfig {
         return BindingBuilder.bind(taskCommentQueue).to(taskExchange).with(TASK_COMMENT_ROUTING_KEY);
     }
 
+    /**
+     * Zdarzenia zatwierdzonych zmian zadań dla cache odczytów backendu; kolejki deklaruje backend.
+     */
+    @Bean
+    public FanoutExchange taskChangedExchange() {
+        return new FanoutExchange(TASK_CHANGED_EXCHANGE, true, false);
+    }
+
+    /**
+     * Kolejki partycji deklarowane przy {@code tasks.partitions > 1}; nazwa kolejki jest jednocześnie kluczem routingu.
+     */
+    @Bean
+    public Declarables taskPartitionDeclarables(
+            @Value("${tasks.partitions:1}") int partitions,
+            DirectExchange taskExchange) {
+        List<Declarable> declarables = new ArrayList<>();
+        if (partitions > 1) {
+            for (String queueName : PARTITIONED_QUEUES) {
+                for (int partition = 0; partition < partitions; partition++) {
+                    Queue queue = new Queue(partitionQueue(queueName, partition), true);
+                    declarables.add(queue);
+                    declarables.add(BindingBuilder.bind(queue).to(taskExchange).with(queue.getName()));
+                }
+            }
+        }
+        return new Declarables(declarables);
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
     }
+
+    /**
+     * Fabryka kontenerów dla pojedynczych poleceń zapisu. Konsumenci działają na wątkach wirtualnych
+     * i tylko przekazują polecenia do torów {@link com.bsr.messaging.TaskLaneDispatcher} (skrót taskId),
+     * więc równoległość daje liczba torów, a kolejność poleceń jednego zadania jest zachowana.
+     * Potwierdzenie jest ręczne - wysyłane po zakończeniu polecenia - więc prefetch ogranicza
+     * liczbę poleceń w toku na kolejkę.
+     */
+    @Bean(name = WRITE_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory taskWriteListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${node.listener.prefetch:250}") int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        SimpleAsyncTaskExecutor consumerExecutor = new SimpleAsyncTaskExecutor("task-consumer-");
+        consumerExecutor.setVirtualThreads(true);
+        factory.setTaskExecutor(consumerExecutor);
+        // Jeden konsument na kolejkę: kilku konsumentów mogłoby przestawić polecenia tego samego zadania
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(Math.max(1, prefetch));
+        return factory;
+    }
+
+    /**
+     * Fabryka kontenerów dla listenerów paczek - konsument zbiera do batch-size wiadomości
+     * albo czeka maksymalnie receive-timeout-ms na dopełnienie paczki.
+     */
+    @Bean(name = BATCH_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory taskBatchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${node.listener.batch.size:50}") int batchSize,
+            @Value("${node.listener.batch.receive-timeout-ms:20}") long receiveTimeoutMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setPrefetchCount(Math.max(batchSize, 250));
+        return factory;
+    }
 }
@@ -7,8 +7,9 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class AddTaskCommentCommand {
+public class AddTaskCommentCommand implements IdempotentCommand {
     private Long taskId;
     private String comment;
     private String authorEmail;
+    private String idempotencyKey;
 }
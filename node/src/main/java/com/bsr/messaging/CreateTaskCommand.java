@@ -12,7 +12,7 @@ import java.util.UUID;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class CreateTaskCommand {
+public class CreateTaskCommand implements IdempotentCommand {
     private UUID projectId;
     private String title;
     private String description;
@@ -21,4 +21,5 @@ public class CreateTaskCommand {
     private LocalDateTime dueDate;
     private Long assignedToId;
     private String createdByEmail;
+    private String idempotencyKey;
 }
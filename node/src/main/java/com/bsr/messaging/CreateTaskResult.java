@@ -11,12 +11,13 @@ public class CreateTaskResult {
     private boolean success;
     private Long taskId;
     private String errorMessage;
+    private TaskSnapshot task;
 
-    public static CreateTaskResult success(Long taskId) {
-        return new CreateTaskResult(true, taskId, null);
+    public static CreateTaskResult success(TaskSnapshot task) {
+        return new CreateTaskResult(true, task.getId(), null, task);
     }
 
     public static CreateTaskResult failure(String errorMessage) {
-        return new CreateTaskResult(false, null, errorMessage);
+        return new CreateTaskResult(false, null, errorMessage, null);
     }
 }
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class DeleteTaskCommand {
+public class DeleteTaskCommand implements IdempotentCommand {
     private Long taskId;
+    private String idempotencyKey;
 }
@@ -0,0 +1,32 @@
+package com.bsr.messaging;
+
+import org.springframework.amqp.core.MessageProperties;
+
+/**
+ * Polecenie zapisu z kluczem idempotencji ({@code task_command_dedup}). Klucz podaje klient
+ * (nagłówek {@code Idempotency-Key} przy utworzeniu zadania i komentarza); bez niego węzeł używa
+ * identyfikatora wiadomości AMQP, więc ponowne doręczenie tej samej wiadomości - np. po utracie
+ * odpowiedzi lub potwierdzenia - zwraca zapisany wynik zamiast wykonywać polecenie drugi raz.
+ */
+public interface IdempotentCommand {
+    String MESSAGE_KEY_PREFIX = "message:";
+
+    String getIdempotencyKey();
+
+    void setIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Ustawia klucz z correlationId (a gdy go brak - messageId) wiadomości, jeśli klient nie podał własnego.
+     */
+    default void useMessageKeyIfAbsent(MessageProperties properties) {
+        if (getIdempotencyKey() != null) {
+            return;
+        }
+        String messageKey = properties.getCorrelationId() != null
+                ? properties.getCorrelationId()
+                : properties.getMessageId();
+        if (messageKey != null) {
+            setIdempotencyKey(MESSAGE_KEY_PREFIX + messageKey);
+        }
+    }
+}
@@ -8,7 +8,8 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class SetTaskStatusCommand {
+public class SetTaskStatusCommand implements IdempotentCommand {
     private Long taskId;
     private TaskStatus status;
+    private String idempotencyKey;
 }
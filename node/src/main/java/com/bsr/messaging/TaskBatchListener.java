@@ -0,0 +1,141 @@
+package com.bsr.messaging;
+
+import com.bsr.config.TaskRabbitMqConfig;
+import com.bsr.service.FaultInjectionService;
+import com.bsr.service.TaskCreationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Listenery paczek poleceń (tryb {@code node.listener.batch.enabled=true}).
+ * Paczka jest zapisywana w jednej transakcji, a każde polecenie dostaje własną odpowiedź
+ * skorelowaną z żądaniem. Jeśli cała paczka się nie powiedzie, polecenia są powtarzane
+ * pojedynczo, aby błąd jednego z nich nie oznaczał błędu pozostałych. Konflikt wersji wykryty
+ * dopiero przy zapisie (flush) jest wtedy zwracany jako konflikt, a nie ogólny błąd.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TaskBatchListener {
+    private final TaskCreationService taskCreationService;
+    private final FaultInjectionService faultInjectionService;
+    private final TaskReplySender taskReplySender;
+    private final MessageConverter jsonMessageConverter;
+
+    @RabbitListener(
+            id = TaskRabbitMqConfig.TASK_CREATE_BATCH_LISTENER_ID,
+            queues = TaskRabbitMqConfig.TASK_CREATE_QUEUE,
+            containerFactory = TaskRabbitMqConfig.BATCH_CONTAINER_FACTORY,
+            autoStartup = "false"
+    )
+    public void createBatch(List<Message> messages) {
+        process(messages, CreateTaskCommand.class, "CREATE_TASK",
+                taskCreationService::createTasks, exception -> CreateTaskResult.failure(exception.getMessage()));
+    }
+
+    @RabbitListener(
+            id = TaskRabbitMqConfig.TASK_UPDATE_BATCH_LISTENER_ID,
+            queues = TaskRabbitMqConfig.TASK_UPDATE_QUEUE,
+            containerFactory = TaskRabbitMqConfig.BATCH_CONTAINER_FACTORY,
+            autoStartup = "false"
+    )
+    public void updateBatch(List<Message> messages) {
+        process(messages, UpdateTaskCommand.class, "UPDATE_TASK",
+                taskCreationService::updateTasks, TaskBatchListener::updateFailure);
+    }
+
+    @RabbitListener(
+            id = TaskRabbitMqConfig.TASK_COMMENT_BATCH_LISTENER_ID,
+            queues = TaskRabbitMqConfig.TASK_COMMENT_QUEUE,
+            containerFactory = TaskRabbitMqConfig.BATCH_CONTAINER_FACTORY,
+            autoStartup = "false"
+    )
+    public void commentBatch(List<Message> messages) {
+        process(messages, AddTaskCommentCommand.class, "ADD_COMMENT",
+                taskCreationService::addComments, exception -> TaskOperationResult.failure(exception.getMessage()));
+    }
+
+    private static TaskOperationResult updateFailure(Exception exception) {
+        if (exception instanceof OptimisticLockingFailureException) {
+            return TaskOperationResult.conflict();
+        }
+        return TaskOperationResult.failure(exception.getMessage());
+    }
+
+    private <C extends IdempotentCommand, R> void process(
+            List<Message> messages,
+            Class<C> commandType,
+            String operation,
+            Function<List<C>, List<R>> batchOperation,
+            Function<Exception, R> failure) {
+        List<Message> requests = new ArrayList<>(messages.size());
+        List<C> commands = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            try {
+                C command = convert(message, commandType);
+                command.useMessageKeyIfAbsent(message.getMessageProperties());
+                commands.add(command);
+                requests.add(message);
+            } catch (MessageConversionException exception) {
+                taskReplySender.reply(message, failure.apply(
+                        new MessageConversionException("Invalid command: " + exception.getMessage(), exception)));
+            }
+        }
+        if (commands.isEmpty()) {
+            return;
+        }
+
+        // Awarie wstrzykiwane są raz na paczkę - jak dla pojedynczej wiadomości z punktu widzenia klienta
+        try {
+            faultInjectionService.applyFaults(operation);
+        } catch (Exception exception) {
+            requests.forEach(request -> taskReplySender.reply(request, failure.apply(exception)));
+            return;
+        }
+
+        List<R> results;
+        try {
+            results = batchOperation.apply(commands);
+        } catch (Exception exception) {
+            log.warn("Batch of {} {} commands failed ({}), retrying one by one",
+                    commands.size(), operation, exception.getMessage());
+            results = new ArrayList<>(commands.size());
+            for (C command : commands) {
+                results.add(applySingle(command, batchOperation, failure));
+            }
+        }
+
+        for (int i = 0; i < requests.size(); i++) {
+            taskReplySender.reply(requests.get(i), results.get(i));
+        }
+    }
+
+    private <C, R> R applySingle(C command, Function<List<C>, List<R>> batchOperation, Function<Exception, R> failure) {
+        try {
+            return batchOperation.apply(List.of(command)).get(0);
+        } catch (Exception exception) {
+            return failure.apply(exception);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C> C convert(Message message, Class<C> commandType) {
+        // Nagłówek __TypeId__ wskazuje klasę backendu - typ polecenia wyznaczamy po stronie węzła
+        message.getMessageProperties().setInferredArgumentType(commandType);
+        Object command = jsonMessageConverter.fromMessage(message);
+        if (!commandType.isInstance(command)) {
+            throw new MessageConversionException("Unexpected payload type " + command.getClass().getName());
+        }
+        return (C) command;
+    }
+}
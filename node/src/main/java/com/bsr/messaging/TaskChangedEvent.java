@@ -0,0 +1,17 @@
+package com.bsr.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Powiadomienie o zatwierdzonej zmianie zadania, publikowane na fanout {@code tasks.changed}.
+ * Backend usuwa na jego podstawie zadanie ze swojego cache odczytów.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskChangedEvent {
+    private Long taskId;
+    private String changeType;
+}
@@ -0,0 +1,38 @@
+package com.bsr.messaging;
+
+import com.bsr.model.TaskComment;
+import com.bsr.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stan komentarza po zapisie na węźle, odsyłany w odpowiedzi RPC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskCommentSnapshot {
+    private Long id;
+    private Long taskId;
+    private String comment;
+    private LocalDateTime createdAt;
+    private String authorFirstName;
+    private String authorLastName;
+    private String authorEmail;
+
+    public static TaskCommentSnapshot from(TaskComment comment) {
+        User author = comment.getUser();
+        return new TaskCommentSnapshot(
+                comment.getId(),
+                comment.getTask() != null ? comment.getTask().getId() : null,
+                comment.getComment(),
+                comment.getCreatedAt(),
+                author != null ? author.getFirstName() : null,
+                author != null ? author.getLastName() : null,
+                author != null ? author.getEmail() : null
+        );
+    }
+}
@@ -1,28 +1,35 @@
 package com.bsr.messaging;
 
 import com.bsr.config.TaskRabbitMqConfig;
-import com.bsr.model.Task;
 import com.bsr.service.TaskCreationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
 @Component
 @RequiredArgsConstructor
 public class TaskCreationListener {
     private final TaskCreationService taskCreationService;
+    private final TaskLaneDispatcher taskLaneDispatcher;
 
     @RabbitListener(
             id = TaskRabbitMqConfig.TASK_CREATE_LISTENER_ID,
             queues = TaskRabbitMqConfig.TASK_CREATE_QUEUE,
+            containerFactory = TaskRabbitMqConfig.WRITE_CONTAINER_FACTORY,
             autoStartup = "false"
     )
-    public CreateTaskResult handle(CreateTaskCommand command) {
-        try {
-            Task task = taskCreationService.createTask(command);
-            return CreateTaskResult.success(task.getId());
-        } catch (Exception exception) {
-            return CreateTaskResult.failure(exception.getMessage());
-        }
+    public CompletableFuture<CreateTaskResult> handle(CreateTaskCommand command, Message message) {
+        command.useMessageKeyIfAbsent(message.getMessageProperties());
+        // Nowe zadanie nie ma jeszcze identyfikatora - utworzenia w obrębie projektu zachowują kolejność
+        return taskLaneDispatcher.dispatch(command.getProjectId(), () -> {
+            try {
+                return CreateTaskResult.success(taskCreationService.createTask(command));
+            } catch (Exception exception) {
+                return CreateTaskResult.failure(exception.getMessage());
+            }
+        });
     }
 }
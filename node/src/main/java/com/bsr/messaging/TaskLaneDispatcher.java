@@ -0,0 +1,140 @@
+package com.bsr.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Wykonawca paskowy (striped) poleceń zapisu: polecenie trafia do toru wybranego skrótem klucza
+ * (identyfikatora zadania lub projektu). Polecenia jednego toru wykonują się po kolei, w kolejności
+ * przekazania, a różne tory - równolegle na wątkach wirtualnych. Kolejka toru jest bez blokad
+ * ({@link ConcurrentLinkedQueue} + licznik oczekujących): tor jest uruchamiany tylko przez to
+ * przekazanie, które podniosło licznik z zera, i opróżnia kolejkę, dopóki licznik nie spadnie do zera.
+ * Nierównomierny rozkład kluczy widać w metrykach {@code node.listener.lanes.*}.
+ */
+@Slf4j
+@Component
+public class TaskLaneDispatcher {
+    private final Lane[] lanes;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("task-lane-", 0).factory());
+
+    public TaskLaneDispatcher(
+            @Value("${node.listener.concurrency:0}") int concurrency,
+            MeterRegistry meterRegistry) {
+        int laneCount = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+        this.lanes = new Lane[laneCount];
+        for (int index = 0; index < laneCount; index++) {
+            Lane lane = new Lane(Counter.builder("node.listener.lanes.executed")
+                    .tag("lane", String.valueOf(index))
+                    .description("Polecenia uruchomione w torze")
+                    .register(meterRegistry));
+            Gauge.builder("node.listener.lanes.pending", lane.pending, AtomicInteger::get)
+                    .tag("lane", String.valueOf(index))
+                    .description("Polecenia oczekujące lub wykonywane w torze")
+                    .register(meterRegistry);
+            lanes[index] = lane;
+        }
+        Gauge.builder("node.listener.lanes.imbalance", this, TaskLaneDispatcher::imbalance)
+                .description("Stosunek najbardziej obciążonego toru do średniej (1.0 = równy rozkład)")
+                .register(meterRegistry);
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Tor dla klucza; {@code null} (np. polecenie bez zadania) trafia zawsze do toru 0.
+     */
+    public int laneFor(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        // Mieszanie bitów jak w HashMap, aby kolejne identyfikatory nie trafiały do kolejnych torów
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    /**
+     * Wykonuje pracę w torze klucza; wynik (lub wyjątek) trafia do zwróconego {@link CompletableFuture}.
+     */
+    public <T> CompletableFuture<T> dispatch(Object key, Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        lanes[laneFor(key)].submit(() -> {
+            try {
+                result.complete(work.get());
+            } catch (Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Stosunek liczby poleceń uruchomionych w najbardziej obciążonym torze do średniej na tor.
+     */
+    double imbalance() {
+        double total = 0;
+        double max = 0;
+        for (Lane lane : lanes) {
+            double executed = lane.executed.count();
+            total += executed;
+            max = Math.max(max, executed);
+        }
+        return total == 0 ? 1.0 : max / (total / lanes.length);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Task lanes did not finish pending commands before shutdown");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Counter executed;
+
+        private Lane(Counter executed) {
+            this.executed = executed;
+        }
+
+        void submit(Runnable command) {
+            queue.offer(command);
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                Runnable command = queue.poll();
+                executed.increment();
+                command.run();
+            } while (pending.decrementAndGet() > 0);
+        }
+    }
+}
@@ -1,71 +1,97 @@
 package com.bsr.messaging;
 
 import com.bsr.config.TaskRabbitMqConfig;
-import com.bsr.model.Task;
-import com.bsr.model.TaskComment;
 import com.bsr.service.TaskCreationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Listenery pojedynczych poleceń zapisu. Polecenie jest wykonywane w torze {@link TaskLaneDispatcher}
+ * wybranym po identyfikatorze zadania; kontener wysyła odpowiedź i potwierdza wiadomość
+ * dopiero po zakończeniu zwróconego {@link CompletableFuture}. Ponowne doręczenie tej samej wiadomości
+ * zwraca zapisany wynik ({@link IdempotentCommand}).
+ */
 @Component
 @RequiredArgsConstructor
 public class TaskOperationListener {
     private final TaskCreationService taskCreationService;
+    private final TaskLaneDispatcher taskLaneDispatcher;
 
     @RabbitListener(
             id = TaskRabbitMqConfig.TASK_UPDATE_LISTENER_ID,
             queues = TaskRabbitMqConfig.TASK_UPDATE_QUEUE,
+            containerFactory = TaskRabbitMqConfig.WRITE_CONTAINER_FACTORY,
             autoStartup = "false"
     )
-    public TaskOperationResult update(UpdateTaskCommand command) {
-        try {
-            Task task = taskCreationService.updateTask(command);
-            return TaskOperationResult.success(task.getId());
-        } catch (Exception exception) {
-            return TaskOperationResult.failure(exception.getMessage());
-        }
+    public CompletableFuture<TaskOperationResult> update(UpdateTaskCommand command, Message message) {
+        command.useMessageKeyIfAbsent(message.getMessageProperties());
+        return taskLaneDispatcher.dispatch(command.getTaskId(), () -> {
+            try {
+                return TaskOperationResult.success(taskCreationService.updateTask(command));
+            } catch (OptimisticLockingFailureException exception) {
+                return TaskOperationResult.conflict();
+            } catch (Exception exception) {
+                return TaskOperationResult.failure(exception.getMessage());
+            }
+        });
     }
 
     @RabbitListener(
             id = TaskRabbitMqConfig.TASK_DELETE_LISTENER_ID,
             queues = TaskRabbitMqConfig.TASK_DELETE_QUEUE,
+            containerFactory = TaskRabbitMqConfig.WRITE_CONTAINER_FACTORY,
             autoStartup = "false"
     )
-    public TaskOperationResult delete(DeleteTaskCommand command) {
-        try {
-            taskCreationService.deleteTask(command.getTaskId());
-            return TaskOperationResult.success(command.getTaskId());
-        } catch (Exception exception) {
-            return TaskOperationResult.failure(exception.getMessage());
-        }
+    public CompletableFuture<TaskOperationResult> delete(DeleteTaskCommand command, Message message) {
+        command.useMessageKeyIfAbsent(message.getMessageProperties());
+        return taskLaneDispatcher.dispatch(command.getTaskId(), () -> {
+            try {
+                taskCreationService.deleteTask(command);
+                return TaskOperationResult.success(command.getTaskId());
+            } catch (Exception exception) {
+                return TaskOperationResult.failure(exception.getMessage());
+            }
+        });
     }
 
     @RabbitListener(
             id = TaskRabbitMqConfig.TASK_REVIEW_LISTENER_ID,
             queues = TaskRabbitMqConfig.TASK_REVIEW_QUEUE,
+            containerFactory = TaskRabbitMqConfig.WRITE_CONTAINER_FACTORY,
             autoStartup = "false"
     )
-    public TaskOperationResult setStatus(SetTaskStatusCommand command) {
-        try {
-            Task task = taskCreationService.setTaskStatus(command);
-            return TaskOperationResult.success(task.getId());
-        } catch (Exception exception) {
-            return TaskOperationResult.failure(exception.getMessage());
-        }
+    public CompletableFuture<TaskOperationResult> setStatus(SetTaskStatusCommand command, Message message) {
+        command.useMessageKeyIfAbsent(message.getMessageProperties());
+        return taskLaneDispatcher.dispatch(command.getTaskId(), () -> {
+            try {
+                return TaskOperationResult.success(taskCreationService.setTaskStatus(command));
+            } catch (OptimisticLockingFailureException exception) {
+                return TaskOperationResult.conflict();
+            } catch (Exception exception) {
+                return TaskOperationResult.failure(exception.getMessage());
+            }
+        });
     }
 
     @RabbitListener(
             id = TaskRabbitMqConfig.TASK_COMMENT_LISTENER_ID,
             queues = TaskRabbitMqConfig.TASK_COMMENT_QUEUE,
+            containerFactory = TaskRabbitMqConfig.WRITE_CONTAINER_FACTORY,
             autoStartup = "false"
     )
-    public TaskOperationResult addComment(AddTaskCommentCommand command) {
-        try {
-            TaskComment comment = taskCreationService.addComment(command);
-            return TaskOperationResult.commentSuccess(command.getTaskId(), comment.getId());
-        } catch (Exception exception) {
-            return TaskOperationResult.failure(exception.getMessage());
-        }
+    public CompletableFuture<TaskOperationResult> addComment(AddTaskCommentCommand command, Message message) {
+        command.useMessageKeyIfAbsent(message.getMessageProperties());
+        return taskLaneDispatcher.dispatch(command.getTaskId(), () -> {
+            try {
+                return TaskOperationResult.commentSuccess(taskCreationService.addComment(command));
+            } catch (Exception exception) {
+                return TaskOperationResult.failure(exception.getMessage());
+            }
+        });
     }
 }
@@ -8,20 +8,34 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class TaskOperationResult {
+    public static final String CONFLICT_MESSAGE = "Task was modified by another request";
+
     private boolean success;
     private Long taskId;
     private Long commentId;
     private String errorMessage;
+    private TaskSnapshot task;
+    private TaskCommentSnapshot comment;
+    // Zapis odrzucony z powodu nieaktualnej wersji zadania
+    private boolean conflict;
 
     public static TaskOperationResult success(Long taskId) {
-        return new TaskOperationResult(true, taskId, null, null);
+        return new TaskOperationResult(true, taskId, null, null, null, null, false);
+    }
+
+    public static TaskOperationResult success(TaskSnapshot task) {
+        return new TaskOperationResult(true, task.getId(), null, null, task, null, false);
+    }
+
+    public static TaskOperationResult commentSuccess(TaskCommentSnapshot comment) {
+        return new TaskOperationResult(true, comment.getTaskId(), comment.getId(), null, null, comment, false);
     }
 
-    public static TaskOperationResult commentSuccess(Long taskId, Long commentId) {
-        return new TaskOperationResult(true, taskId, commentId, null);
+    public static TaskOperationResult conflict() {
+        return new TaskOperationResult(false, null, null, CONFLICT_MESSAGE, null, null, true);
     }
 
     public static TaskOperationResult failure(String errorMessage) {
-        return new TaskOperationResult(false, null, null, errorMessage);
+        return new TaskOperationResult(false, null, null, errorMessage, null, null, false);
     }
 }
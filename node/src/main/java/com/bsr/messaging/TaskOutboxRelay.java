@@ -0,0 +1,157 @@
+package com.bsr.messaging;
+
+import com.bsr.config.TaskRabbitMqConfig;
+import com.bsr.repository.TaskOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Przekaźnik outboxa zmian zadań: w jednej transakcji blokuje paczkę wpisów {@code task_outbox},
+ * publikuje je na fanout {@code tasks.changed}, czeka na potwierdzenia brokera (publisher confirms)
+ * i usuwa tylko potwierdzone wpisy. Niepotwierdzony wpis zostaje i jest wysyłany ponownie w kolejnym
+ * przebiegu - zdarzenie może dotrzeć więcej niż raz, ale jego skutek (usunięcie wpisu z cache) jest idempotentny.
+ * Przekaźnik ma własny wątek zamiast wspólnego harmonogramu {@code @Scheduled}: oczekiwanie na potwierdzenia
+ * (do {@code confirm-timeout-ms} na paczkę) nie może opóźnić heartbeatu lidera. Jeden przebieg wysyła najwyżej
+ * {@code node.outbox.max-batches-per-run} paczek, resztę zostawia następnemu.
+ */
+@Slf4j
+@Component
+public class TaskOutboxRelay {
+    private final TaskOutboxRepository taskOutboxRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate relayTransaction;
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+    private final int maxBatchesPerRun;
+    private final long pollIntervalMs;
+    private final ScheduledExecutorService relayExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("task-outbox-relay").factory());
+    private final Counter published;
+    private final Counter unconfirmed;
+
+    public TaskOutboxRelay(
+            TaskOutboxRepository taskOutboxRepository,
+            RabbitTemplate rabbitTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${node.outbox.batch-size:100}") int batchSize,
+            @Value("${node.outbox.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+            @Value("${node.outbox.max-batches-per-run:10}") int maxBatchesPerRun,
+            @Value("${node.outbox.poll-interval-ms:200}") long pollIntervalMs) {
+        this.taskOutboxRepository = taskOutboxRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.relayTransaction = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.pollIntervalMs = Math.max(1, pollIntervalMs);
+        this.published = Counter.builder("node.outbox.published")
+                .description("Zdarzenia outboxa potwierdzone przez brokera")
+                .register(meterRegistry);
+        this.unconfirmed = Counter.builder("node.outbox.unconfirmed")
+                .description("Zdarzenia outboxa odrzucone lub niepotwierdzone - ponawiane w kolejnym przebiegu")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        relayExecutor.scheduleWithFixedDelay(this::relay, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relayExecutor.shutdownNow();
+    }
+
+    /**
+     * Jeden przebieg: kolejne pełne paczki, ale nie więcej niż {@code maxBatchesPerRun}; zwraca liczbę wysłanych paczek.
+     */
+    int relay() {
+        int batches = 0;
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+                batches++;
+            } while (relayed == batchSize && batches < maxBatchesPerRun);
+        } catch (RuntimeException exception) {
+            log.warn("Relaying task outbox failed: {}", exception.getMessage());
+        }
+        return batches;
+    }
+
+    /**
+     * Publikuje jedną paczkę; zwraca liczbę potwierdzonych (i usuniętych) wpisów.
+     */
+    int relayBatch() {
+        Integer confirmed = relayTransaction.execute(status -> {
+            List<TaskOutboxRepository.Entry> entries = taskOutboxRepository.lockBatch(batchSize);
+            if (entries.isEmpty()) {
+                return 0;
+            }
+            List<Long> confirmedIds = publish(entries);
+            if (!confirmedIds.isEmpty()) {
+                taskOutboxRepository.deleteAll(confirmedIds);
+            }
+            published.increment(confirmedIds.size());
+            unconfirmed.increment(entries.size() - confirmedIds.size());
+            return confirmedIds.size();
+        });
+        return confirmed == null ? 0 : confirmed;
+    }
+
+    // Najpierw wysyłka całej paczki, potem oczekiwanie na potwierdzenia - broker potwierdza je zbiorczo
+    private List<Long> publish(List<TaskOutboxRepository.Entry> entries) {
+        List<CorrelationData> correlations = new ArrayList<>(entries.size());
+        for (TaskOutboxRepository.Entry entry : entries) {
+            CorrelationData correlation = new CorrelationData(String.valueOf(entry.id()));
+            try {
+                rabbitTemplate.convertAndSend(TaskRabbitMqConfig.TASK_CHANGED_EXCHANGE, "",
+                        new TaskChangedEvent(entry.taskId(), entry.changeType()), correlation);
+                correlations.add(correlation);
+            } catch (AmqpException exception) {
+                log.warn("Publishing outbox entry {} failed: {}", entry.id(), exception.getMessage());
+                break;
+            }
+        }
+
+        List<Long> confirmedIds = new ArrayList<>(correlations.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        for (CorrelationData correlation : correlations) {
+            if (isAcked(correlation, deadline)) {
+                confirmedIds.add(Long.valueOf(correlation.getId()));
+            }
+        }
+        return confirmedIds;
+    }
+
+    private boolean isAcked(CorrelationData correlation, long deadline) {
+        try {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            return correlation.getFuture().get(remaining, TimeUnit.NANOSECONDS).isAck();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException exception) {
+            return false;
+        }
+    }
+}
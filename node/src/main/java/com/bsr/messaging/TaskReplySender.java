@@ -0,0 +1,46 @@
+package com.bsr.messaging;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Address;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wysyła odpowiedź RPC na pojedyncze żądanie z paczki.
+ * Listenery paczek nie mogą zwracać wyniku, więc odpowiedź trafia ręcznie na adres reply-to
+ * żądania, z jego correlationId - tak jak robi to kontener dla zwykłego {@code @RabbitListener}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TaskReplySender {
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageConverter jsonMessageConverter;
+
+    public void reply(Message request, Object result) {
+        MessageProperties requestProperties = request.getMessageProperties();
+        String replyTo = requestProperties.getReplyTo();
+        if (replyTo == null) {
+            log.warn("Dropping reply for message without reply-to address: {}", requestProperties.getMessageId());
+            return;
+        }
+
+        MessageProperties replyProperties = new MessageProperties();
+        replyProperties.setCorrelationId(requestProperties.getCorrelationId() != null
+                ? requestProperties.getCorrelationId()
+                : requestProperties.getMessageId());
+        Message reply = jsonMessageConverter.toMessage(result, replyProperties);
+
+        Address address = new Address(replyTo);
+        try {
+            rabbitTemplate.send(address.getExchangeName(), address.getRoutingKey(), reply);
+        } catch (AmqpException exception) {
+            log.error("Failed to send reply to {}: {}", replyTo, exception.getMessage());
+        }
+    }
+}
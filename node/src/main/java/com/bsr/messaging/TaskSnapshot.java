@@ -0,0 +1,59 @@
+package com.bsr.messaging;
+
+import com.bsr.model.Task;
+import com.bsr.model.TaskPriority;
+import com.bsr.model.TaskStatus;
+import com.bsr.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Stan zadania po zapisie na węźle, odsyłany w odpowiedzi RPC.
+ * Backend buduje z niego odpowiedź HTTP bez ponownego odczytu z bazy.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskSnapshot {
+    private Long id;
+    private UUID projectId;
+    private String title;
+    private String description;
+    private TaskStatus status;
+    private TaskPriority priority;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime dueDate;
+    private Long assignedToId;
+    private String assignedFirstName;
+    private String assignedLastName;
+    private String assignedEmail;
+    private Long version;
+
+    /**
+     * Musi być wywołane w transakcji - odczytuje leniwie ładowanego przypisanego użytkownika.
+     */
+    public static TaskSnapshot from(Task task) {
+        User assigned = task.getAssignedTo();
+        return new TaskSnapshot(
+                task.getId(),
+                task.getProject() != null ? task.getProject().getId() : null,
+                task.getTitle(),
+                task.getDescription(),
+                task.getStatus(),
+                task.getPriority(),
+                task.getCreatedAt(),
+                task.getUpdatedAt(),
+                task.getDueDate(),
+                assigned != null ? assigned.getId() : null,
+                assigned != null ? assigned.getFirstName() : null,
+                assigned != null ? assigned.getLastName() : null,
+                assigned != null ? assigned.getEmail() : null,
+                task.getVersion()
+        );
+    }
+}
@@ -11,7 +11,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class UpdateTaskCommand {
+public class UpdateTaskCommand implements IdempotentCommand {
     private Long taskId;
     private String title;
     private String description;
@@ -19,4 +19,8 @@ public class UpdateTaskCommand {
     private TaskPriority priority;
     private LocalDateTime dueDate;
     private Long assignedToId;
+    // Wersja zadania znana klientowi; null = zapis bez kontroli wersji
+    private Long version;
+    // Klucz idempotencji; węzeł ustawia go z identyfikatora wiadomości ({@link IdempotentCommand})
+    private String idempotencyKey;
 }
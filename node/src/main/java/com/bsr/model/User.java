@@ -20,4 +20,8 @@ public class User {
 
     @Column(nullable = false, unique = true)
     private String email;
+
+    private String firstName;
+
+    private String lastName;
 }
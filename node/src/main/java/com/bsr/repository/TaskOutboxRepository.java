@@ -0,0 +1,56 @@
+package com.bsr.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Tabela {@code task_outbox}. Wpisy są dodawane w transakcji zapisu zadania (JdbcTemplate korzysta
+ * z połączenia bieżącej transakcji JPA), więc wpis istnieje wtedy i tylko wtedy, gdy zmiana została zatwierdzona.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TaskOutboxRepository {
+    private static final String INSERT_SQL = "INSERT INTO task_outbox (task_id, change_type) VALUES (?, ?)";
+    // SKIP LOCKED: kilka węzłów może opróżniać outbox równolegle, nie czekając na siebie
+    private static final String LOCK_BATCH_SQL = """
+            SELECT id, task_id, change_type
+            FROM task_outbox
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+    private static final String DELETE_SQL = "DELETE FROM task_outbox WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void append(Long taskId, String changeType) {
+        jdbcTemplate.update(INSERT_SQL, taskId, changeType);
+    }
+
+    public void appendAll(String changeType, List<Long> taskIds) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, taskIds.stream()
+                .map(taskId -> new Object[]{taskId, changeType})
+                .toList());
+    }
+
+    /**
+     * Blokuje do {@code limit} najstarszych wpisów do końca bieżącej transakcji.
+     */
+    public List<Entry> lockBatch(int limit) {
+        return jdbcTemplate.query(LOCK_BATCH_SQL,
+                (rs, rowNum) -> new Entry(rs.getLong("id"), rs.getLong("task_id"), rs.getString("change_type")),
+                limit);
+    }
+
+    public void deleteAll(List<Long> ids) {
+        jdbcTemplate.batchUpdate(DELETE_SQL, ids.stream()
+                .map(id -> new Object[]{id})
+                .toList());
+    }
+
+    public record Entry(long id, long taskId, String changeType) {
+    }
+}
@@ -3,5 +3,5 @@ package com.bsr.repository;
 import com.bsr.model.Task;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface TaskRepository extends JpaRepository<Task, Long> {
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskUpdateRepository {
 }
@@ -0,0 +1,19 @@
+package com.bsr.repository;
+
+import com.bsr.messaging.TaskSnapshot;
+import com.bsr.messaging.UpdateTaskCommand;
+import com.bsr.model.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Fragment repozytorium zadań z aktualizacjami jednym poleceniem SQL - bez ładowania encji
+ * i jej relacji. Każda metoda zwraca stan zadania po zapisie albo pusty wynik, gdy nie zmieniono
+ * żadnego wiersza (brak zadania lub nieaktualna wersja).
+ */
+public interface TaskUpdateRepository {
+    Optional<TaskSnapshot> updateStatus(Long taskId, TaskStatus status, LocalDateTime updatedAt);
+
+    Optional<TaskSnapshot> updateFields(UpdateTaskCommand command, LocalDateTime updatedAt);
+}
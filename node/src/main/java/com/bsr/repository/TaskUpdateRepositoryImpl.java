@@ -0,0 +1,107 @@
+package com.bsr.repository;
+
+import com.bsr.messaging.TaskSnapshot;
+import com.bsr.messaging.UpdateTaskCommand;
+import com.bsr.model.TaskPriority;
+import com.bsr.model.TaskStatus;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * {@code UPDATE ... RETURNING} w CTE połączonym z przypisanym użytkownikiem: zapis i odczyt migawki
+ * to jedno polecenie i jeden round trip. Polecenie pomija encję, więc samo ustawia {@code updated_at}
+ * (jak {@code @UpdateTimestamp}) i podbija {@code version} (jak {@code @Version}).
+ */
+public class TaskUpdateRepositoryImpl implements TaskUpdateRepository {
+    private static final String SNAPSHOT_SELECT = """
+            SELECT updated.id, updated.project_id, updated.title, updated.description, updated.status,
+                   updated.priority, updated.created_at, updated.updated_at, updated.due_date, updated.assigned_to,
+                   assignee.first_name, assignee.last_name, assignee.email, updated.version
+            FROM updated
+            LEFT JOIN users assignee ON assignee.id = updated.assigned_to
+            """;
+
+    private static final String UPDATE_STATUS_SQL = """
+            WITH updated AS (
+                UPDATE tasks
+                SET status = :status, updated_at = :updatedAt, version = version + 1
+                WHERE id = :taskId
+                RETURNING *
+            )
+            """ + SNAPSHOT_SELECT;
+
+    // Pola null w poleceniu zostają bez zmian (coalesce), jak w aktualizacji przez encję
+    private static final String UPDATE_FIELDS_SQL = """
+            WITH updated AS (
+                UPDATE tasks
+                SET title = coalesce(cast(:title AS varchar), title),
+                    description = coalesce(cast(:description AS varchar), description),
+                    status = coalesce(cast(:status AS varchar), status),
+                    priority = coalesce(cast(:priority AS varchar), priority),
+                    due_date = coalesce(cast(:dueDate AS timestamp), due_date),
+                    assigned_to = coalesce(cast(:assignedToId AS bigint), assigned_to),
+                    updated_at = :updatedAt,
+                    version = version + 1
+                WHERE id = :taskId
+                  AND (cast(:version AS bigint) IS NULL OR version = cast(:version AS bigint))
+                RETURNING *
+            )
+            """ + SNAPSHOT_SELECT;
+
+    private static final RowMapper<TaskSnapshot> SNAPSHOT_MAPPER = (rs, rowNum) -> new TaskSnapshot(
+            rs.getLong("id"),
+            rs.getObject("project_id", UUID.class),
+            rs.getString("title"),
+            rs.getString("description"),
+            rs.getString("status") != null ? TaskStatus.valueOf(rs.getString("status")) : null,
+            rs.getString("priority") != null ? TaskPriority.valueOf(rs.getString("priority")) : null,
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getObject("updated_at", LocalDateTime.class),
+            rs.getObject("due_date", LocalDateTime.class),
+            rs.getObject("assigned_to", Long.class),
+            rs.getString("first_name"),
+            rs.getString("last_name"),
+            rs.getString("email"),
+            rs.getObject("version", Long.class)
+    );
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TaskUpdateRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<TaskSnapshot> updateStatus(Long taskId, TaskStatus status, LocalDateTime updatedAt) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("taskId", taskId)
+                .addValue("status", status.name())
+                .addValue("updatedAt", updatedAt);
+        return single(jdbcTemplate.query(UPDATE_STATUS_SQL, parameters, SNAPSHOT_MAPPER));
+    }
+
+    @Override
+    public Optional<TaskSnapshot> updateFields(UpdateTaskCommand command, LocalDateTime updatedAt) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("taskId", command.getTaskId())
+                .addValue("title", command.getTitle())
+                .addValue("description", command.getDescription())
+                .addValue("status", command.getStatus() != null ? command.getStatus().name() : null)
+                .addValue("priority", command.getPriority() != null ? command.getPriority().name() : null)
+                .addValue("dueDate", command.getDueDate())
+                .addValue("assignedToId", command.getAssignedToId())
+                .addValue("version", command.getVersion())
+                .addValue("updatedAt", updatedAt);
+        return single(jdbcTemplate.query(UPDATE_FIELDS_SQL, parameters, SNAPSHOT_MAPPER));
+    }
+
+    private Optional<TaskSnapshot> single(List<TaskSnapshot> rows) {
+        return rows.stream().findFirst();
+    }
+}
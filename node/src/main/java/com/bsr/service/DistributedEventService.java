@@ -1,51 +1,196 @@
 package com.bsr.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Dziennik zdarzeń węzła ({@code distributed_node_events}). Zdarzenia trafiają do ograniczonej kolejki
+ * w pamięci, którą opróżnia wątek zapisujący - jedna transakcja i jedno polecenie wsadowe JDBC na paczkę.
+ * Dla typów z {@code node.events.sync-types} wywołujący czeka, aż paczka z jego zdarzeniem zostanie zapisana;
+ * pozostałe typy są zapisywane z ograniczoną stratą: przy pełnej kolejce zdarzenie jest odrzucane i zliczane.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class DistributedEventService {
+    private static final String INSERT_EVENT_SQL = """
+            INSERT INTO distributed_node_events (event_time, node_id, event_type, details)
+            VALUES (?, ?, ?, ?)
+            """;
+
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final BlockingQueue<PendingEvent> queue;
+    private final Set<String> syncEventTypes;
+    private final int batchSize;
+    private final long syncTimeoutMs;
+    private final Counter writtenEvents;
+    private final Counter droppedQueueFull;
+    private final Counter droppedWriteFailed;
+    private volatile boolean running;
+    private Thread writerThread;
 
     @Value("${node.id:node-local}")
     private String nodeId;
 
+    public DistributedEventService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${node.events.queue-capacity:10000}") int queueCapacity,
+            @Value("${node.events.batch-size:200}") int batchSize,
+            @Value("${node.events.sync-timeout-ms:2000}") long syncTimeoutMs,
+            @Value("${node.events.sync-types:}") Set<String> syncEventTypes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.syncTimeoutMs = syncTimeoutMs;
+        this.syncEventTypes = Set.copyOf(syncEventTypes);
+
+        Gauge.builder("node.events.queue.depth", queue, BlockingQueue::size)
+                .description("Zdarzenia oczekujące na zapis do distributed_node_events")
+                .register(meterRegistry);
+        this.writtenEvents = Counter.builder("node.events.written").register(meterRegistry);
+        this.droppedQueueFull = Counter.builder("node.events.dropped").tag("reason", "queue_full").register(meterRegistry);
+        this.droppedWriteFailed = Counter.builder("node.events.dropped").tag("reason", "write_failed").register(meterRegistry);
+    }
+
     @PostConstruct
     public void initialize() {
-        ensureTable();
+        running = true;
+        writerThread = Thread.ofPlatform().daemon().name("event-journal-writer").start(this::runWriter);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writerThread != null) {
+            try {
+                writerThread.join(syncTimeoutMs);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Zdarzenia, których wątek nie zdążył zapisać
+        int flushed;
+        do {
+            flushed = flushPending();
+        } while (flushed > 0);
     }
 
     /**
-     * Zapisuje zdarzenie w niezaleznej transakcji, aby wpis zostal zachowany
-     * nawet jesli wywolujaca operacja (np. wstrzykniecie awarii) wycofa swoja transakcje.
+     * Rejestruje zdarzenie. Zapis odbywa się poza transakcją wywołującego, więc wpis zostaje zachowany
+     * nawet jeśli wywołująca operacja (np. wstrzyknięcie awarii) wycofa swoją transakcję.
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void record(String eventType, String details) {
-        ensureTable();
-        jdbcTemplate.update("""
-                INSERT INTO distributed_node_events (event_time, node_id, event_type, details)
-                VALUES (?, ?, ?, ?)
-                """, Timestamp.valueOf(LocalDateTime.now()), nodeId, eventType, details);
-    }
-
-    private void ensureTable() {
-        jdbcTemplate.execute("""
-                CREATE TABLE IF NOT EXISTS distributed_node_events (
-                    id BIGSERIAL PRIMARY KEY,
-                    event_time TIMESTAMP NOT NULL,
-                    node_id VARCHAR(128) NOT NULL,
-                    event_type VARCHAR(64) NOT NULL,
-                    details TEXT
-                )
-                """);
+        PendingEvent event = new PendingEvent(Timestamp.valueOf(LocalDateTime.now()), eventType, details,
+                syncEventTypes.contains(eventType) ? new CompletableFuture<>() : null);
+        if (event.flushed() == null) {
+            if (!queue.offer(event)) {
+                droppedQueueFull.increment();
+            }
+            return;
+        }
+        recordSync(event);
+    }
+
+    /**
+     * Rejestruje zdarzenia jednego typu (obsługa paczek poleceń); trafiają do tej samej paczki zapisu.
+     */
+    public void recordAll(String eventType, List<String> detailsList) {
+        detailsList.forEach(details -> record(eventType, details));
+    }
+
+    /**
+     * Zapisuje jedną paczkę zdarzeń z kolejki; zwraca liczbę zapisanych (lub odrzuconych po błędzie) zdarzeń.
+     */
+    int flushPending() {
+        List<PendingEvent> batch = new ArrayList<>(Math.min(batchSize, queue.size() + 1));
+        queue.drainTo(batch, batchSize);
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+        return batch.size();
+    }
+
+    private void recordSync(PendingEvent event) {
+        try {
+            if (!queue.offer(event, syncTimeoutMs, TimeUnit.MILLISECONDS)) {
+                droppedQueueFull.increment();
+                log.warn("Event journal queue is full, dropping {} event", event.eventType());
+                return;
+            }
+            event.flushed().get(syncTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException exception) {
+            log.warn("Event {} was not confirmed as written: {}", event.eventType(), exception.getMessage());
+        }
+    }
+
+    private void runWriter() {
+        while (running) {
+            try {
+                PendingEvent first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PendingEvent> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void write(List<PendingEvent> batch) {
+        try {
+            writeTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, batch.stream()
+                    .map(event -> new Object[]{event.eventTime(), nodeId, event.eventType(), event.details()})
+                    .toList()));
+            writtenEvents.increment(batch.size());
+            batch.forEach(event -> {
+                if (event.flushed() != null) {
+                    event.flushed().complete(null);
+                }
+            });
+        } catch (RuntimeException exception) {
+            droppedWriteFailed.increment(batch.size());
+            log.error("Writing {} journal events failed: {}", batch.size(), exception.getMessage());
+            batch.forEach(event -> {
+                if (event.flushed() != null) {
+                    event.flushed().completeExceptionally(exception);
+                }
+            });
+        }
+    }
+
+    private record PendingEvent(Timestamp eventTime, String eventType, String details, CompletableFuture<Void> flushed) {
     }
 }
@@ -3,50 +3,58 @@ package com.bsr.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 /**
- * Sprawdza i stosuje aktywne wstrzyknięcia awarii (opóźnienie sieciowe, uszkodzenie wiadomości)
+ * Stosuje aktywne wstrzyknięcia awarii (opóźnienie sieciowe, uszkodzenie wiadomości)
  * skonfigurowane dla tego węzła w tabeli {@code node_leader_candidates}.
+ * Stan jest trzymany w pamięci i odświeżany przez {@link LeaderElectionService} (takt wyboru lidera
+ * lub powiadomienie NOTIFY), dzięki czemu ścieżka zapisu nie odpytuje bazy przy każdym poleceniu.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FaultInjectionService {
-    private final JdbcTemplate jdbcTemplate;
     private final DistributedEventService distributedEventService;
 
     @Value("${node.id:node-local}")
     private String nodeId;
 
+    private volatile FaultState state = FaultState.NONE;
+
     public void applyFaults(String operation) {
-        FaultState state = readState();
+        FaultState current = state;
+        if (current == FaultState.NONE) {
+            return;
+        }
 
-        if (state.networkDelayMs() > 0) {
+        if (current.networkDelayMs() > 0) {
             log.warn("Node {} simulating network delay of {} ms before processing {}",
-                    nodeId, state.networkDelayMs(), operation);
+                    nodeId, current.networkDelayMs(), operation);
             distributedEventService.record("NETWORK_DELAY_APPLIED",
-                    "operation=" + operation + ",delayMs=" + state.networkDelayMs());
-            sleep(state.networkDelayMs());
+                    "operation=" + operation + ",delayMs=" + current.networkDelayMs());
+            sleep(current.networkDelayMs());
         }
 
-        if (state.messageCorruption()) {
+        if (current.messageCorruption()) {
             log.error("Node {} simulating message corruption while processing {}", nodeId, operation);
             distributedEventService.record("MESSAGE_CORRUPTION_TRIGGERED", "operation=" + operation);
             throw new IllegalStateException("Simulated message corruption while processing: " + operation);
         }
     }
 
-    private FaultState readState() {
-        return jdbcTemplate.query("""
-                SELECT network_delay_ms, message_corruption
-                FROM node_leader_candidates
-                WHERE node_id = ?
-                """, resultSet -> resultSet.next()
-                        ? new FaultState(resultSet.getInt("network_delay_ms"), resultSet.getBoolean("message_corruption"))
-                        : new FaultState(0, false),
-                nodeId);
+    /**
+     * Podmienia migawkę stanu awarii odczytaną z {@code node_leader_candidates}.
+     */
+    public void updateState(int networkDelayMs, boolean messageCorruption) {
+        FaultState next = networkDelayMs <= 0 && !messageCorruption
+                ? FaultState.NONE
+                : new FaultState(Math.max(0, networkDelayMs), messageCorruption);
+        if (!next.equals(state)) {
+            log.info("Node {} fault injection state changed: networkDelayMs={}, messageCorruption={}",
+                    nodeId, next.networkDelayMs(), next.messageCorruption());
+        }
+        state = next;
     }
 
     private void sleep(int millis) {
@@ -58,5 +66,6 @@ public class FaultInjectionService {
     }
 
     private record FaultState(int networkDelayMs, boolean messageCorruption) {
+        static final FaultState NONE = new FaultState(0, false);
     }
 }
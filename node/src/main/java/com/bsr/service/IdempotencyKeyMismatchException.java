@@ -0,0 +1,11 @@
+package com.bsr.service;
+
+/**
+ * Klucz idempotencji został już użyty przez tego samego autora dla polecenia o innej treści.
+ * Komunikat zaczyna się od "Invalid", więc backend odpowiada na niego {@code 400}.
+ */
+public class IdempotencyKeyMismatchException extends RuntimeException {
+    public IdempotencyKeyMismatchException() {
+        super("Invalid Idempotency-Key: already used for a different request");
+    }
+}
@@ -0,0 +1,133 @@
+package com.bsr.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Klucze idempotencji poleceń zapisu ({@code task_command_dedup}). Wiersz jest zapisywany w transakcji
+ * polecenia, więc istnieje tylko dla zatwierdzonego zapisu; ponowienie z tym samym kluczem w ciągu
+ * {@code node.idempotency.ttl-seconds} dostaje identyfikator pierwotnie zapisanego zadania lub komentarza.
+ * Klucz należy do autora polecenia (e-mail), a wiersz przechowuje skrót treści polecenia - ponowienie
+ * z inną treścią kończy się {@link IdempotencyKeyMismatchException}.
+ * Polecenia bez klucza klienta dostają klucz z identyfikatora wiadomości AMQP
+ * ({@link com.bsr.messaging.IdempotentCommand}); polecenia bez autora zapisują go pod {@link #NO_REQUESTER}.
+ * Czas wpisu liczy baza ({@code now()}), aby wszystkie węzły stosowały ten sam zegar.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+    public static final String CREATE_TASK = "CREATE_TASK";
+    public static final String ADD_COMMENT = "ADD_COMMENT";
+    public static final String UPDATE_TASK = "UPDATE_TASK";
+    public static final String SET_TASK_STATUS = "SET_TASK_STATUS";
+    public static final String DELETE_TASK = "DELETE_TASK";
+    public static final String NO_REQUESTER = "";
+
+    private static final String FIND_SQL = """
+            SELECT result_id, request_hash
+            FROM task_command_dedup
+            WHERE operation = ? AND requester_email = ? AND idempotency_key = ?
+              AND created_at > now() - ? * interval '1 second'
+            """;
+    // Nadpisywany jest tylko wygasły, jeszcze nieusunięty wpis; żywy wpis innego polecenia zostaje (0 wierszy)
+    private static final String INSERT_SQL = """
+            INSERT INTO task_command_dedup (operation, requester_email, idempotency_key, request_hash, result_id)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (operation, requester_email, idempotency_key)
+            DO UPDATE SET request_hash = excluded.request_hash, result_id = excluded.result_id, created_at = now()
+            WHERE task_command_dedup.created_at <= now() - ? * interval '1 second'
+            """;
+    private static final String DELETE_EXPIRED_SQL = """
+            DELETE FROM task_command_dedup
+            WHERE created_at <= now() - ? * interval '1 second'
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlSeconds;
+
+    public IdempotencyService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${node.idempotency.ttl-seconds:86400}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * Identyfikator wyniku wcześniejszego polecenia autora z tym kluczem; pusty, gdy klucza brak lub wygasł.
+     *
+     * @throws IdempotencyKeyMismatchException gdy klucz użyto dla polecenia o innym skrócie treści
+     */
+    public Optional<Long> findResult(String operation, String requesterEmail, String idempotencyKey, String requestHash) {
+        if (idempotencyKey == null) {
+            return Optional.empty();
+        }
+        List<StoredResult> results = jdbcTemplate.query(FIND_SQL,
+                (rs, rowNum) -> new StoredResult(rs.getLong("result_id"), rs.getString("request_hash")),
+                operation, requesterEmail, idempotencyKey, ttlSeconds);
+        return results.stream()
+                .findFirst()
+                .map(stored -> {
+                    if (!stored.requestHash().equals(requestHash)) {
+                        throw new IdempotencyKeyMismatchException();
+                    }
+                    return stored.resultId();
+                });
+    }
+
+    /**
+     * Zapisuje wynik polecenia pod kluczem autora. Równoległe polecenie z tym samym kluczem czeka na blokadzie
+     * wiersza do zatwierdzenia pierwszego, a potem nie nadpisuje jego wyniku.
+     *
+     * @return {@code false}, gdy klucz ma już żywy wynik innego polecenia - wywołujący wycofuje swój zapis
+     * i zwraca tamten wynik ({@link #findResult})
+     */
+    public boolean recordResult(String operation, String requesterEmail, String idempotencyKey, String requestHash, Long resultId) {
+        if (idempotencyKey == null) {
+            return true;
+        }
+        return jdbcTemplate.update(INSERT_SQL, operation, requesterEmail, idempotencyKey, requestHash, resultId, ttlSeconds) > 0;
+    }
+
+    /**
+     * Skrót SHA-256 (hex) pól polecenia. Pola są rozdzielane bajtem 0, a {@code null} ma własną postać,
+     * aby np. pusty opis i brak opisu dawały różne skróty.
+     */
+    public static String requestHash(Object... fields) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object field : fields) {
+                digest.update(Objects.toString(field, "\u0000null").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${node.idempotency.cleanup-interval-ms:60000}")
+    public void deleteExpired() {
+        try {
+            int deleted = jdbcTemplate.update(DELETE_EXPIRED_SQL, ttlSeconds);
+            if (deleted > 0) {
+                log.debug("Deleted {} expired idempotency keys", deleted);
+            }
+        } catch (RuntimeException exception) {
+            log.warn("Deleting expired idempotency keys failed: {}", exception.getMessage());
+        }
+    }
+
+    private record StoredResult(Long resultId, String requestHash) {
+    }
+}
@@ -7,61 +7,102 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
 import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 @Service
 public class LeaderElectionService {
+    public static final String MODE_POLLING = "polling";
+    public static final String MODE_ADVISORY_LOCK = "advisory-lock";
+
     private final JdbcTemplate jdbcTemplate;
     private final RabbitListenerEndpointRegistry listenerRegistry;
+    private final PostgresLeaderLease leaderLease;
+    private final FaultInjectionService faultInjectionService;
     private final String nodeId;
     private final int nodeWeight;
     private final long ttlSeconds;
+    private final List<String> writeListenerIds;
+    private final int partitions;
+    private final boolean advisoryLockMode;
+    private final int lockRetryMs;
     private final AtomicBoolean leader = new AtomicBoolean(false);
+    // Epoka (token fencingu) z ostatniego przejęcia blokady w trybie advisory-lock
+    private final AtomicLong leaderEpoch = new AtomicLong();
+    private final Set<Integer> ownedPartitions = ConcurrentHashMap.newKeySet();
+
+    // Stan trybu advisory-lock: odczytywany przy rejestracji połączenia dzierżawy i z powiadomień LISTEN/NOTIFY
+    private final AtomicReference<String> handoverTarget = new AtomicReference<>();
+    private volatile boolean leaseStateKnown;
+    private volatile boolean forcedDown;
+    private volatile long acquireNotBefore;
+    private volatile boolean leaseRunning;
+    private Thread leaseThread;
 
     public LeaderElectionService(
             JdbcTemplate jdbcTemplate,
             RabbitListenerEndpointRegistry listenerRegistry,
+            PostgresLeaderLease leaderLease,
+            FaultInjectionService faultInjectionService,
             @Value("${node.id:node-local}") String nodeId,
             @Value("${node.weight:0}") int nodeWeight,
-            @Value("${node.leader.ttl-seconds:15}") long ttlSeconds) {
+            @Value("${node.leader.ttl-seconds:15}") long ttlSeconds,
+            @Value("${node.listener.batch.enabled:false}") boolean batchListenersEnabled,
+            @Value("${tasks.partitions:1}") int partitions,
+            @Value("${node.leader.election-mode:polling}") String electionMode,
+            @Value("${node.leader.lock-retry-ms:500}") int lockRetryMs) {
         this.jdbcTemplate = jdbcTemplate;
         this.listenerRegistry = listenerRegistry;
+        this.leaderLease = leaderLease;
+        this.faultInjectionService = faultInjectionService;
         this.nodeId = nodeId;
         this.nodeWeight = nodeWeight;
         this.ttlSeconds = ttlSeconds;
+        this.writeListenerIds = batchListenersEnabled
+                ? TaskRabbitMqConfig.BATCH_WRITE_LISTENER_IDS
+                : TaskRabbitMqConfig.WRITE_LISTENER_IDS;
+        this.partitions = Math.max(1, partitions);
+        this.lockRetryMs = Math.max(10, lockRetryMs);
+
+        boolean advisoryLock = MODE_ADVISORY_LOCK.equalsIgnoreCase(electionMode);
+        if (advisoryLock && this.partitions > 1) {
+            log.warn("Election mode {} does not support tasks.partitions > 1, falling back to {}", electionMode, MODE_POLLING);
+            advisoryLock = false;
+        }
+        this.advisoryLockMode = advisoryLock;
     }
 
+    /**
+     * Tabela kandydatów i trigger powiadomień są tworzone przez migracje Flyway
+     * ({@code db/migration/cluster}), a nie przy starcie serwisu.
+     */
     @PostConstruct
     public void initialize() {
-        jdbcTemplate.execute("""
-                CREATE TABLE IF NOT EXISTS node_leader_candidates (
-                    node_id VARCHAR(128) PRIMARY KEY,
-                    node_weight INTEGER NOT NULL,
-                    last_seen TIMESTAMP NOT NULL,
-                    forced_down BOOLEAN NOT NULL DEFAULT FALSE
-                )
-                """);
-        jdbcTemplate.execute("""
-                ALTER TABLE node_leader_candidates
-                ADD COLUMN IF NOT EXISTS forced_down BOOLEAN NOT NULL DEFAULT FALSE
-                """);
-        jdbcTemplate.execute("""
-                ALTER TABLE node_leader_candidates
-                ADD COLUMN IF NOT EXISTS network_delay_ms INTEGER NOT NULL DEFAULT 0
-                """);
-        jdbcTemplate.execute("""
-                ALTER TABLE node_leader_candidates
-                ADD COLUMN IF NOT EXISTS message_corruption BOOLEAN NOT NULL DEFAULT FALSE
-                """);
         log.info("Node {} registered for leader election with weight {}", nodeId, nodeWeight);
+
+        if (advisoryLockMode) {
+            leaseRunning = true;
+            leaseThread = Thread.ofPlatform().daemon().name("leader-lease-" + nodeId).start(this::runLease);
+            log.info("Node {} uses advisory lock leader election", nodeId);
+        }
     }
 
     @Scheduled(
@@ -69,6 +110,11 @@ public class LeaderElectionService {
             fixedDelayString = "${node.leader.election-interval-ms:5000}"
     )
     public void updateLeadership() {
+        if (advisoryLockMode) {
+            // Bez cyklicznego heartbeatu - wątek dzierżawy rejestruje węzeł i reaguje na powiadomienia
+            return;
+        }
+
         if (isForcedDown()) {
             if (leader.compareAndSet(true, false)) {
                 stopTaskListener();
@@ -79,6 +125,11 @@ public class LeaderElectionService {
 
         sendHeartbeat();
 
+        if (partitions > 1) {
+            updatePartitionOwnership();
+            return;
+        }
+
         Optional<String> currentLeader = findCurrentLeader();
         boolean shouldBeLeader = currentLeader.map(nodeId::equals).orElse(false);
 
@@ -93,10 +144,205 @@ public class LeaderElectionService {
 
     @PreDestroy
     public void unregister() {
+        if (advisoryLockMode) {
+            stopLeaseThread();
+        }
         stopTaskListener();
         jdbcTemplate.update("DELETE FROM node_leader_candidates WHERE node_id = ?", nodeId);
     }
 
+    /**
+     * Fencing zapisów w trybie advisory-lock: transakcja może zmieniać dane tylko wtedy, gdy epoka
+     * w {@code node_leader} jest nadal epoką tego węzła. {@code FOR SHARE} wstrzymuje publikację nowego
+     * lidera do końca transakcji, więc zapisy poprzedniego lidera (np. po cichej utracie połączenia
+     * dzierżawy) nie nakładają się na zapisy następcy. W trybie polling nic nie sprawdza.
+     */
+    public void verifyLeaderEpoch() {
+        if (!advisoryLockMode) {
+            return;
+        }
+        long epoch = leaderEpoch.get();
+        Long currentEpoch = jdbcTemplate.query("SELECT epoch FROM node_leader WHERE id = 1 FOR SHARE",
+                resultSet -> resultSet.next() ? resultSet.getLong("epoch") : null);
+        if (!leader.get() || currentEpoch == null || currentEpoch != epoch) {
+            throw new IllegalStateException("Node " + nodeId + " is no longer the leader (epoch " + epoch
+                    + ", current " + currentEpoch + ")");
+        }
+    }
+
+    /**
+     * Tryb advisory-lock: rejestracja węzła, odczyt stanu awarii i wyszukanie działającego kandydata
+     * o wyższej wadze w jednym zapytaniu. Wykonywana po otwarciu połączenia dzierżawy i po powiadomieniach
+     * o dołączeniu lub przywróceniu innego węzła - nie cyklicznie. Węzeł działa, dopóki jego połączenie
+     * dzierżawy jest widoczne w {@code pg_stat_activity}. O przejęciu roli decyduje wątek dzierżawy.
+     */
+    private void refreshLease() {
+        LeaseState state = jdbcTemplate.query("""
+                WITH heartbeat AS (
+                    INSERT INTO node_leader_candidates (node_id, node_weight, last_seen)
+                    VALUES (?, ?, ?)
+                    ON CONFLICT (node_id)
+                    DO UPDATE SET node_weight = EXCLUDED.node_weight, last_seen = EXCLUDED.last_seen
+                    RETURNING forced_down, network_delay_ms, message_corruption
+                )
+                SELECT heartbeat.forced_down, heartbeat.network_delay_ms, heartbeat.message_corruption,
+                       (SELECT node_id
+                        FROM node_leader_candidates
+                        WHERE node_id <> ? AND forced_down = FALSE
+                          AND (node_weight > ? OR (node_weight = ? AND node_id < ?))
+                          AND EXISTS (SELECT 1 FROM pg_stat_activity
+                                      WHERE application_name = ? || node_leader_candidates.node_id)
+                        ORDER BY node_weight DESC, node_id ASC
+                        LIMIT 1) AS preferred_node_id
+                FROM heartbeat
+                """, resultSet -> resultSet.next()
+                        ? new LeaseState(
+                                resultSet.getBoolean("forced_down"),
+                                resultSet.getInt("network_delay_ms"),
+                                resultSet.getBoolean("message_corruption"),
+                                resultSet.getString("preferred_node_id"))
+                        : new LeaseState(false, 0, false, null),
+                nodeId, nodeWeight, Timestamp.valueOf(LocalDateTime.now()),
+                nodeId, nodeWeight, nodeWeight, nodeId, PostgresLeaderLease.APPLICATION_NAME_PREFIX);
+
+        forcedDown = state.forcedDown();
+        faultInjectionService.updateState(state.networkDelayMs(), state.messageCorruption());
+        leaseStateKnown = true;
+        if (leader.get() && state.preferredNodeId() != null) {
+            handoverTarget.set(state.preferredNodeId());
+        }
+    }
+
+    private void runLease() {
+        while (leaseRunning) {
+            leaseStep();
+        }
+        if (leader.compareAndSet(true, false)) {
+            stopTaskListener();
+            try {
+                leaderLease.release("released:" + nodeId);
+            } catch (SQLException | RuntimeException exception) {
+                log.warn("Node {} could not release leader lease: {}", nodeId, exception.getMessage());
+            }
+        }
+        leaderLease.close();
+    }
+
+    /**
+     * Jeden krok wątku dzierżawy: przejęcie lub oddanie blokady, a następnie oczekiwanie
+     * na powiadomienia najwyżej {@code lockRetryMs}. Awaria lidera (zerwane połączenie) zwalnia
+     * blokadę po stronie serwera, więc kolejny węzeł przejmuje ją w kolejnym kroku.
+     * Przejęcie publikuje węzeł w {@code node_leader} z nową epoką, sprawdzaną przez {@link #verifyLeaderEpoch()}.
+     */
+    void leaseStep() {
+        try {
+            if (!leaderLease.isOpen()) {
+                leaderLease.open();
+                leaseStateKnown = false;
+            }
+            if (!leaseStateKnown) {
+                // Rejestracja po (ponownym) otwarciu połączenia; lider sprawdzi, czy oddać rolę temu węzłowi
+                refreshLease();
+                leaderLease.notifyJoined();
+            }
+            if (leader.get()) {
+                String successor = handoverTarget.getAndSet(null);
+                if (forcedDown || successor != null) {
+                    // Listenery są zatrzymywane przed zwolnieniem blokady - nowy lider nie nakłada się na starego
+                    stopTaskListener();
+                    leader.set(false);
+                    leaderLease.release(successor != null ? "handover:" + successor : "released:" + nodeId);
+                    log.info("Node {} released leader lease{}", nodeId,
+                            successor != null ? " to " + successor : " because fault injection is active");
+                } else if (!leaderLease.isValid()) {
+                    throw new SQLException("Leader lease connection is no longer valid");
+                }
+            } else if (!forcedDown && System.currentTimeMillis() >= acquireNotBefore && leaderLease.tryAcquire()) {
+                leaderEpoch.set(leaderLease.publishLeader());
+                leader.set(true);
+                startTaskListener();
+                log.info("Node {} acquired leader lease with weight {} (epoch {})", nodeId, nodeWeight, leaderEpoch.get());
+            }
+
+            for (String payload : leaderLease.awaitNotifications(lockRetryMs)) {
+                handleLeaseNotification(payload);
+            }
+        } catch (SQLException | RuntimeException exception) {
+            if (leader.compareAndSet(true, false)) {
+                stopTaskListener();
+                log.warn("Node {} lost leader lease: {}", nodeId, exception.getMessage());
+            } else {
+                log.warn("Node {} leader lease connection failed: {}", nodeId, exception.getMessage());
+            }
+            leaderLease.close();
+            pause(lockRetryMs);
+        }
+    }
+
+    private void handleLeaseNotification(String payload) {
+        String[] parts = payload.split(":");
+        switch (parts[0]) {
+            case "forced" -> {
+                if (parts.length == 3 && nodeId.equals(parts[1])) {
+                    forcedDown = Boolean.parseBoolean(parts[2]);
+                } else if (parts.length == 3 && !Boolean.parseBoolean(parts[2])) {
+                    checkHandover();
+                }
+            }
+            case "joined" -> {
+                if (parts.length >= 2 && !nodeId.equals(parts[1])) {
+                    checkHandover();
+                }
+            }
+            case "faults" -> {
+                if (parts.length == 4 && nodeId.equals(parts[1])) {
+                    faultInjectionService.updateState(Integer.parseInt(parts[2]), Boolean.parseBoolean(parts[3]));
+                }
+            }
+            case "handover" -> {
+                // Wskazany następca dostaje pierwszeństwo na jeden krok
+                if (parts.length >= 2 && !nodeId.equals(parts[1])) {
+                    acquireNotBefore = System.currentTimeMillis() + lockRetryMs;
+                }
+            }
+            default -> {
+                // "released": blokada jest wolna, kolejny krok spróbuje ją przejąć
+            }
+        }
+    }
+
+    // Lider sprawdza, czy dołączył lub wrócił węzeł o wyższej wadze; błąd odczytu nie odbiera roli
+    private void checkHandover() {
+        if (!leader.get()) {
+            return;
+        }
+        try {
+            refreshLease();
+        } catch (DataAccessException exception) {
+            log.warn("Node {} could not check for a preferred leader: {}", nodeId, exception.getMessage());
+        }
+    }
+
+    private void stopLeaseThread() {
+        leaseRunning = false;
+        if (leaseThread != null) {
+            try {
+                leaseThread.join(lockRetryMs * 4L);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        leaderLease.close();
+    }
+
+    private void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private void sendHeartbeat() {
         jdbcTemplate.update("""
                 INSERT INTO node_leader_candidates (node_id, node_weight, last_seen)
@@ -106,12 +352,21 @@ public class LeaderElectionService {
                 """, nodeId, nodeWeight, Timestamp.valueOf(LocalDateTime.now()));
     }
 
+    // Jedno zapytanie odczytuje flagę awarii węzła i stan wstrzykiwanych awarii dla FaultInjectionService
     private boolean isForcedDown() {
-        return jdbcTemplate.query("""
-                SELECT forced_down
+        CandidateState state = jdbcTemplate.query("""
+                SELECT forced_down, network_delay_ms, message_corruption
                 FROM node_leader_candidates
                 WHERE node_id = ?
-                """, resultSet -> resultSet.next() && resultSet.getBoolean("forced_down"), nodeId);
+                """, resultSet -> resultSet.next()
+                        ? new CandidateState(
+                                resultSet.getBoolean("forced_down"),
+                                resultSet.getInt("network_delay_ms"),
+                                resultSet.getBoolean("message_corruption"))
+                        : new CandidateState(false, 0, false),
+                nodeId);
+        faultInjectionService.updateState(state.networkDelayMs(), state.messageCorruption());
+        return state.forcedDown();
     }
 
     private Optional<String> findCurrentLeader() {
@@ -130,12 +385,79 @@ public class LeaderElectionService {
                 }, Timestamp.valueOf(aliveSince));
     }
 
+    /**
+     * Tryb partycjonowany: każda partycja ma własnego lidera wybieranego ważonym haszowaniem
+     * rendezvous spośród aktywnych kandydatów - partycje rozkładają się proporcjonalnie do wag,
+     * a zmiana składu klastra przenosi tylko partycje węzła, który doszedł lub odpadł.
+     */
+    private void updatePartitionOwnership() {
+        Map<String, Integer> candidates = findAliveCandidates();
+        for (int partition = 0; partition < partitions; partition++) {
+            boolean owns = ownerOf(partition, candidates).map(nodeId::equals).orElse(false);
+            if (owns && ownedPartitions.add(partition)) {
+                partitionListenerIds(partition).forEach(this::startListener);
+                log.info("Node {} took ownership of partition {}", nodeId, partition);
+            } else if (!owns && ownedPartitions.remove(partition)) {
+                partitionListenerIds(partition).forEach(this::stopListener);
+                log.info("Node {} released partition {}", nodeId, partition);
+            }
+        }
+        leader.set(!ownedPartitions.isEmpty());
+    }
+
+    static Optional<String> ownerOf(int partition, Map<String, Integer> candidates) {
+        String owner = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            double score = rendezvousScore(candidate.getKey(), Math.max(1, candidate.getValue()), partition);
+            if (score > bestScore || (score == bestScore && candidate.getKey().compareTo(owner) < 0)) {
+                bestScore = score;
+                owner = candidate.getKey();
+            }
+        }
+        return Optional.ofNullable(owner);
+    }
+
+    private static double rendezvousScore(String candidateId, int weight, int partition) {
+        long hash = UUID.nameUUIDFromBytes((candidateId + "#" + partition).getBytes(StandardCharsets.UTF_8))
+                .getMostSignificantBits();
+        // wartość z przedziału (0, 1) z 53 najstarszych bitów skrótu
+        double unit = ((hash >>> 11) + 0.5) / (double) (1L << 53);
+        return -weight / Math.log(unit);
+    }
+
+    private Map<String, Integer> findAliveCandidates() {
+        LocalDateTime aliveSince = LocalDateTime.now().minusSeconds(ttlSeconds);
+        return jdbcTemplate.query("""
+                SELECT node_id, node_weight
+                FROM node_leader_candidates
+                WHERE last_seen >= ? AND forced_down = FALSE
+                """, resultSet -> {
+                    Map<String, Integer> candidates = new LinkedHashMap<>();
+                    while (resultSet.next()) {
+                        candidates.put(resultSet.getString("node_id"), resultSet.getInt("node_weight"));
+                    }
+                    return candidates;
+                }, Timestamp.valueOf(aliveSince));
+    }
+
+    private List<String> partitionListenerIds(int partition) {
+        return writeListenerIds.stream()
+                .map(listenerId -> TaskRabbitMqConfig.partitionListenerId(listenerId, partition))
+                .toList();
+    }
+
     private void startTaskListener() {
-        TaskRabbitMqConfig.WRITE_LISTENER_IDS.forEach(this::startListener);
+        writeListenerIds.forEach(this::startListener);
     }
 
     private void stopTaskListener() {
-        TaskRabbitMqConfig.WRITE_LISTENER_IDS.forEach(this::stopListener);
+        if (partitions > 1) {
+            ownedPartitions.forEach(partition -> partitionListenerIds(partition).forEach(this::stopListener));
+            ownedPartitions.clear();
+            return;
+        }
+        writeListenerIds.forEach(this::stopListener);
     }
 
     private void startListener(String listenerId) {
@@ -151,4 +473,10 @@ public class LeaderElectionService {
             container.stop();
         }
     }
+
+    private record CandidateState(boolean forcedDown, int networkDelayMs, boolean messageCorruption) {
+    }
+
+    private record LeaseState(boolean forcedDown, int networkDelayMs, boolean messageCorruption, String preferredNodeId) {
+    }
 }
@@ -0,0 +1,161 @@
+package com.bsr.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dzierżawa roli lidera oparta na blokadzie doradczej PostgreSQL ({@code pg_try_advisory_lock}).
+ * Blokada należy do sesji, dlatego używane jest osobne połączenie spoza puli: zerwanie połączenia
+ * (awaria procesu lidera) natychmiast zwalnia blokadę. Na tym samym połączeniu węzeł nasłuchuje
+ * ({@code LISTEN}) zdarzeń zmiany lidera, więc reaguje na nie bez odpytywania tabeli kandydatów.
+ * Obecność połączenia (nazwa aplikacji {@code leader-lease:<nodeId>} w {@code pg_stat_activity}) oznacza,
+ * że węzeł działa - tryb advisory-lock nie potrzebuje cyklicznego heartbeatu.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PostgresLeaderLease {
+    public static final String CHANNEL = "node_leader_events";
+    public static final String APPLICATION_NAME_PREFIX = "leader-lease:";
+
+    private final DataSourceProperties dataSourceProperties;
+
+    @Value("${node.id:node-local}")
+    private String nodeId;
+
+    @Value("${node.leader.lock-key:7361726}")
+    private long lockKey;
+
+    @Value("${node.leader.lease-validation-timeout-seconds:2}")
+    private int validationTimeoutSeconds;
+
+    private Connection connection;
+
+    public synchronized boolean isOpen() {
+        return connection != null;
+    }
+
+    public synchronized void open() throws SQLException {
+        connection = DriverManager.getConnection(
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword());
+        try (Statement statement = connection.createStatement()) {
+            // Serwer szybciej wykrywa martwego klienta i zwalnia jego blokadę
+            statement.execute("SET tcp_keepalives_idle = 5");
+            statement.execute("SET tcp_keepalives_interval = 2");
+            statement.execute("SET tcp_keepalives_count = 3");
+            statement.execute("SET application_name = '" + APPLICATION_NAME_PREFIX + nodeId.replace("'", "") + "'");
+            statement.execute("LISTEN " + CHANNEL);
+        }
+    }
+
+    public synchronized boolean tryAcquire() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, lockKey);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Publikuje ten węzeł jako lidera w {@code node_leader} (wraz z identyfikatorem sesji trzymającej blokadę)
+     * i zwraca nową epokę - token fencingu większy od epoki każdego poprzedniego lidera.
+     * Wywoływane zaraz po przejęciu blokady, na tym samym połączeniu.
+     */
+    public synchronized long publishLeader() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("""
+                UPDATE node_leader
+                SET node_id = ?, holder_pid = pg_backend_pid(), epoch = epoch + 1, acquired_at = now()
+                WHERE id = 1
+                RETURNING epoch
+                """)) {
+            statement.setString(1, nodeId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new SQLException("node_leader row is missing");
+                }
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Powiadamia pozostałe węzły o dołączeniu tego węzła - lider sprawdza wtedy, czy oddać mu rolę.
+     */
+    public synchronized void notifyJoined() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, CHANNEL);
+            statement.setString(2, "joined:" + nodeId);
+            statement.execute();
+        }
+    }
+
+    /**
+     * Sprawdza, czy sesja trzymająca blokadę nadal istnieje - lider, który nie może tego potwierdzić,
+     * musi przestać przetwarzać polecenia, bo blokada mogła już przejść na inny węzeł.
+     */
+    public synchronized boolean isValid() throws SQLException {
+        return connection.isValid(validationTimeoutSeconds);
+    }
+
+    /**
+     * Zwalnia blokadę i powiadamia pozostałe węzły; {@code payload} może wskazać następcę.
+     */
+    public synchronized void release(String payload) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?), pg_notify(?, ?)")) {
+            statement.setLong(1, lockKey);
+            statement.setString(2, CHANNEL);
+            statement.setString(3, payload);
+            statement.execute();
+        }
+    }
+
+    /**
+     * Czeka na powiadomienia najwyżej {@code timeoutMs}; zwraca ich treści (pustą listę po upływie czasu).
+     */
+    public List<String> awaitNotifications(int timeoutMs) throws SQLException {
+        Connection current;
+        synchronized (this) {
+            current = connection;
+        }
+        PGNotification[] notifications = current.unwrap(PGConnection.class).getNotifications(timeoutMs);
+        List<String> payloads = new ArrayList<>();
+        if (notifications != null) {
+            for (PGNotification notification : notifications) {
+                payloads.add(notification.getParameter());
+            }
+        }
+        return payloads;
+    }
+
+    /**
+     * Zamyka połączenie; serwer zwalnia wtedy blokadę, jeśli była trzymana.
+     */
+    public synchronized void close() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException exception) {
+            log.warn("Closing leader lease connection failed: {}", exception.getMessage());
+        }
+        connection = null;
+    }
+}
@@ -2,7 +2,13 @@ package com.bsr.service;
 
 import com.bsr.messaging.CreateTaskCommand;
 import com.bsr.messaging.AddTaskCommentCommand;
+import com.bsr.messaging.CreateTaskResult;
+import com.bsr.messaging.DeleteTaskCommand;
+import com.bsr.messaging.IdempotentCommand;
 import com.bsr.messaging.SetTaskStatusCommand;
+import com.bsr.messaging.TaskCommentSnapshot;
+import com.bsr.messaging.TaskOperationResult;
+import com.bsr.messaging.TaskSnapshot;
 import com.bsr.messaging.UpdateTaskCommand;
 import com.bsr.model.Project;
 import com.bsr.model.Task;
@@ -10,13 +16,38 @@ import com.bsr.model.TaskComment;
 import com.bsr.model.User;
 import com.bsr.repository.ProjectRepository;
 import com.bsr.repository.TaskCommentRepository;
+import com.bsr.repository.TaskOutboxRepository;
 import com.bsr.repository.TaskRepository;
 import com.bsr.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Operacje zapisu wykonywane przez lidera. Każda metoda zwraca migawkę stanu po zapisie
+ * (saveAndFlush, aby znaczniki czasu były już ustawione), zbudowaną wewnątrz transakcji.
+ * Aktualizacja i zmiana statusu pojedynczego zadania to jedno polecenie SQL zwracające migawkę
+ * ({@link TaskRepository#updateFields}, {@link TaskRepository#updateStatus}) - bez ładowania encji.
+ * Zmiana zadania jest zapisywana w tej samej transakcji do {@code task_outbox}, skąd publikuje ją
+ * {@link com.bsr.messaging.TaskOutboxRelay}.
+ * Każda transakcja zapisu zaczyna się od sprawdzenia epoki lidera ({@link LeaderElectionService#verifyLeaderEpoch()}).
+ * Utworzenie zadania i dodanie komentarza z kluczem idempotencji, który ten sam autor użył już dla tej samej
+ * treści, zwraca zapisany wynik (stan bieżący) bez ponownego zapisu i bez wstrzykiwania awarii.
+ * Aktualizacja, zmiana statusu i usunięcie mają klucz z identyfikatora wiadomości - ponowne doręczenie
+ * zwraca bieżący stan zadania (usunięcie - sukces) zamiast wykonywać zmianę drugi raz.
+ */
 @Service
 @RequiredArgsConstructor
 public class TaskCreationService {
@@ -26,10 +57,183 @@ public class TaskCreationService {
     private final TaskCommentRepository taskCommentRepository;
     private final DistributedEventService distributedEventService;
     private final FaultInjectionService faultInjectionService;
+    private final TaskOutboxRepository taskOutboxRepository;
+    private final IdempotencyService idempotencyService;
+    private final LeaderElectionService leaderElectionService;
 
     @Transactional
-    public Task createTask(CreateTaskCommand command) {
+    public TaskSnapshot createTask(CreateTaskCommand command) {
+        leaderElectionService.verifyLeaderEpoch();
+        Task replayedTask = replayedTask(command);
+        if (replayedTask != null) {
+            return TaskSnapshot.from(replayedTask);
+        }
         faultInjectionService.applyFaults("CREATE_TASK");
+        Task savedTask = taskRepository.saveAndFlush(newTask(command));
+        Task concurrentTask = concurrentTask(command, savedTask);
+        if (concurrentTask != null) {
+            return TaskSnapshot.from(concurrentTask);
+        }
+        distributedEventService.record("TASK_CREATED", "taskId=" + savedTask.getId());
+        taskOutboxRepository.append(savedTask.getId(), "TASK_CREATED");
+        return TaskSnapshot.from(savedTask);
+    }
+
+    @Transactional
+    public TaskSnapshot updateTask(UpdateTaskCommand command) {
+        leaderElectionService.verifyLeaderEpoch();
+        Task replayedTask = replayedTaskChange(IdempotencyService.UPDATE_TASK, command, requestHash(command));
+        if (replayedTask != null) {
+            return TaskSnapshot.from(replayedTask);
+        }
+        faultInjectionService.applyFaults("UPDATE_TASK");
+        if (command.getAssignedToId() != null && !userRepository.existsById(command.getAssignedToId())) {
+            throw new EntityNotFoundException("Assigned user not found");
+        }
+        TaskSnapshot snapshot = taskRepository.updateFields(command, LocalDateTime.now())
+                .orElseThrow(() -> notUpdated(command.getTaskId()));
+        recordTaskChange(IdempotencyService.UPDATE_TASK, command, requestHash(command), snapshot.getId());
+        distributedEventService.record("TASK_UPDATED", "taskId=" + snapshot.getId());
+        taskOutboxRepository.append(snapshot.getId(), "TASK_UPDATED");
+        return snapshot;
+    }
+
+    @Transactional
+    public void deleteTask(DeleteTaskCommand command) {
+        leaderElectionService.verifyLeaderEpoch();
+        if (idempotencyService.findResult(IdempotencyService.DELETE_TASK, IdempotencyService.NO_REQUESTER,
+                command.getIdempotencyKey(), requestHash(command)).isPresent()) {
+            return;
+        }
+        faultInjectionService.applyFaults("DELETE_TASK");
+        Long taskId = command.getTaskId();
+        Task task = taskRepository.findById(taskId)
+                .orElseThrow(() -> new EntityNotFoundException("Task not found"));
+        taskCommentRepository.deleteByTask(task);
+        taskRepository.delete(task);
+        recordTaskChange(IdempotencyService.DELETE_TASK, command, requestHash(command), taskId);
+        distributedEventService.record("TASK_DELETED", "taskId=" + taskId);
+        taskOutboxRepository.append(taskId, "TASK_DELETED");
+    }
+
+    @Transactional
+    public TaskSnapshot setTaskStatus(SetTaskStatusCommand command) {
+        leaderElectionService.verifyLeaderEpoch();
+        Task replayedTask = replayedTaskChange(IdempotencyService.SET_TASK_STATUS, command, requestHash(command));
+        if (replayedTask != null) {
+            return TaskSnapshot.from(replayedTask);
+        }
+        faultInjectionService.applyFaults("SET_TASK_STATUS");
+        TaskSnapshot snapshot = taskRepository.updateStatus(command.getTaskId(), command.getStatus(), LocalDateTime.now())
+                .orElseThrow(() -> new EntityNotFoundException("Task not found"));
+        recordTaskChange(IdempotencyService.SET_TASK_STATUS, command, requestHash(command), snapshot.getId());
+        distributedEventService.record("TASK_STATUS_CHANGED",
+                "taskId=" + snapshot.getId() + ",status=" + command.getStatus());
+        taskOutboxRepository.append(snapshot.getId(), "TASK_STATUS_CHANGED");
+        return snapshot;
+    }
+
+    @Transactional
+    public TaskCommentSnapshot addComment(AddTaskCommentCommand command) {
+        leaderElectionService.verifyLeaderEpoch();
+        TaskComment replayedComment = replayedComment(command);
+        if (replayedComment != null) {
+            return TaskCommentSnapshot.from(replayedComment);
+        }
+        faultInjectionService.applyFaults("ADD_COMMENT");
+        TaskComment savedComment = taskCommentRepository.saveAndFlush(newComment(command));
+        TaskComment concurrentComment = concurrentComment(command, savedComment);
+        if (concurrentComment != null) {
+            return TaskCommentSnapshot.from(concurrentComment);
+        }
+        distributedEventService.record("TASK_COMMENT_ADDED",
+                "taskId=" + savedComment.getTask().getId() + ",commentId=" + savedComment.getId());
+        taskOutboxRepository.append(savedComment.getTask().getId(), "TASK_COMMENT_ADDED");
+        return TaskCommentSnapshot.from(savedComment);
+    }
+
+    /**
+     * Tworzy zadania z całej paczki w jednej transakcji.
+     * Błąd domenowy (brak projektu/użytkownika) kończy niepowodzeniem tylko dane polecenie;
+     * każdy inny wyjątek wycofuje całą paczkę - wywołujący powtarza wtedy polecenia pojedynczo.
+     * Wstrzykiwanie awarii stosuje wywołujący, raz na paczkę.
+     */
+    @Transactional
+    public List<CreateTaskResult> createTasks(List<CreateTaskCommand> commands) {
+        leaderElectionService.verifyLeaderEpoch();
+        List<BatchOutcome<Task>> outcomes = applyAll(commands,
+                this::replayedTask,
+                command -> taskRepository.save(newTask(command)),
+                this::concurrentTask);
+        taskRepository.flush();
+        recordAll("TASK_CREATED", outcomes, task -> "taskId=" + task.getId());
+        appendAll("TASK_CREATED", outcomes, Task::getId);
+        return outcomes.stream()
+                .map(outcome -> outcome.failed()
+                        ? CreateTaskResult.failure(outcome.errorMessage())
+                        : CreateTaskResult.success(TaskSnapshot.from(outcome.value())))
+                .toList();
+    }
+
+    /**
+     * Aktualizuje zadania z całej paczki w jednej transakcji (zasady jak w {@link #createTasks(List)}).
+     * Nieaktualna wersja w poleceniu kończy konfliktem tylko to polecenie. Kolejne polecenie dla zadania
+     * zmienionego już w tej paczce też jest konfliktem - jego wersja zostałaby sprawdzona względem stanu
+     * sprzed pierwszej zmiany.
+     */
+    @Transactional
+    public List<TaskOperationResult> updateTasks(List<UpdateTaskCommand> commands) {
+        leaderElectionService.verifyLeaderEpoch();
+        Set<Long> updatedTaskIds = new HashSet<>();
+        List<BatchOutcome<Task>> outcomes = applyAll(commands,
+                command -> replayedTaskChange(IdempotencyService.UPDATE_TASK, command, requestHash(command)),
+                command -> {
+                    if (!updatedTaskIds.add(command.getTaskId())) {
+                        throw new ObjectOptimisticLockingFailureException(Task.class, command.getTaskId());
+                    }
+                    return taskRepository.save(applyUpdate(command));
+                },
+                (command, task) -> {
+                    recordTaskChange(IdempotencyService.UPDATE_TASK, command, requestHash(command), task.getId());
+                    return null;
+                });
+        taskRepository.flush();
+        recordAll("TASK_UPDATED", outcomes, task -> "taskId=" + task.getId());
+        appendAll("TASK_UPDATED", outcomes, Task::getId);
+        return outcomes.stream()
+                .map(outcome -> {
+                    if (outcome.error() instanceof OptimisticLockingFailureException) {
+                        return TaskOperationResult.conflict();
+                    }
+                    return outcome.failed()
+                            ? TaskOperationResult.failure(outcome.errorMessage())
+                            : TaskOperationResult.success(TaskSnapshot.from(outcome.value()));
+                })
+                .toList();
+    }
+
+    /**
+     * Dodaje komentarze z całej paczki w jednej transakcji (zasady jak w {@link #createTasks(List)}).
+     */
+    @Transactional
+    public List<TaskOperationResult> addComments(List<AddTaskCommentCommand> commands) {
+        leaderElectionService.verifyLeaderEpoch();
+        List<BatchOutcome<TaskComment>> outcomes = applyAll(commands,
+                this::replayedComment,
+                command -> taskCommentRepository.save(newComment(command)),
+                this::concurrentComment);
+        taskCommentRepository.flush();
+        recordAll("TASK_COMMENT_ADDED", outcomes,
+                comment -> "taskId=" + comment.getTask().getId() + ",commentId=" + comment.getId());
+        appendAll("TASK_COMMENT_ADDED", outcomes, comment -> comment.getTask().getId());
+        return outcomes.stream()
+                .map(outcome -> outcome.failed()
+                        ? TaskOperationResult.failure(outcome.errorMessage())
+                        : TaskOperationResult.commentSuccess(TaskCommentSnapshot.from(outcome.value())))
+                .toList();
+    }
+
+    private Task newTask(CreateTaskCommand command) {
         Project project = projectRepository.findById(command.getProjectId())
                 .orElseThrow(() -> new EntityNotFoundException("Project not found"));
         User createdBy = userRepository.findByEmail(command.getCreatedByEmail())
@@ -46,17 +250,23 @@ public class TaskCreationService {
         task.setDueDate(command.getDueDate());
         task.setCreatedBy(createdBy);
         task.setAssignedTo(assignedTo);
-
-        Task savedTask = taskRepository.save(task);
-        distributedEventService.record("TASK_CREATED", "taskId=" + savedTask.getId());
-        return savedTask;
+        return task;
     }
 
-    @Transactional
-    public Task updateTask(UpdateTaskCommand command) {
-        faultInjectionService.applyFaults("UPDATE_TASK");
+    // Wszystkie odczyty wykonywane są przed zmianą encji, aby nieudane polecenie
+    // nie zostawiło zmodyfikowanego zadania w kontekście trwałości paczki.
+    private Task applyUpdate(UpdateTaskCommand command) {
         Task task = taskRepository.findById(command.getTaskId())
                 .orElseThrow(() -> new EntityNotFoundException("Task not found"));
+        // Wersja z polecenia musi być sprawdzona jawnie - Hibernate porównuje tylko wersję odczytaną w tej transakcji
+        if (command.getVersion() != null && !command.getVersion().equals(task.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Task.class, task.getId());
+        }
+        User assignedTo = null;
+        if (command.getAssignedToId() != null) {
+            assignedTo = userRepository.findById(command.getAssignedToId())
+                    .orElseThrow(() -> new EntityNotFoundException("Assigned user not found"));
+        }
 
         if (command.getTitle() != null) {
             task.setTitle(command.getTitle());
@@ -73,43 +283,108 @@ public class TaskCreationService {
         if (command.getDueDate() != null) {
             task.setDueDate(command.getDueDate());
         }
-        if (command.getAssignedToId() != null) {
-            User assignedTo = userRepository.findById(command.getAssignedToId())
-                    .orElseThrow(() -> new EntityNotFoundException("Assigned user not found"));
+        if (assignedTo != null) {
             task.setAssignedTo(assignedTo);
         }
+        return task;
+    }
 
-        Task savedTask = taskRepository.save(task);
-        distributedEventService.record("TASK_UPDATED", "taskId=" + savedTask.getId());
-        return savedTask;
+    // Aktualizacja nie zmieniła wiersza: zadanie nie istnieje albo wersja w poleceniu jest nieaktualna
+    private RuntimeException notUpdated(Long taskId) {
+        if (taskRepository.existsById(taskId)) {
+            return new ObjectOptimisticLockingFailureException(Task.class, taskId);
+        }
+        return new EntityNotFoundException("Task not found");
     }
 
-    @Transactional
-    public void deleteTask(Long taskId) {
-        faultInjectionService.applyFaults("DELETE_TASK");
-        Task task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new EntityNotFoundException("Task not found"));
-        taskCommentRepository.deleteByTask(task);
-        taskRepository.delete(task);
-        distributedEventService.record("TASK_DELETED", "taskId=" + taskId);
+    // Zadanie zapisane wcześniej poleceniem tego autora z tym kluczem; usunięte od tego czasu daje "Task not found"
+    private Task replayedTask(CreateTaskCommand command) {
+        return idempotencyService.findResult(IdempotencyService.CREATE_TASK, command.getCreatedByEmail(),
+                        command.getIdempotencyKey(), requestHash(command))
+                .map(taskId -> taskRepository.findById(taskId)
+                        .orElseThrow(() -> new EntityNotFoundException("Task not found")))
+                .orElse(null);
     }
 
-    @Transactional
-    public Task setTaskStatus(SetTaskStatusCommand command) {
-        faultInjectionService.applyFaults("SET_TASK_STATUS");
-        Task task = taskRepository.findById(command.getTaskId())
-                .orElseThrow(() -> new EntityNotFoundException("Task not found"));
-        task.setStatus(command.getStatus());
+    // Zapisany komentarz musi należeć do zadania z polecenia - inaczej klucz użyto dla innego żądania
+    private TaskComment replayedComment(AddTaskCommentCommand command) {
+        return idempotencyService.findResult(IdempotencyService.ADD_COMMENT, command.getAuthorEmail(),
+                        command.getIdempotencyKey(), requestHash(command))
+                .map(commentId -> taskCommentRepository.findById(commentId)
+                        .orElseThrow(() -> new EntityNotFoundException("Comment not found")))
+                .map(comment -> {
+                    if (!comment.getTask().getId().equals(command.getTaskId())) {
+                        throw new IdempotencyKeyMismatchException();
+                    }
+                    return comment;
+                })
+                .orElse(null);
+    }
 
-        Task savedTask = taskRepository.save(task);
-        distributedEventService.record("TASK_STATUS_CHANGED",
-                "taskId=" + savedTask.getId() + ",status=" + command.getStatus());
-        return savedTask;
+    // Zadanie zmienione wcześniej tą samą wiadomością; zwracany jest jego bieżący stan
+    private Task replayedTaskChange(String operation, IdempotentCommand command, String requestHash) {
+        return idempotencyService.findResult(operation, IdempotencyService.NO_REQUESTER,
+                        command.getIdempotencyKey(), requestHash)
+                .map(taskId -> taskRepository.findById(taskId)
+                        .orElseThrow(() -> new EntityNotFoundException("Task not found")))
+                .orElse(null);
     }
 
-    @Transactional
-    public TaskComment addComment(AddTaskCommentCommand command) {
-        faultInjectionService.applyFaults("ADD_COMMENT");
+    // Zmiany nie da się cofnąć jak nowego wiersza - zajęty klucz wycofuje całą transakcję,
+    // a wynik zwraca polecenie, które zapisało klucz pierwsze
+    private void recordTaskChange(String operation, IdempotentCommand command, String requestHash, Long taskId) {
+        if (!idempotencyService.recordResult(operation, IdempotencyService.NO_REQUESTER,
+                command.getIdempotencyKey(), requestHash, taskId)) {
+            throw new IllegalStateException("Task " + taskId + " change was applied concurrently by the same message");
+        }
+    }
+
+    // Zapisuje klucz dla nowego zadania. Gdy równoległe polecenie z tym kluczem zatwierdziło wynik
+    // wcześniej, własny zapis jest usuwany w tej transakcji, a zwracane jest tamto zadanie.
+    private Task concurrentTask(CreateTaskCommand command, Task savedTask) {
+        if (idempotencyService.recordResult(IdempotencyService.CREATE_TASK, command.getCreatedByEmail(),
+                command.getIdempotencyKey(), requestHash(command), savedTask.getId())) {
+            return null;
+        }
+        taskRepository.delete(savedTask);
+        return Optional.ofNullable(replayedTask(command))
+                .orElseThrow(() -> new IllegalStateException("Idempotency key is taken but has no stored result"));
+    }
+
+    private TaskComment concurrentComment(AddTaskCommentCommand command, TaskComment savedComment) {
+        if (idempotencyService.recordResult(IdempotencyService.ADD_COMMENT, command.getAuthorEmail(),
+                command.getIdempotencyKey(), requestHash(command), savedComment.getId())) {
+            return null;
+        }
+        taskCommentRepository.delete(savedComment);
+        return Optional.ofNullable(replayedComment(command))
+                .orElseThrow(() -> new IllegalStateException("Idempotency key is taken but has no stored result"));
+    }
+
+    private static String requestHash(CreateTaskCommand command) {
+        return IdempotencyService.requestHash(command.getProjectId(), command.getTitle(), command.getDescription(),
+                command.getStatus(), command.getPriority(), command.getDueDate(), command.getAssignedToId());
+    }
+
+    private static String requestHash(AddTaskCommentCommand command) {
+        return IdempotencyService.requestHash(command.getTaskId(), command.getComment());
+    }
+
+    private static String requestHash(UpdateTaskCommand command) {
+        return IdempotencyService.requestHash(command.getTaskId(), command.getTitle(), command.getDescription(),
+                command.getStatus(), command.getPriority(), command.getDueDate(), command.getAssignedToId(),
+                command.getVersion());
+    }
+
+    private static String requestHash(SetTaskStatusCommand command) {
+        return IdempotencyService.requestHash(command.getTaskId(), command.getStatus());
+    }
+
+    private static String requestHash(DeleteTaskCommand command) {
+        return IdempotencyService.requestHash(command.getTaskId());
+    }
+
+    private TaskComment newComment(AddTaskCommentCommand command) {
         Task task = taskRepository.findById(command.getTaskId())
                 .orElseThrow(() -> new EntityNotFoundException("Task not found"));
         User user = userRepository.findByEmail(command.getAuthorEmail())
@@ -119,10 +394,68 @@ public class TaskCreationService {
         comment.setTask(task);
         comment.setUser(user);
         comment.setComment(command.getComment());
+        return comment;
+    }
 
-        TaskComment savedComment = taskCommentRepository.save(comment);
-        distributedEventService.record("TASK_COMMENT_ADDED",
-                "taskId=" + task.getId() + ",commentId=" + savedComment.getId());
-        return savedComment;
+    // replay zwraca wynik wcześniejszego polecenia z tym samym kluczem idempotencji albo null;
+    // concurrent zapisuje klucz po operacji i zwraca wynik równoległego polecenia, które zapisało go pierwsze, albo null
+    private <C, E> List<BatchOutcome<E>> applyAll(
+            List<C> commands,
+            Function<C, E> replay,
+            Function<C, E> operation,
+            BiFunction<C, E, E> concurrent) {
+        List<BatchOutcome<E>> outcomes = new ArrayList<>(commands.size());
+        for (C command : commands) {
+            try {
+                E replayed = replay.apply(command);
+                if (replayed != null) {
+                    outcomes.add(new BatchOutcome<>(replayed, null, true));
+                    continue;
+                }
+                E applied = operation.apply(command);
+                E concurrentResult = concurrent.apply(command, applied);
+                outcomes.add(concurrentResult != null
+                        ? new BatchOutcome<>(concurrentResult, null, true)
+                        : new BatchOutcome<>(applied, null, false));
+            } catch (EntityNotFoundException | OptimisticLockingFailureException | IdempotencyKeyMismatchException exception) {
+                outcomes.add(new BatchOutcome<>(null, exception, false));
+            }
+        }
+        return outcomes;
+    }
+
+    private <E> void recordAll(String eventType, List<BatchOutcome<E>> outcomes, Function<E, String> details) {
+        List<String> eventDetails = outcomes.stream()
+                .filter(BatchOutcome::applied)
+                .map(outcome -> details.apply(outcome.value()))
+                .toList();
+        if (!eventDetails.isEmpty()) {
+            distributedEventService.recordAll(eventType, eventDetails);
+        }
+    }
+
+    private <E> void appendAll(String changeType, List<BatchOutcome<E>> outcomes, Function<E, Long> taskId) {
+        List<Long> taskIds = outcomes.stream()
+                .filter(BatchOutcome::applied)
+                .map(outcome -> taskId.apply(outcome.value()))
+                .toList();
+        if (!taskIds.isEmpty()) {
+            taskOutboxRepository.appendAll(changeType, taskIds);
+        }
+    }
+
+    private record BatchOutcome<E>(E value, RuntimeException error, boolean replayed) {
+        boolean failed() {
+            return error != null;
+        }
+
+        // Zapis wykonany w tej paczce - tylko on trafia do dziennika zdarzeń i outboxa
+        boolean applied() {
+            return !failed() && !replayed;
+        }
+
+        String errorMessage() {
+            return error.getMessage();
+        }
     }
 }
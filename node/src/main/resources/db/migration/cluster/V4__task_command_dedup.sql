@@ -0,0 +1,15 @@
+-- Klucze idempotencji polecen zapisu (naglowek Idempotency-Key): wiersz wskazuje tylko identyfikator
+-- utworzonego zadania lub komentarza, a ponowienie odczytuje go zamiast zapisywac ponownie.
+-- Wiersze starsze niz node.idempotency.ttl-seconds usuwa cyklicznie IdempotencyService.
+-- Plik musi byc identyczny w module backend i node.
+
+CREATE TABLE IF NOT EXISTS task_command_dedup (
+    operation VARCHAR(30) NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    result_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (operation, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_task_command_dedup_created
+    ON task_command_dedup (created_at);
@@ -0,0 +1,18 @@
+-- Klucz idempotencji jest wlasnoscia autora polecenia (createdByEmail / authorEmail): ten sam klucz
+-- wyslany przez innego uzytkownika nie odczytuje cudzego wyniku.
+-- request_hash (SHA-256 tresci polecenia) pozwala odrzucic ponowne uzycie klucza z inna trescia.
+-- Dotychczasowe wiersze nie maja autora, wiec sa usuwane (i tak zyja najwyzej node.idempotency.ttl-seconds).
+-- Plik musi byc identyczny w module backend i node.
+
+DELETE FROM task_command_dedup;
+
+ALTER TABLE task_command_dedup DROP CONSTRAINT IF EXISTS task_command_dedup_pkey;
+
+ALTER TABLE task_command_dedup
+    ADD COLUMN IF NOT EXISTS requester_email VARCHAR(255) NOT NULL;
+
+ALTER TABLE task_command_dedup
+    ADD COLUMN IF NOT EXISTS request_hash VARCHAR(64) NOT NULL;
+
+ALTER TABLE task_command_dedup
+    ADD PRIMARY KEY (operation, requester_email, idempotency_key);
@@ -0,0 +1,14 @@
+-- Lider trybu advisory-lock publikowany przez wezel, ktory przejal blokade: epoka (token fencingu) rosnie
+-- przy kazdym przejeciu i jest sprawdzana w transakcjach zapisu, a holder_pid wskazuje sesje trzymajaca
+-- blokade (backend potwierdza ja w pg_locks, zamiast wyznaczac lidera z heartbeatu i wag).
+-- Plik musi byc identyczny w module backend i node.
+
+CREATE TABLE IF NOT EXISTS node_leader (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    node_id VARCHAR(128),
+    holder_pid INTEGER,
+    epoch BIGINT NOT NULL DEFAULT 0,
+    acquired_at TIMESTAMP
+);
+
+INSERT INTO node_leader (id) VALUES (1) ON CONFLICT (id) DO NOTHING;
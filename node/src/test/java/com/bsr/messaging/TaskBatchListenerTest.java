@@ -0,0 +1,162 @@
+package com.bsr.messaging;
+
+import com.bsr.model.Task;
+import com.bsr.service.FaultInjectionService;
+import com.bsr.service.TaskCreationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Testy listenera TaskBatchListener")
+@ExtendWith(MockitoExtension.class)
+class TaskBatchListenerTest {
+    @Mock
+    private TaskCreationService taskCreationService;
+
+    @Mock
+    private FaultInjectionService faultInjectionService;
+
+    @Mock
+    private TaskReplySender taskReplySender;
+
+    private final MessageConverter converter = new Jackson2JsonMessageConverter();
+
+    private TaskBatchListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new TaskBatchListener(taskCreationService, faultInjectionService, taskReplySender, converter);
+    }
+
+    private Message request(Object command, String correlationId) {
+        MessageProperties properties = new MessageProperties();
+        properties.setReplyTo("amq.rabbitmq.reply-to.test");
+        properties.setCorrelationId(correlationId);
+        properties.setHeader("__TypeId__", "pl.projekt.backend.messaging." + command.getClass().getSimpleName());
+        return new Message(converter.toMessage(command, new MessageProperties()).getBody(), properties);
+    }
+
+    @Test
+    @DisplayName("Każde polecenie z paczki dostaje własną odpowiedź")
+    void updateBatch_RepliesToEachRequest() {
+        UpdateTaskCommand first = new UpdateTaskCommand();
+        first.setTaskId(1L);
+        UpdateTaskCommand second = new UpdateTaskCommand();
+        second.setTaskId(2L);
+        Message firstRequest = request(first, "c-1");
+        Message secondRequest = request(second, "c-2");
+        TaskOperationResult ok = TaskOperationResult.success(1L);
+        TaskOperationResult failed = TaskOperationResult.failure("Task not found");
+
+        when(taskCreationService.updateTasks(argThat(commands -> commands.size() == 2
+                && commands.get(1).getTaskId().equals(2L)
+                && "message:c-2".equals(commands.get(1).getIdempotencyKey())))).thenReturn(List.of(ok, failed));
+
+        listener.updateBatch(List.of(firstRequest, secondRequest));
+
+        verify(faultInjectionService).applyFaults("UPDATE_TASK");
+        verify(taskReplySender).reply(firstRequest, ok);
+        verify(taskReplySender).reply(secondRequest, failed);
+    }
+
+    @Test
+    @DisplayName("Błąd całej paczki - polecenia są powtarzane pojedynczo")
+    void updateBatch_FallsBackToSingleCommands_WhenBatchFails() {
+        UpdateTaskCommand first = new UpdateTaskCommand();
+        first.setTaskId(1L);
+        UpdateTaskCommand second = new UpdateTaskCommand();
+        second.setTaskId(2L);
+        Message firstRequest = request(first, "c-1");
+        Message secondRequest = request(second, "c-2");
+        first.setIdempotencyKey("message:c-1");
+        second.setIdempotencyKey("message:c-2");
+        TaskOperationResult ok = TaskOperationResult.success(2L);
+
+        when(taskCreationService.updateTasks(argThat(commands -> commands != null && commands.size() == 2)))
+                .thenThrow(new IllegalStateException("constraint violation"));
+        when(taskCreationService.updateTasks(List.of(first)))
+                .thenThrow(new IllegalStateException("constraint violation"));
+        when(taskCreationService.updateTasks(List.of(second))).thenReturn(List.of(ok));
+
+        listener.updateBatch(List.of(firstRequest, secondRequest));
+
+        verify(taskReplySender).reply(eq(firstRequest),
+                argThat(result -> result instanceof TaskOperationResult r
+                        && !r.isSuccess() && "constraint violation".equals(r.getErrorMessage())));
+        verify(taskReplySender).reply(secondRequest, ok);
+    }
+
+    @Test
+    @DisplayName("Konflikt wersji przy zapisie paczki - polecenie dostaje odpowiedź konfliktu")
+    void updateBatch_RepliesWithConflict_WhenFlushDetectsStaleVersion() {
+        UpdateTaskCommand first = new UpdateTaskCommand();
+        first.setTaskId(1L);
+        UpdateTaskCommand second = new UpdateTaskCommand();
+        second.setTaskId(2L);
+        Message firstRequest = request(first, "c-1");
+        Message secondRequest = request(second, "c-2");
+        first.setIdempotencyKey("message:c-1");
+        second.setIdempotencyKey("message:c-2");
+        TaskOperationResult ok = TaskOperationResult.success(2L);
+
+        when(taskCreationService.updateTasks(argThat(commands -> commands != null && commands.size() == 2)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Task.class, 1L));
+        when(taskCreationService.updateTasks(List.of(first)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Task.class, 1L));
+        when(taskCreationService.updateTasks(List.of(second))).thenReturn(List.of(ok));
+
+        listener.updateBatch(List.of(firstRequest, secondRequest));
+
+        verify(taskReplySender).reply(eq(firstRequest),
+                argThat(result -> result instanceof TaskOperationResult r && r.isConflict()));
+        verify(taskReplySender).reply(secondRequest, ok);
+    }
+
+    @Test
+    @DisplayName("Wstrzyknięta awaria kończy niepowodzeniem wszystkie polecenia paczki")
+    void createBatch_RepliesWithFailure_WhenFaultInjected() {
+        CreateTaskCommand command = new CreateTaskCommand();
+        command.setTitle("A");
+        Message createRequest = request(command, "c-1");
+        doThrow(new IllegalStateException("Simulated message corruption while processing: CREATE_TASK"))
+                .when(faultInjectionService).applyFaults("CREATE_TASK");
+
+        listener.createBatch(List.of(createRequest));
+
+        verify(taskReplySender).reply(eq(createRequest), argThat(result -> result instanceof CreateTaskResult r
+                && "Simulated message corruption while processing: CREATE_TASK".equals(r.getErrorMessage())));
+        verifyNoInteractions(taskCreationService);
+    }
+
+    @Test
+    @DisplayName("Wiadomość, której nie da się odczytać, dostaje odpowiedź z błędem")
+    void commentBatch_RepliesWithFailure_WhenPayloadIsInvalid() {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setReplyTo("amq.rabbitmq.reply-to.test");
+        Message broken = new Message("{not-json".getBytes(), properties);
+
+        listener.commentBatch(List.of(broken));
+
+        verify(taskReplySender).reply(eq(broken), argThat(result -> result instanceof TaskOperationResult r
+                && !r.isSuccess()));
+        verifyNoInteractions(taskCreationService, faultInjectionService);
+    }
+}
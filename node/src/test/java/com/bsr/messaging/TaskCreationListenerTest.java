@@ -1,13 +1,15 @@
 package com.bsr.messaging;
 
-import com.bsr.model.Task;
 import com.bsr.service.TaskCreationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -21,20 +23,28 @@ class TaskCreationListenerTest {
     @Mock
     private TaskCreationService taskCreationService;
 
+    private Message request(String correlationId) {
+        MessageProperties properties = new MessageProperties();
+        properties.setCorrelationId(correlationId);
+        return new Message(new byte[0], properties);
+    }
+
     @Test
     @DisplayName("Obsługa polecenia utworzenia zadania - sukces")
     void handle_ShouldReturnSuccess_WhenTaskIsCreated() {
         CreateTaskCommand command = new CreateTaskCommand();
-        Task task = new Task();
+        TaskSnapshot task = new TaskSnapshot();
         task.setId(42L);
-        TaskCreationListener listener = new TaskCreationListener(taskCreationService);
+        task.setTitle("Nowe zadanie");
+        TaskCreationListener listener = new TaskCreationListener(taskCreationService, new TaskLaneDispatcher(1, new SimpleMeterRegistry()));
 
         when(taskCreationService.createTask(command)).thenReturn(task);
 
-        CreateTaskResult result = listener.handle(command);
+        CreateTaskResult result = listener.handle(command, request("c-1")).join();
 
         assertTrue(result.isSuccess());
         assertEquals(42L, result.getTaskId());
+        assertEquals("Nowe zadanie", result.getTask().getTitle());
         assertNull(result.getErrorMessage());
     }
 
@@ -42,15 +52,42 @@ class TaskCreationListenerTest {
     @DisplayName("Obsługa polecenia utworzenia zadania - błąd przy braku powiązanego elementu")
     void handle_ShouldReturnFailure_WhenReferencedEntityIsMissing() {
         CreateTaskCommand command = new CreateTaskCommand();
-        TaskCreationListener listener = new TaskCreationListener(taskCreationService);
+        TaskCreationListener listener = new TaskCreationListener(taskCreationService, new TaskLaneDispatcher(1, new SimpleMeterRegistry()));
 
         when(taskCreationService.createTask(command))
                 .thenThrow(new EntityNotFoundException("Project not found"));
 
-        CreateTaskResult result = listener.handle(command);
+        CreateTaskResult result = listener.handle(command, request("c-1")).join();
 
         assertFalse(result.isSuccess());
         assertNull(result.getTaskId());
         assertEquals("Project not found", result.getErrorMessage());
     }
+
+    @Test
+    @DisplayName("Polecenie bez klucza idempotencji dostaje klucz z identyfikatora korelacji wiadomości")
+    void handle_ShouldUseCorrelationIdAsIdempotencyKey_WhenClientSentNoKey() {
+        CreateTaskCommand command = new CreateTaskCommand();
+        TaskCreationListener listener = new TaskCreationListener(taskCreationService, new TaskLaneDispatcher(1, new SimpleMeterRegistry()));
+
+        when(taskCreationService.createTask(command)).thenReturn(new TaskSnapshot());
+
+        listener.handle(command, request("c-7")).join();
+
+        assertEquals("message:c-7", command.getIdempotencyKey());
+    }
+
+    @Test
+    @DisplayName("Klucz idempotencji podany przez klienta nie jest nadpisywany")
+    void handle_ShouldKeepClientIdempotencyKey() {
+        CreateTaskCommand command = new CreateTaskCommand();
+        command.setIdempotencyKey("client-key");
+        TaskCreationListener listener = new TaskCreationListener(taskCreationService, new TaskLaneDispatcher(1, new SimpleMeterRegistry()));
+
+        when(taskCreationService.createTask(command)).thenReturn(new TaskSnapshot());
+
+        listener.handle(command, request("c-7")).join();
+
+        assertEquals("client-key", command.getIdempotencyKey());
+    }
 }
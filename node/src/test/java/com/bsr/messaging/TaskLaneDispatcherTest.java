@@ -0,0 +1,176 @@
+package com.bsr.messaging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Testy rozdzielania poleceń TaskLaneDispatcher")
+class TaskLaneDispatcherTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TaskLaneDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Polecenia tego samego zadania wykonują się w kolejności przekazania, nawet gdy pierwsze z nich się opóźnia.
+     */
+    @Test
+    @DisplayName("Zachowanie kolejności poleceń jednego zadania")
+    void dispatch_ShouldKeepOrder_ForSameTask() {
+        dispatcher = new TaskLaneDispatcher(4, meterRegistry);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            int order = i;
+            futures.add(dispatcher.dispatch(7L, () -> {
+                if (order == 0) {
+                    sleep(50);
+                }
+                executed.add(order);
+                return order;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        assertEquals(20, executed.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, executed.get(i));
+        }
+    }
+
+    /**
+     * Zablokowany tor jednego zadania nie wstrzymuje poleceń zadania przypisanego do innego toru.
+     */
+    @Test
+    @DisplayName("Równoległe wykonanie poleceń różnych zadań")
+    void dispatch_ShouldNotBlockOtherLanes_WhenOneLaneIsBusy() throws InterruptedException {
+        dispatcher = new TaskLaneDispatcher(4, meterRegistry);
+        long blockedTask = 1L;
+        long otherTask = 2L;
+        assertNotEquals(dispatcher.laneFor(blockedTask), dispatcher.laneFor(otherTask));
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> blocked = dispatcher.dispatch(blockedTask, () -> await(release));
+        CompletableFuture<Long> other = dispatcher.dispatch(otherTask, () -> otherTask);
+
+        assertEquals(otherTask, other.orTimeout(2, TimeUnit.SECONDS).join());
+        release.countDown();
+        assertTrue(blocked.orTimeout(2, TimeUnit.SECONDS).join());
+    }
+
+    /**
+     * Tor zależy tylko od klucza, a polecenia bez klucza trafiają do toru 0.
+     */
+    @Test
+    @DisplayName("Stały tor dla klucza i tor 0 dla braku klucza")
+    void laneFor_ShouldBeStable_AndUseFirstLaneForNullKey() {
+        dispatcher = new TaskLaneDispatcher(8, meterRegistry);
+
+        assertEquals(8, dispatcher.laneCount());
+        assertEquals(0, dispatcher.laneFor(null));
+        for (long taskId = 1; taskId < 100; taskId++) {
+            int lane = dispatcher.laneFor(taskId);
+            assertEquals(lane, dispatcher.laneFor(Long.valueOf(taskId)));
+            assertTrue(lane >= 0 && lane < 8);
+        }
+    }
+
+    /**
+     * Wiele wątków przekazuje polecenia jednocześnie - żadne nie ginie, a metryki torów sumują się do ich liczby.
+     */
+    @Test
+    @DisplayName("Brak utraty poleceń przy równoległym przekazywaniu")
+    void dispatch_ShouldRunEveryCommand_WhenSubmittedConcurrently() throws InterruptedException {
+        dispatcher = new TaskLaneDispatcher(4, meterRegistry);
+        int producers = 8;
+        int perProducer = 500;
+        List<CompletableFuture<Long>> futures = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int producer = 0; producer < producers; producer++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                await(start);
+                for (long i = 0; i < perProducer; i++) {
+                    long key = i;
+                    futures.add(dispatcher.dispatch(key, () -> key));
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).orTimeout(5, TimeUnit.SECONDS).join();
+
+        double executed = meterRegistry.find("node.listener.lanes.executed").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+        assertEquals(producers * perProducer, executed);
+    }
+
+    /**
+     * Gdy wszystkie polecenia mają ten sam klucz, jeden tor wykonuje całą pracę - wskaźnik
+     * nierównomierności równa się liczbie torów; przy równym rozkładzie wynosi 1.
+     */
+    @Test
+    @DisplayName("Metryka nierównomierności obciążenia torów")
+    void imbalance_ShouldReflectDistributionOfCommands() {
+        dispatcher = new TaskLaneDispatcher(4, meterRegistry);
+        assertEquals(1.0, dispatcher.imbalance());
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(dispatcher.dispatch(7L, () -> 1));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        assertEquals(4.0, dispatcher.imbalance());
+        assertEquals(4.0, meterRegistry.get("node.listener.lanes.imbalance").gauge().value());
+
+        futures.clear();
+        for (long taskId = 0; taskId < 4; taskId++) {
+            if (dispatcher.laneFor(taskId) == dispatcher.laneFor(7L)) {
+                continue;
+            }
+            for (int i = 0; i < 8; i++) {
+                futures.add(dispatcher.dispatch(taskId, () -> 1));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        assertEquals(1.0, dispatcher.imbalance());
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
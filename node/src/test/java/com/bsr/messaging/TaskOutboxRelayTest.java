@@ -0,0 +1,128 @@
+package com.bsr.messaging;
+
+import com.bsr.config.TaskRabbitMqConfig;
+import com.bsr.repository.TaskOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Testy przekaźnika TaskOutboxRelay")
+@ExtendWith(MockitoExtension.class)
+class TaskOutboxRelayTest {
+
+    @Mock
+    private TaskOutboxRepository taskOutboxRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Usuwane są tylko wpisy potwierdzone przez brokera; odrzucony wpis zostaje do ponowienia.
+     */
+    @Test
+    @DisplayName("Usunięcie z outboxa tylko potwierdzonych zdarzeń")
+    void relayBatch_DeletesOnlyAckedEntries() {
+        TaskOutboxRelay relay = new TaskOutboxRelay(taskOutboxRepository, rabbitTemplate, transactionManager,
+                meterRegistry, 10, 1000, 10, 200);
+        when(taskOutboxRepository.lockBatch(10)).thenReturn(List.of(
+                new TaskOutboxRepository.Entry(1L, 5L, "TASK_UPDATED"),
+                new TaskOutboxRepository.Entry(2L, 6L, "TASK_DELETED"),
+                new TaskOutboxRepository.Entry(3L, 5L, "TASK_COMMENT_ADDED")));
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.getFuture().complete(new CorrelationData.Confirm(!"2".equals(correlation.getId()), "nack"));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(eq(TaskRabbitMqConfig.TASK_CHANGED_EXCHANGE), eq(""),
+                any(TaskChangedEvent.class), any(CorrelationData.class));
+
+        int relayed = relay.relayBatch();
+
+        assertEquals(2, relayed);
+        verify(taskOutboxRepository).deleteAll(List.of(1L, 3L));
+        ArgumentCaptor<TaskChangedEvent> events = ArgumentCaptor.forClass(TaskChangedEvent.class);
+        verify(rabbitTemplate, times(3)).convertAndSend(eq(TaskRabbitMqConfig.TASK_CHANGED_EXCHANGE),
+                eq(""), events.capture(), any(CorrelationData.class));
+        assertEquals(new TaskChangedEvent(6L, "TASK_DELETED"), events.getAllValues().get(1));
+        assertEquals(2.0, meterRegistry.get("node.outbox.published").counter().count());
+        assertEquals(1.0, meterRegistry.get("node.outbox.unconfirmed").counter().count());
+    }
+
+    /**
+     * Brak potwierdzenia w czasie confirm-timeout-ms pozostawia wpisy w outboxie.
+     */
+    @Test
+    @DisplayName("Brak potwierdzenia pozostawia wpisy w outboxie")
+    void relayBatch_KeepsEntries_WhenConfirmTimesOut() {
+        TaskOutboxRelay relay = new TaskOutboxRelay(taskOutboxRepository, rabbitTemplate, transactionManager,
+                meterRegistry, 10, 50, 10, 200);
+        when(taskOutboxRepository.lockBatch(10)).thenReturn(List.of(
+                new TaskOutboxRepository.Entry(1L, 5L, "TASK_UPDATED")));
+
+        int relayed = relay.relayBatch();
+
+        assertEquals(0, relayed);
+        verify(taskOutboxRepository, never()).deleteAll(anyList());
+        assertEquals(1.0, meterRegistry.get("node.outbox.unconfirmed").counter().count());
+    }
+
+    /**
+     * Bez wpisów w outboxie przekaźnik nie korzysta z brokera.
+     */
+    @Test
+    @DisplayName("Pusty outbox nie wysyła zdarzeń")
+    void relayBatch_DoesNothing_WhenOutboxIsEmpty() {
+        TaskOutboxRelay relay = new TaskOutboxRelay(taskOutboxRepository, rabbitTemplate, transactionManager,
+                meterRegistry, 10, 1000, 10, 200);
+        when(taskOutboxRepository.lockBatch(10)).thenReturn(List.of());
+
+        assertEquals(0, relay.relayBatch());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    /**
+     * Przy stale pełnych paczkach przebieg kończy się po {@code max-batches-per-run}, aby nie zajmować wątku bez końca.
+     */
+    @Test
+    @DisplayName("Ograniczenie liczby paczek w jednym przebiegu")
+    void relay_StopsAfterMaxBatchesPerRun() {
+        TaskOutboxRelay relay = new TaskOutboxRelay(taskOutboxRepository, rabbitTemplate, transactionManager,
+                meterRegistry, 1, 1000, 3, 200);
+        when(taskOutboxRepository.lockBatch(1)).thenReturn(List.of(
+                new TaskOutboxRepository.Entry(1L, 5L, "TASK_UPDATED")));
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(eq(TaskRabbitMqConfig.TASK_CHANGED_EXCHANGE), eq(""),
+                any(TaskChangedEvent.class), any(CorrelationData.class));
+
+        assertEquals(3, relay.relay());
+        verify(taskOutboxRepository, times(3)).deleteAll(List.of(1L));
+    }
+}
@@ -1,5 +1,8 @@
 package com.bsr.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -9,14 +12,22 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.sql.Timestamp;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @DisplayName("Testy serwisu DistributedEventService")
 @ExtendWith(MockitoExtension.class)
@@ -25,44 +36,118 @@ class DistributedEventServiceTest {
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeterRegistry meterRegistry;
+
     private DistributedEventService distributedEventService;
 
     @BeforeEach
     void setUp() {
-        distributedEventService = new DistributedEventService(jdbcTemplate);
-        ReflectionTestUtils.setField(distributedEventService, "nodeId", "node-2");
+        distributedEventService = createService(10, Set.of("MESSAGE_CORRUPTION_TRIGGERED"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(distributedEventService, "running", false);
+    }
+
+    private DistributedEventService createService(int queueCapacity, Set<String> syncTypes) {
+        meterRegistry = new SimpleMeterRegistry();
+        DistributedEventService service = new DistributedEventService(
+                jdbcTemplate, transactionManager, meterRegistry, queueCapacity, 100, 2000, syncTypes);
+        ReflectionTestUtils.setField(service, "nodeId", "node-2");
+        return service;
     }
 
     @Test
-    @DisplayName("Inicjalizacja tworzy tabelę zdarzeń, jeśli nie istnieje")
-    void initialize_CreatesEventsTableIfMissing() {
+    @DisplayName("Inicjalizacja nie wykonuje DDL - tabelę zdarzeń tworzą migracje")
+    void initialize_DoesNotRunDdl() {
         distributedEventService.initialize();
 
-        verify(jdbcTemplate).execute(contains("CREATE TABLE IF NOT EXISTS distributed_node_events"));
+        verify(jdbcTemplate, never()).execute(anyString());
     }
 
     @Test
-    @DisplayName("Rejestrowanie zdarzenia zapewnia istnienie tabeli przed wstawieniem")
-    void record_EnsuresTableExistsBeforeInserting() {
+    @DisplayName("Rejestrowanie zdarzenia nie wykonuje DDL ani zapisu w wątku wywołującym")
+    void record_OnlyEnqueuesAsyncEvent() {
         distributedEventService.record("NODE_RECOVERED", "details");
 
-        verify(jdbcTemplate).execute(contains("CREATE TABLE IF NOT EXISTS distributed_node_events"));
-        verify(jdbcTemplate).update(contains("INSERT INTO distributed_node_events"), any(Object[].class));
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertEquals(1.0, meterRegistry.get("node.events.queue.depth").gauge().value());
     }
 
     @Test
-    @DisplayName("Rejestrowanie zdarzenia zapisuje znacznik czasu, identyfikator węzła, typ zdarzenia i szczegóły")
-    void record_InsertsEventWithTimestampNodeIdEventTypeAndDetails() {
+    @DisplayName("Zapis paczki zawiera znacznik czasu, identyfikator węzła, typ zdarzenia i szczegóły")
+    @SuppressWarnings("unchecked")
+    void flushPending_InsertsEventWithTimestampNodeIdEventTypeAndDetails() {
         distributedEventService.record("TASK_CREATED", "taskId=42");
 
-        ArgumentCaptor<Object[]> argsCaptor = ArgumentCaptor.forClass(Object[].class);
-        verify(jdbcTemplate).update(contains("INSERT INTO distributed_node_events"), argsCaptor.capture());
+        assertEquals(1, distributedEventService.flushPending());
+
+        ArgumentCaptor<List<Object[]>> argsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO distributed_node_events"), argsCaptor.capture());
 
-        Object[] args = argsCaptor.getValue();
+        Object[] args = argsCaptor.getValue().get(0);
         assertEquals(4, args.length);
         assertInstanceOf(Timestamp.class, args[0]);
         assertEquals("node-2", args[1]);
         assertEquals("TASK_CREATED", args[2]);
         assertEquals("taskId=42", args[3]);
+        assertEquals(1.0, meterRegistry.get("node.events.written").counter().count());
+    }
+
+    @Test
+    @DisplayName("Rejestrowanie paczki zdarzeń wykonuje jedno polecenie wsadowe")
+    @SuppressWarnings("unchecked")
+    void recordAll_InsertsAllEventsInSingleBatch() {
+        distributedEventService.recordAll("TASK_CREATED", List.of("taskId=1", "taskId=2"));
+        distributedEventService.flushPending();
+
+        ArgumentCaptor<List<Object[]>> argsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO distributed_node_events"), argsCaptor.capture());
+
+        List<Object[]> rows = argsCaptor.getValue();
+        assertEquals(2, rows.size());
+        assertEquals("node-2", rows.get(0)[1]);
+        assertEquals("TASK_CREATED", rows.get(1)[2]);
+        assertEquals("taskId=2", rows.get(1)[3]);
+    }
+
+    @Test
+    @DisplayName("Pełna kolejka odrzuca zdarzenia asynchroniczne i zlicza je w metryce")
+    void record_DropsAsyncEvent_WhenQueueIsFull() {
+        distributedEventService = createService(1, Set.of());
+
+        distributedEventService.record("TASK_UPDATED", "taskId=1");
+        distributedEventService.record("TASK_UPDATED", "taskId=2");
+
+        assertEquals(1.0, meterRegistry.get("node.events.dropped").tag("reason", "queue_full").counter().count());
+        assertEquals(1.0, meterRegistry.get("node.events.queue.depth").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Zdarzenie synchroniczne czeka na zapis przez wątek dziennika")
+    void record_WaitsForWriter_WhenEventTypeIsSync() {
+        distributedEventService.initialize();
+
+        distributedEventService.record("MESSAGE_CORRUPTION_TRIGGERED", "operation=CREATE_TASK");
+
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO distributed_node_events"), anyList());
+        assertEquals(0.0, meterRegistry.get("node.events.queue.depth").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Błąd zapisu paczki jest zliczany jako utrata zdarzeń")
+    void flushPending_CountsDroppedEvents_WhenWriteFails() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new IllegalStateException("db down"));
+        distributedEventService.record("TASK_DELETED", "taskId=1");
+
+        distributedEventService.flushPending();
+
+        assertEquals(1.0, meterRegistry.get("node.events.dropped").tag("reason", "write_failed").counter().count());
+        verify(transactionManager, timeout(100)).rollback(any());
     }
 }
@@ -4,68 +4,37 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
-
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
 @DisplayName("Testy serwisu FaultInjectionService")
 @ExtendWith(MockitoExtension.class)
 class FaultInjectionServiceTest {
 
-    @Mock
-    private JdbcTemplate jdbcTemplate;
-
     @Mock
     private DistributedEventService distributedEventService;
 
-    @Mock
-    private ResultSet resultSet;
-
     private FaultInjectionService faultInjectionService;
 
     @BeforeEach
     void setUp() {
-        faultInjectionService = new FaultInjectionService(jdbcTemplate, distributedEventService);
+        faultInjectionService = new FaultInjectionService(distributedEventService);
         ReflectionTestUtils.setField(faultInjectionService, "nodeId", "node-1");
     }
 
-    /**
-     * Stubuje odczyt stanu awarii tak, aby rzeczywisty {@link ResultSetExtractor}
-     * uzyty w {@code FaultInjectionService.readState()} zostal wywolany na mockowanym
-     * {@link ResultSet} - dzieki temu prywatny rekord FaultState jest tworzony
-     * przez kod produkcyjny, a nie przez test.
-     */
-    private void stubFaultState(int networkDelayMs, boolean messageCorruption) throws SQLException {
-        when(resultSet.next()).thenReturn(true);
-        when(resultSet.getInt("network_delay_ms")).thenReturn(networkDelayMs);
-        when(resultSet.getBoolean("message_corruption")).thenReturn(messageCorruption);
-        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<ResultSetExtractor<Object>>any(), any()))
-                .thenAnswer(invocation -> {
-                    ResultSetExtractor<?> extractor = invocation.getArgument(1);
-                    return extractor.extractData(resultSet);
-                });
-    }
-
     @Test
     @DisplayName("Brak akcji, gdy żadne awarie nie są skonfigurowane")
-    void applyFaults_DoesNothing_WhenNoFaultsConfigured() throws SQLException {
-        stubFaultState(0, false);
+    void applyFaults_DoesNothing_WhenNoFaultsConfigured() {
+        faultInjectionService.updateState(0, false);
 
         assertDoesNotThrow(() -> faultInjectionService.applyFaults("CREATE_TASK"));
 
@@ -74,8 +43,8 @@ class FaultInjectionServiceTest {
 
     @Test
     @DisplayName("Wprowadzenie opóźnienia sieciowego i zarejestrowanie zdarzenia, gdy skonfigurowano opóźnienie")
-    void applyFaults_SleepsAndRecordsEvent_WhenNetworkDelayConfigured() throws SQLException {
-        stubFaultState(50, false);
+    void applyFaults_SleepsAndRecordsEvent_WhenNetworkDelayConfigured() {
+        faultInjectionService.updateState(50, false);
 
         long start = System.currentTimeMillis();
         assertDoesNotThrow(() -> faultInjectionService.applyFaults("UPDATE_TASK"));
@@ -87,8 +56,8 @@ class FaultInjectionServiceTest {
 
     @Test
     @DisplayName("Zgłoszenie wyjątku i zarejestrowanie zdarzenia, gdy skonfigurowano uszkodzenie wiadomości")
-    void applyFaults_ThrowsAndRecordsEvent_WhenMessageCorruptionConfigured() throws SQLException {
-        stubFaultState(0, true);
+    void applyFaults_ThrowsAndRecordsEvent_WhenMessageCorruptionConfigured() {
+        faultInjectionService.updateState(0, true);
 
         IllegalStateException exception = assertThrows(IllegalStateException.class,
                 () -> faultInjectionService.applyFaults("CREATE_TASK"));
@@ -99,12 +68,23 @@ class FaultInjectionServiceTest {
 
     @Test
     @DisplayName("Zastosowanie opóźnienia przed zgłoszeniem wyjątku, gdy skonfigurowano oba rodzaje awarii")
-    void applyFaults_AppliesDelayBeforeThrowingOnCorruption_WhenBothConfigured() throws SQLException {
-        stubFaultState(20, true);
+    void applyFaults_AppliesDelayBeforeThrowingOnCorruption_WhenBothConfigured() {
+        faultInjectionService.updateState(20, true);
 
         assertThrows(IllegalStateException.class, () -> faultInjectionService.applyFaults("DELETE_TASK"));
 
         verify(distributedEventService).record("NETWORK_DELAY_APPLIED", "operation=DELETE_TASK,delayMs=20");
         verify(distributedEventService).record("MESSAGE_CORRUPTION_TRIGGERED", "operation=DELETE_TASK");
     }
+
+    @Test
+    @DisplayName("Ścieżka zapisu nie odpytuje bazy - stan awarii pochodzi z pamięci")
+    void applyFaults_UsesInMemoryState_AfterFaultsAreCleared() {
+        faultInjectionService.updateState(0, true);
+        faultInjectionService.updateState(0, false);
+
+        assertDoesNotThrow(() -> faultInjectionService.applyFaults("ADD_COMMENT"));
+
+        verify(distributedEventService, never()).record(anyString(), anyString());
+    }
 }
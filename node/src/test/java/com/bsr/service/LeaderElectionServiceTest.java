@@ -15,11 +15,19 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -29,6 +37,7 @@ import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @DisplayName("Testy serwisu LeaderElectionService")
@@ -44,17 +53,41 @@ class LeaderElectionServiceTest {
     @Mock
     private MessageListenerContainer listenerContainer;
 
+    @Mock
+    private PostgresLeaderLease leaderLease;
+
+    @Mock
+    private FaultInjectionService faultInjectionService;
+
+    @Mock
+    private ResultSet resultSet;
+
     private LeaderElectionService service;
 
     @BeforeEach
     void setUp() {
-        service = new LeaderElectionService(jdbcTemplate, listenerRegistry, "node-1", 100, 15);
+        service = new LeaderElectionService(jdbcTemplate, listenerRegistry, leaderLease, faultInjectionService, "node-1", 100, 15, false, 1, LeaderElectionService.MODE_POLLING, 500);
         lenient().when(listenerRegistry.getListenerContainer(anyString())).thenReturn(listenerContainer);
     }
 
-    private void stubForcedDown(boolean forcedDown) {
+    private void stubForcedDown(boolean forcedDown) throws SQLException {
+        stubCandidateState(forcedDown, 0, false);
+    }
+
+    /**
+     * Stubuje odczyt stanu kandydata tak, aby ekstraktor z kodu produkcyjnego
+     * został wywołany na mockowanym {@link ResultSet}.
+     */
+    private void stubCandidateState(boolean forcedDown, int networkDelayMs, boolean messageCorruption) throws SQLException {
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean("forced_down")).thenReturn(forcedDown);
+        when(resultSet.getInt("network_delay_ms")).thenReturn(networkDelayMs);
+        when(resultSet.getBoolean("message_corruption")).thenReturn(messageCorruption);
         when(jdbcTemplate.query(contains("SELECT forced_down"), ArgumentMatchers.<ResultSetExtractor<Object>>any(), any()))
-                .thenReturn(forcedDown);
+                .thenAnswer(invocation -> {
+                    ResultSetExtractor<?> extractor = invocation.getArgument(1);
+                    return extractor.extractData(resultSet);
+                });
     }
 
     private void stubCurrentLeader(Optional<String> leaderId) {
@@ -62,21 +95,43 @@ class LeaderElectionServiceTest {
                 .thenReturn(leaderId);
     }
 
+    private LeaderElectionService advisoryLockService() {
+        return new LeaderElectionService(jdbcTemplate, listenerRegistry, leaderLease, faultInjectionService,
+                "node-1", 100, 15, false, 1, LeaderElectionService.MODE_ADVISORY_LOCK, 10);
+    }
+
+    /**
+     * Stubuje zapytanie heartbeat trybu advisory-lock tak, aby ekstraktor z kodu produkcyjnego
+     * został wywołany na mockowanym {@link ResultSet}.
+     */
+    private void stubLeaseHeartbeat(boolean forcedDown, String preferredNodeId) throws SQLException {
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean("forced_down")).thenReturn(forcedDown);
+        when(resultSet.getInt("network_delay_ms")).thenReturn(0);
+        when(resultSet.getBoolean("message_corruption")).thenReturn(false);
+        when(resultSet.getString("preferred_node_id")).thenReturn(preferredNodeId);
+        when(jdbcTemplate.query(contains("WITH heartbeat"), ArgumentMatchers.<ResultSetExtractor<Object>>any(), any(Object[].class)))
+                .thenAnswer(invocation -> {
+                    ResultSetExtractor<?> extractor = invocation.getArgument(1);
+                    return extractor.extractData(resultSet);
+                });
+    }
+
     private AtomicBoolean leaderFlag() {
         return (AtomicBoolean) ReflectionTestUtils.getField(service, "leader");
     }
 
     @Test
-    @DisplayName("Inicjalizacja tworzy tabelę kandydatów i dodaje kolumny do wstrzykiwania awarii")
-    void initialize_CreatesTableAndAddsFaultInjectionColumns() {
+    @DisplayName("Inicjalizacja nie wykonuje DDL - schemat tworzą migracje")
+    void initialize_DoesNotRunDdl() {
         service.initialize();
 
-        verify(jdbcTemplate, times(4)).execute(anyString());
+        verify(jdbcTemplate, never()).execute(anyString());
     }
 
     @Test
     @DisplayName("Węzeł staje się liderem, gdy ma najwyższą wagę i jest aktywny")
-    void updateLeadership_BecomesLeader_WhenHighestWeightAndAlive() {
+    void updateLeadership_BecomesLeader_WhenHighestWeightAndAlive() throws SQLException {
         stubForcedDown(false);
         stubCurrentLeader(Optional.of("node-1"));
         when(listenerContainer.isRunning()).thenReturn(false);
@@ -91,9 +146,25 @@ class LeaderElectionServiceTest {
         assertTrue(leaderFlag().get());
     }
 
+    @Test
+    @DisplayName("W trybie wsadowym lider uruchamia listenery paczek zamiast pojedynczych")
+    void updateLeadership_StartsBatchListeners_WhenBatchModeEnabled() throws SQLException {
+        service = new LeaderElectionService(jdbcTemplate, listenerRegistry, leaderLease, faultInjectionService, "node-1", 100, 15, true, 1, LeaderElectionService.MODE_POLLING, 500);
+        stubForcedDown(false);
+        stubCurrentLeader(Optional.of("node-1"));
+        when(listenerContainer.isRunning()).thenReturn(false);
+
+        service.updateLeadership();
+
+        verify(listenerRegistry).getListenerContainer(TaskRabbitMqConfig.TASK_CREATE_BATCH_LISTENER_ID);
+        verify(listenerRegistry).getListenerContainer(TaskRabbitMqConfig.TASK_DELETE_LISTENER_ID);
+        verify(listenerRegistry, never()).getListenerContainer(TaskRabbitMqConfig.TASK_CREATE_LISTENER_ID);
+        verify(listenerContainer, times(TaskRabbitMqConfig.BATCH_WRITE_LISTENER_IDS.size())).start();
+    }
+
     @Test
     @DisplayName("Węzeł ustępuje z roli lidera, gdy innym węzłem staje się lider")
-    void updateLeadership_StepsDown_WhenAnotherNodeBecomesLeader() {
+    void updateLeadership_StepsDown_WhenAnotherNodeBecomesLeader() throws SQLException {
         leaderFlag().set(true);
         stubForcedDown(false);
         stubCurrentLeader(Optional.of("node-2"));
@@ -107,7 +178,7 @@ class LeaderElectionServiceTest {
 
     @Test
     @DisplayName("Zatrzymanie nasłuchiwania i przerwanie działania, gdy węzeł jest wymuszony do wyłączenia")
-    void updateLeadership_StopsListenersAndReturnsEarly_WhenForcedDown() {
+    void updateLeadership_StopsListenersAndReturnsEarly_WhenForcedDown() throws SQLException {
         leaderFlag().set(true);
         stubForcedDown(true);
         when(listenerContainer.isRunning()).thenReturn(true);
@@ -121,7 +192,7 @@ class LeaderElectionServiceTest {
 
     @Test
     @DisplayName("Węzeł pozostaje obserwatorem, gdy inny węzeł ma wyższą wagę")
-    void updateLeadership_RemainsFollower_WhenAnotherNodeHasHigherWeight() {
+    void updateLeadership_RemainsFollower_WhenAnotherNodeHasHigherWeight() throws SQLException {
         stubForcedDown(false);
         stubCurrentLeader(Optional.of("node-2"));
 
@@ -145,4 +216,228 @@ class LeaderElectionServiceTest {
         verify(jdbcTemplate).update(eq("DELETE FROM node_leader_candidates WHERE node_id = ?"), argsCaptor.capture());
         assertArrayEquals(new Object[] {"node-1"}, argsCaptor.getValue());
     }
+
+    @Test
+    @DisplayName("Partycje są rozdzielane między aktywne węzły proporcjonalnie do wag")
+    void ownerOf_SpreadsPartitionsAcrossNodesByWeight() {
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        candidates.put("node-1", 100);
+        candidates.put("node-2", 50);
+        candidates.put("node-3", 10);
+
+        Map<String, Integer> owned = new LinkedHashMap<>();
+        for (int partition = 0; partition < 256; partition++) {
+            owned.merge(LeaderElectionService.ownerOf(partition, candidates).orElseThrow(), 1, Integer::sum);
+        }
+
+        assertEquals(3, owned.size());
+        assertTrue(owned.get("node-1") > owned.get("node-2"));
+        assertTrue(owned.get("node-2") > owned.get("node-3"));
+    }
+
+    @Test
+    @DisplayName("Odejście węzła przenosi tylko jego partycje")
+    void ownerOf_MovesOnlyPartitionsOfRemovedNode() {
+        Map<String, Integer> all = new LinkedHashMap<>();
+        all.put("node-1", 100);
+        all.put("node-2", 50);
+        all.put("node-3", 10);
+        Map<String, Integer> withoutNode2 = new LinkedHashMap<>(all);
+        withoutNode2.remove("node-2");
+
+        for (int partition = 0; partition < 64; partition++) {
+            String before = LeaderElectionService.ownerOf(partition, all).orElseThrow();
+            String after = LeaderElectionService.ownerOf(partition, withoutNode2).orElseThrow();
+            if (!before.equals("node-2")) {
+                assertEquals(before, after);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("W trybie partycjonowanym węzeł uruchamia listenery tylko swoich partycji")
+    void updateLeadership_StartsListenersOfOwnedPartitions_WhenPartitioned() throws SQLException {
+        service = new LeaderElectionService(jdbcTemplate, listenerRegistry, leaderLease, faultInjectionService, "node-1", 100, 15, false, 4, LeaderElectionService.MODE_POLLING, 500);
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        candidates.put("node-1", 100);
+        candidates.put("node-2", 50);
+        stubForcedDown(false);
+        when(jdbcTemplate.query(contains("SELECT node_id, node_weight"), ArgumentMatchers.<ResultSetExtractor<Object>>any(), any()))
+                .thenReturn(candidates);
+        when(listenerContainer.isRunning()).thenReturn(false);
+
+        service.updateLeadership();
+
+        for (int partition = 0; partition < 4; partition++) {
+            String listenerId = TaskRabbitMqConfig.partitionListenerId(TaskRabbitMqConfig.TASK_UPDATE_LISTENER_ID, partition);
+            boolean owned = LeaderElectionService.ownerOf(partition, candidates).orElseThrow().equals("node-1");
+            verify(listenerRegistry, times(owned ? 1 : 0)).getListenerContainer(listenerId);
+        }
+        verify(listenerRegistry, never()).getListenerContainer(TaskRabbitMqConfig.TASK_UPDATE_LISTENER_ID);
+    }
+
+    @Test
+    @DisplayName("Tryb advisory-lock: węzeł przejmuje blokadę, publikuje epokę i uruchamia listenery")
+    void leaseStep_AcquiresLockAndStartsListeners() throws SQLException {
+        service = advisoryLockService();
+        stubLeaseHeartbeat(false, null);
+        when(leaderLease.isOpen()).thenReturn(true);
+        when(leaderLease.tryAcquire()).thenReturn(true);
+        when(leaderLease.publishLeader()).thenReturn(7L);
+        when(leaderLease.awaitNotifications(10)).thenReturn(List.of());
+        when(listenerContainer.isRunning()).thenReturn(false);
+
+        service.leaseStep();
+
+        verify(leaderLease).notifyJoined();
+        verify(listenerContainer, times(TaskRabbitMqConfig.WRITE_LISTENER_IDS.size())).start();
+        assertTrue(leaderFlag().get());
+        assertEquals(7L, ((AtomicLong) ReflectionTestUtils.getField(service, "leaderEpoch")).get());
+        verify(jdbcTemplate, never()).query(contains("SELECT forced_down"),
+                ArgumentMatchers.<ResultSetExtractor<Object>>any(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Tryb advisory-lock: węzeł rejestruje się raz na połączenie, bez cyklicznego heartbeatu")
+    void leaseStep_RegistersOncePerLeaseConnection() throws SQLException {
+        service = advisoryLockService();
+        stubLeaseHeartbeat(true, null);
+        when(leaderLease.isOpen()).thenReturn(true);
+        when(leaderLease.awaitNotifications(10)).thenReturn(List.of());
+
+        service.updateLeadership();
+        service.leaseStep();
+        service.leaseStep();
+
+        verify(jdbcTemplate, times(1)).query(contains("WITH heartbeat"),
+                ArgumentMatchers.<ResultSetExtractor<Object>>any(), any(Object[].class));
+        verify(leaderLease, times(1)).notifyJoined();
+        verify(leaderLease, never()).tryAcquire();
+        assertFalse(leaderFlag().get());
+    }
+
+    @Test
+    @DisplayName("Tryb advisory-lock: lider sprawdza następcę po dołączeniu innego węzła")
+    void leaseStep_HandsOverLock_WhenHigherWeightNodeJoins() throws SQLException {
+        service = advisoryLockService();
+        stubLeaseHeartbeat(false, null);
+        // Przy rejestracji nie ma lepszego kandydata; po powiadomieniu "joined" jest nim node-0
+        when(resultSet.getString("preferred_node_id")).thenReturn(null, "node-0");
+        leaderFlag().set(true);
+        when(leaderLease.isOpen()).thenReturn(true);
+        when(leaderLease.isValid()).thenReturn(true);
+        when(leaderLease.awaitNotifications(10)).thenReturn(List.of("joined:node-0"), List.of());
+        when(listenerContainer.isRunning()).thenReturn(true);
+
+        service.leaseStep();
+        service.leaseStep();
+
+        verify(jdbcTemplate, times(2)).query(contains("WITH heartbeat"),
+                ArgumentMatchers.<ResultSetExtractor<Object>>any(), any(Object[].class));
+        verify(leaderLease).release("handover:node-0");
+        assertFalse(leaderFlag().get());
+    }
+
+    @Test
+    @DisplayName("Tryb advisory-lock: zapis jest odrzucany, gdy epoka lidera jest nieaktualna")
+    void verifyLeaderEpoch_Throws_WhenAnotherNodePublishedNewerEpoch() {
+        service = advisoryLockService();
+        leaderFlag().set(true);
+        ((AtomicLong) ReflectionTestUtils.getField(service, "leaderEpoch")).set(7L);
+        when(jdbcTemplate.query(contains("FROM node_leader WHERE id = 1 FOR SHARE"),
+                ArgumentMatchers.<ResultSetExtractor<Object>>any())).thenReturn(7L, 8L);
+
+        service.verifyLeaderEpoch();
+        IllegalStateException exception = assertThrows(IllegalStateException.class, service::verifyLeaderEpoch);
+
+        assertTrue(exception.getMessage().contains("current 8"));
+    }
+
+    @Test
+    @DisplayName("Tryb polling: sprawdzenie epoki nie odpytuje bazy")
+    void verifyLeaderEpoch_DoesNothing_InPollingMode() {
+        service.verifyLeaderEpoch();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Tryb advisory-lock: powiadomienie o awarii zwalnia blokadę lidera")
+    void leaseStep_ReleasesLock_WhenForcedDownNotificationArrives() throws SQLException {
+        service = advisoryLockService();
+        stubLeaseHeartbeat(false, null);
+        leaderFlag().set(true);
+        when(leaderLease.isOpen()).thenReturn(true);
+        when(leaderLease.isValid()).thenReturn(true);
+        when(leaderLease.awaitNotifications(10)).thenReturn(List.of("forced:node-1:true"), List.of());
+        when(listenerContainer.isRunning()).thenReturn(true);
+
+        service.leaseStep();
+        service.leaseStep();
+
+        verify(leaderLease).release("released:node-1");
+        verify(listenerContainer, times(TaskRabbitMqConfig.WRITE_LISTENER_IDS.size())).stop();
+        assertFalse(leaderFlag().get());
+    }
+
+    @Test
+    @DisplayName("Tryb advisory-lock: lider oddaje blokadę aktywnemu węzłowi o wyższej wadze")
+    void leaseStep_HandsOverLock_WhenHigherWeightCandidateIsAlive() throws SQLException {
+        service = advisoryLockService();
+        stubLeaseHeartbeat(false, "node-0");
+        leaderFlag().set(true);
+        when(leaderLease.isOpen()).thenReturn(true);
+        when(leaderLease.awaitNotifications(10)).thenReturn(List.of("handover:node-0"));
+        when(listenerContainer.isRunning()).thenReturn(true);
+
+        service.leaseStep();
+        service.leaseStep();
+
+        verify(leaderLease).release("handover:node-0");
+        verify(leaderLease, never()).tryAcquire();
+        assertFalse(leaderFlag().get());
+    }
+
+    @Test
+    @DisplayName("Tryb advisory-lock: utrata połączenia zatrzymuje listenery lidera")
+    void leaseStep_StopsListeners_WhenLeaseConnectionIsLost() throws SQLException {
+        service = advisoryLockService();
+        stubLeaseHeartbeat(false, null);
+        leaderFlag().set(true);
+        when(leaderLease.isOpen()).thenReturn(true);
+        when(leaderLease.isValid()).thenReturn(false);
+        when(listenerContainer.isRunning()).thenReturn(true);
+
+        service.leaseStep();
+
+        verify(listenerContainer, times(TaskRabbitMqConfig.WRITE_LISTENER_IDS.size())).stop();
+        verify(leaderLease).close();
+        assertFalse(leaderFlag().get());
+    }
+
+    @Test
+    @DisplayName("Takt wyboru lidera przekazuje stan awarii do FaultInjectionService")
+    void updateLeadership_RefreshesFaultInjectionState() throws SQLException {
+        stubCandidateState(false, 200, true);
+        stubCurrentLeader(Optional.of("node-2"));
+
+        service.updateLeadership();
+
+        verify(faultInjectionService).updateState(200, true);
+    }
+
+    @Test
+    @DisplayName("Tryb advisory-lock: powiadomienie o zmianie awarii aktualizuje stan bez odpytywania bazy")
+    void leaseStep_UpdatesFaultState_WhenFaultNotificationArrives() throws SQLException {
+        service = advisoryLockService();
+        ReflectionTestUtils.setField(service, "leaseStateKnown", true);
+        when(leaderLease.isOpen()).thenReturn(true);
+        when(leaderLease.awaitNotifications(10)).thenReturn(List.of("faults:node-2:50:false", "faults:node-1:300:true"));
+
+        service.leaseStep();
+
+        verify(faultInjectionService).updateState(300, true);
+        verify(faultInjectionService, never()).updateState(50, false);
+        verify(jdbcTemplate, never()).query(anyString(), ArgumentMatchers.<ResultSetExtractor<Object>>any(), any(Object[].class));
+    }
 }
@@ -2,7 +2,12 @@ package com.bsr.service;
 
 import com.bsr.messaging.AddTaskCommentCommand;
 import com.bsr.messaging.CreateTaskCommand;
+import com.bsr.messaging.CreateTaskResult;
+import com.bsr.messaging.DeleteTaskCommand;
 import com.bsr.messaging.SetTaskStatusCommand;
+import com.bsr.messaging.TaskCommentSnapshot;
+import com.bsr.messaging.TaskOperationResult;
+import com.bsr.messaging.TaskSnapshot;
 import com.bsr.messaging.UpdateTaskCommand;
 import com.bsr.model.Project;
 import com.bsr.model.Task;
@@ -12,24 +17,34 @@ import com.bsr.model.TaskStatus;
 import com.bsr.model.User;
 import com.bsr.repository.ProjectRepository;
 import com.bsr.repository.TaskCommentRepository;
+import com.bsr.repository.TaskOutboxRepository;
 import com.bsr.repository.TaskRepository;
 import com.bsr.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -57,9 +72,24 @@ class TaskCreationServiceTest {
     @Mock
     private FaultInjectionService faultInjectionService;
 
+    @Mock
+    private TaskOutboxRepository taskOutboxRepository;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private LeaderElectionService leaderElectionService;
+
     @InjectMocks
     private TaskCreationService taskCreationService;
 
+    @BeforeEach
+    void setUp() {
+        // Domyślnie klucz idempotencji nie ma równoległego, wcześniej zatwierdzonego wyniku
+        lenient().when(idempotencyService.recordResult(any(), any(), any(), any(), any())).thenReturn(true);
+    }
+
     @Test
     @DisplayName("Utworzenie zadania zapisuje je i rejestruje zdarzenie")
     void createTask_PersistsTaskAndRecordsEvent() {
@@ -72,6 +102,7 @@ class TaskCreationServiceTest {
         command.setPriority(TaskPriority.MEDIUM);
         command.setAssignedToId(2L);
         command.setCreatedByEmail("manager@example.com");
+        command.setIdempotencyKey("create-key-1");
 
         Project project = new Project();
         project.setId(projectId);
@@ -80,23 +111,129 @@ class TaskCreationServiceTest {
         createdBy.setEmail("manager@example.com");
         User assignedTo = new User();
         assignedTo.setId(2L);
+        assignedTo.setFirstName("Anna");
+        assignedTo.setLastName("Nowak");
 
         when(projectRepository.findById(projectId)).thenReturn(Optional.of(project));
         when(userRepository.findByEmail("manager@example.com")).thenReturn(Optional.of(createdBy));
         when(userRepository.findById(2L)).thenReturn(Optional.of(assignedTo));
-        when(taskRepository.save(any(Task.class))).thenAnswer(invocation -> {
+        when(taskRepository.saveAndFlush(any(Task.class))).thenAnswer(invocation -> {
             Task task = invocation.getArgument(0);
             task.setId(10L);
             return task;
         });
 
-        Task result = taskCreationService.createTask(command);
+        TaskSnapshot result = taskCreationService.createTask(command);
 
         assertEquals(10L, result.getId());
+        assertEquals(projectId, result.getProjectId());
         assertEquals("New task", result.getTitle());
-        assertEquals(assignedTo, result.getAssignedTo());
+        assertEquals(2L, result.getAssignedToId());
+        assertEquals("Anna", result.getAssignedFirstName());
+        assertEquals("Nowak", result.getAssignedLastName());
         verify(faultInjectionService).applyFaults("CREATE_TASK");
         verify(distributedEventService).record("TASK_CREATED", "taskId=10");
+        verify(taskOutboxRepository).append(10L, "TASK_CREATED");
+        verify(idempotencyService).recordResult(eq(IdempotencyService.CREATE_TASK), eq("manager@example.com"),
+                eq("create-key-1"), anyString(), eq(10L));
+    }
+
+    @Test
+    @DisplayName("Ponowienie utworzenia z tym samym kluczem zwraca zapisane zadanie bez nowego zapisu")
+    void createTask_ReturnsOriginalTask_WhenIdempotencyKeyWasUsed() {
+        CreateTaskCommand command = new CreateTaskCommand();
+        command.setCreatedByEmail("manager@example.com");
+        command.setIdempotencyKey("create-key-1");
+        Task existing = new Task();
+        existing.setId(10L);
+        existing.setTitle("New task");
+        when(idempotencyService.findResult(eq(IdempotencyService.CREATE_TASK), eq("manager@example.com"),
+                eq("create-key-1"), anyString())).thenReturn(Optional.of(10L));
+        when(taskRepository.findById(10L)).thenReturn(Optional.of(existing));
+
+        TaskSnapshot result = taskCreationService.createTask(command);
+
+        assertEquals(10L, result.getId());
+        assertEquals("New task", result.getTitle());
+        verify(taskRepository, never()).saveAndFlush(any());
+        verify(idempotencyService, never()).recordResult(anyString(), anyString(), anyString(), anyString(), any());
+        verifyNoInteractions(faultInjectionService, distributedEventService, taskOutboxRepository);
+    }
+
+    @Test
+    @DisplayName("Równoległe utworzenie z tym samym kluczem zwraca wynik, który zapisano pierwszy")
+    void createTask_ReturnsConcurrentTask_WhenKeyWasRecordedMeanwhile() {
+        UUID projectId = UUID.randomUUID();
+        CreateTaskCommand command = new CreateTaskCommand();
+        command.setProjectId(projectId);
+        command.setTitle("New task");
+        command.setAssignedToId(2L);
+        command.setCreatedByEmail("manager@example.com");
+        command.setIdempotencyKey("create-key-1");
+        Project project = new Project();
+        project.setId(projectId);
+        User user = new User();
+        user.setId(2L);
+        Task concurrent = new Task();
+        concurrent.setId(10L);
+        concurrent.setTitle("New task");
+
+        when(idempotencyService.findResult(eq(IdempotencyService.CREATE_TASK), eq("manager@example.com"),
+                eq("create-key-1"), anyString())).thenReturn(Optional.empty(), Optional.of(10L));
+        when(projectRepository.findById(projectId)).thenReturn(Optional.of(project));
+        when(userRepository.findByEmail("manager@example.com")).thenReturn(Optional.of(user));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(user));
+        when(taskRepository.saveAndFlush(any(Task.class))).thenAnswer(invocation -> {
+            Task task = invocation.getArgument(0);
+            task.setId(11L);
+            return task;
+        });
+        when(idempotencyService.recordResult(eq(IdempotencyService.CREATE_TASK), eq("manager@example.com"),
+                eq("create-key-1"), anyString(), eq(11L))).thenReturn(false);
+        when(taskRepository.findById(10L)).thenReturn(Optional.of(concurrent));
+
+        TaskSnapshot result = taskCreationService.createTask(command);
+
+        assertEquals(10L, result.getId());
+        verify(taskRepository).delete(argThat(task -> task.getId().equals(11L)));
+        verifyNoInteractions(distributedEventService, taskOutboxRepository);
+    }
+
+    @Test
+    @DisplayName("Ponowne użycie klucza z inną treścią utworzenia kończy się błędem")
+    void createTask_Throws_WhenIdempotencyKeyWasUsedForDifferentRequest() {
+        CreateTaskCommand command = new CreateTaskCommand();
+        command.setCreatedByEmail("manager@example.com");
+        command.setIdempotencyKey("create-key-1");
+        when(idempotencyService.findResult(eq(IdempotencyService.CREATE_TASK), eq("manager@example.com"),
+                eq("create-key-1"), anyString())).thenThrow(new IdempotencyKeyMismatchException());
+
+        IdempotencyKeyMismatchException exception = assertThrows(IdempotencyKeyMismatchException.class,
+                () -> taskCreationService.createTask(command));
+
+        assertTrue(exception.getMessage().startsWith("Invalid"));
+        verify(taskRepository, never()).saveAndFlush(any());
+        verify(taskRepository, never()).findById(any());
+        verifyNoInteractions(faultInjectionService, distributedEventService, taskOutboxRepository);
+    }
+
+    @Test
+    @DisplayName("Ponowienie komentarza nie zwraca komentarza innego zadania")
+    void addComment_Throws_WhenReplayedCommentBelongsToOtherTask() {
+        Task otherTask = new Task();
+        otherTask.setId(8L);
+        TaskComment stored = new TaskComment();
+        stored.setId(100L);
+        stored.setTask(otherTask);
+        AddTaskCommentCommand command = new AddTaskCommentCommand(9L, "First", "tester@example.com", "comment-key-1");
+        when(idempotencyService.findResult(eq(IdempotencyService.ADD_COMMENT), eq("tester@example.com"),
+                eq("comment-key-1"), anyString())).thenReturn(Optional.of(100L));
+        when(taskCommentRepository.findById(100L)).thenReturn(Optional.of(stored));
+
+        assertThrows(IdempotencyKeyMismatchException.class, () -> taskCreationService.addComment(command));
+
+        verify(taskCommentRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(faultInjectionService, distributedEventService, taskOutboxRepository);
     }
 
     @Test
@@ -110,8 +247,9 @@ class TaskCreationServiceTest {
                 () -> taskCreationService.createTask(command));
 
         assertEquals("Project not found", exception.getMessage());
-        verify(taskRepository, never()).save(any());
+        verify(taskRepository, never()).saveAndFlush(any());
         verify(distributedEventService, never()).record(anyString(), anyString());
+        verifyNoInteractions(taskOutboxRepository);
     }
 
     @Test
@@ -132,33 +270,57 @@ class TaskCreationServiceTest {
     @Test
     @DisplayName("Aktualizacja zadania zmienia podane pola i rejestruje zdarzenie")
     void updateTask_UpdatesProvidedFieldsAndRecordsEvent() {
-        Task existing = new Task();
-        existing.setId(5L);
-        existing.setTitle("Old");
-        existing.setStatus(TaskStatus.TODO);
-        existing.setPriority(TaskPriority.LOW);
-
-        User newAssignee = new User();
-        newAssignee.setId(3L);
-
         UpdateTaskCommand command = new UpdateTaskCommand();
         command.setTaskId(5L);
         command.setTitle("New title");
         command.setStatus(TaskStatus.IN_PROGRESS);
         command.setAssignedToId(3L);
+        TaskSnapshot updated = snapshot(5L, "New title", TaskStatus.IN_PROGRESS, TaskPriority.LOW, 3L, 2L);
 
-        when(taskRepository.findById(5L)).thenReturn(Optional.of(existing));
-        when(userRepository.findById(3L)).thenReturn(Optional.of(newAssignee));
-        when(taskRepository.save(existing)).thenReturn(existing);
+        when(userRepository.existsById(3L)).thenReturn(true);
+        when(taskRepository.updateFields(eq(command), any(LocalDateTime.class))).thenReturn(Optional.of(updated));
 
-        Task result = taskCreationService.updateTask(command);
+        TaskSnapshot result = taskCreationService.updateTask(command);
 
         assertEquals("New title", result.getTitle());
         assertEquals(TaskStatus.IN_PROGRESS, result.getStatus());
-        assertEquals(newAssignee, result.getAssignedTo());
+        assertEquals(3L, result.getAssignedToId());
         assertEquals(TaskPriority.LOW, result.getPriority());
         verify(faultInjectionService).applyFaults("UPDATE_TASK");
         verify(distributedEventService).record("TASK_UPDATED", "taskId=5");
+        verify(taskOutboxRepository).append(5L, "TASK_UPDATED");
+        verify(taskRepository, never()).findById(any());
+        verify(taskRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("Aktualizacja zadania zgłasza wyjątek, gdy przypisany użytkownik nie istnieje")
+    void updateTask_ThrowsWhenAssigneeMissing() {
+        UpdateTaskCommand command = new UpdateTaskCommand();
+        command.setTaskId(5L);
+        command.setAssignedToId(3L);
+        when(userRepository.existsById(3L)).thenReturn(false);
+
+        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class,
+                () -> taskCreationService.updateTask(command));
+
+        assertEquals("Assigned user not found", exception.getMessage());
+        verify(taskRepository, never()).updateFields(any(), any());
+    }
+
+    @Test
+    @DisplayName("Aktualizacja zadania odrzuca polecenie z nieaktualną wersją")
+    void updateTask_ThrowsWhenVersionIsStale() {
+        UpdateTaskCommand command = new UpdateTaskCommand();
+        command.setTaskId(5L);
+        command.setTitle("New title");
+        command.setVersion(3L);
+        when(taskRepository.updateFields(eq(command), any(LocalDateTime.class))).thenReturn(Optional.empty());
+        when(taskRepository.existsById(5L)).thenReturn(true);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> taskCreationService.updateTask(command));
+        verify(distributedEventService, never()).record(anyString(), anyString());
+        verifyNoInteractions(taskOutboxRepository);
     }
 
     @Test
@@ -166,10 +328,71 @@ class TaskCreationServiceTest {
     void updateTask_ThrowsWhenTaskMissing() {
         UpdateTaskCommand command = new UpdateTaskCommand();
         command.setTaskId(99L);
-        when(taskRepository.findById(99L)).thenReturn(Optional.empty());
+        when(taskRepository.updateFields(eq(command), any(LocalDateTime.class))).thenReturn(Optional.empty());
+        when(taskRepository.existsById(99L)).thenReturn(false);
 
         assertThrows(EntityNotFoundException.class, () -> taskCreationService.updateTask(command));
         verify(distributedEventService, never()).record(anyString(), anyString());
+        verifyNoInteractions(taskOutboxRepository);
+    }
+
+    @Test
+    @DisplayName("Ponownie doręczona aktualizacja zwraca bieżący stan zadania bez ponownego zapisu")
+    void updateTask_ReplaysStoredResult_WhenMessageIsRedelivered() {
+        UpdateTaskCommand command = new UpdateTaskCommand(5L, "New title", null, null, null, null, null, 2L, "message:c-1");
+        Task task = new Task();
+        task.setId(5L);
+        task.setTitle("New title");
+        task.setVersion(3L);
+        when(idempotencyService.findResult(eq(IdempotencyService.UPDATE_TASK), eq(IdempotencyService.NO_REQUESTER),
+                eq("message:c-1"), anyString())).thenReturn(Optional.of(5L));
+        when(taskRepository.findById(5L)).thenReturn(Optional.of(task));
+
+        TaskSnapshot result = taskCreationService.updateTask(command);
+
+        assertEquals(5L, result.getId());
+        assertEquals(3L, result.getVersion());
+        verify(taskRepository, never()).updateFields(any(), any());
+        verifyNoInteractions(faultInjectionService, distributedEventService, taskOutboxRepository);
+    }
+
+    @Test
+    @DisplayName("Aktualizacja zapisuje wynik pod kluczem wiadomości")
+    void updateTask_RecordsResultUnderMessageKey() {
+        UpdateTaskCommand command = new UpdateTaskCommand(5L, "New title", null, null, null, null, null, null, "message:c-1");
+        when(taskRepository.updateFields(eq(command), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(snapshot(5L, "New title", TaskStatus.TODO, TaskPriority.LOW, null, 2L)));
+
+        taskCreationService.updateTask(command);
+
+        verify(idempotencyService).recordResult(eq(IdempotencyService.UPDATE_TASK), eq(IdempotencyService.NO_REQUESTER),
+                eq("message:c-1"), anyString(), eq(5L));
+    }
+
+    @Test
+    @DisplayName("Aktualizacja wycofuje się, gdy ta sama wiadomość zapisała wynik równolegle")
+    void updateTask_Throws_WhenSameMessageWasAppliedConcurrently() {
+        UpdateTaskCommand command = new UpdateTaskCommand(5L, "New title", null, null, null, null, null, null, "message:c-1");
+        when(taskRepository.updateFields(eq(command), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(snapshot(5L, "New title", TaskStatus.TODO, TaskPriority.LOW, null, 2L)));
+        when(idempotencyService.recordResult(eq(IdempotencyService.UPDATE_TASK), eq(IdempotencyService.NO_REQUESTER),
+                eq("message:c-1"), anyString(), eq(5L))).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> taskCreationService.updateTask(command));
+        verifyNoInteractions(distributedEventService, taskOutboxRepository);
+    }
+
+    @Test
+    @DisplayName("Ponownie doręczone usunięcie kończy się sukcesem bez ponownego zapisu")
+    void deleteTask_ReturnsWithoutChanges_WhenMessageIsRedelivered() {
+        when(idempotencyService.findResult(eq(IdempotencyService.DELETE_TASK), eq(IdempotencyService.NO_REQUESTER),
+                eq("message:c-2"), anyString())).thenReturn(Optional.of(7L));
+
+        taskCreationService.deleteTask(new DeleteTaskCommand(7L, "message:c-2"));
+
+        verify(taskRepository, never()).findById(any());
+        verify(taskRepository, never()).delete(any());
+        verifyNoInteractions(faultInjectionService, distributedEventService, taskOutboxRepository);
     }
 
     @Test
@@ -179,31 +402,41 @@ class TaskCreationServiceTest {
         task.setId(7L);
         when(taskRepository.findById(7L)).thenReturn(Optional.of(task));
 
-        taskCreationService.deleteTask(7L);
+        taskCreationService.deleteTask(new DeleteTaskCommand(7L, null));
 
         verify(faultInjectionService).applyFaults("DELETE_TASK");
         verify(taskCommentRepository).deleteByTask(task);
         verify(taskRepository).delete(task);
         verify(distributedEventService).record("TASK_DELETED", "taskId=7");
+        verify(taskOutboxRepository).append(7L, "TASK_DELETED");
     }
 
     @Test
     @DisplayName("Zmiana statusu zadania aktualizuje status i rejestruje zdarzenie")
     void setTaskStatus_UpdatesStatusAndRecordsEvent() {
-        Task task = new Task();
-        task.setId(8L);
-        task.setStatus(TaskStatus.TODO);
+        SetTaskStatusCommand command = new SetTaskStatusCommand(8L, TaskStatus.DONE, null);
+        when(taskRepository.updateStatus(eq(8L), eq(TaskStatus.DONE), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(snapshot(8L, "Task", TaskStatus.DONE, TaskPriority.HIGH, null, 1L)));
 
-        SetTaskStatusCommand command = new SetTaskStatusCommand(8L, TaskStatus.DONE);
-
-        when(taskRepository.findById(8L)).thenReturn(Optional.of(task));
-        when(taskRepository.save(task)).thenReturn(task);
-
-        Task result = taskCreationService.setTaskStatus(command);
+        TaskSnapshot result = taskCreationService.setTaskStatus(command);
 
         assertEquals(TaskStatus.DONE, result.getStatus());
         verify(faultInjectionService).applyFaults("SET_TASK_STATUS");
         verify(distributedEventService).record("TASK_STATUS_CHANGED", "taskId=8,status=DONE");
+        verify(taskOutboxRepository).append(8L, "TASK_STATUS_CHANGED");
+        verify(taskRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Zmiana statusu zgłasza wyjątek, gdy zadanie nie istnieje")
+    void setTaskStatus_ThrowsWhenTaskMissing() {
+        SetTaskStatusCommand command = new SetTaskStatusCommand(99L, TaskStatus.DONE, null);
+        when(taskRepository.updateStatus(eq(99L), eq(TaskStatus.DONE), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> taskCreationService.setTaskStatus(command));
+        verify(distributedEventService, never()).record(anyString(), anyString());
+        verifyNoInteractions(taskOutboxRepository);
     }
 
     @Test
@@ -215,22 +448,150 @@ class TaskCreationServiceTest {
         author.setId(4L);
         author.setEmail("tester@example.com");
 
-        AddTaskCommentCommand command = new AddTaskCommentCommand(9L, "Looks good", "tester@example.com");
+        AddTaskCommentCommand command = new AddTaskCommentCommand(9L, "Looks good", "tester@example.com", null);
 
         when(taskRepository.findById(9L)).thenReturn(Optional.of(task));
         when(userRepository.findByEmail("tester@example.com")).thenReturn(Optional.of(author));
-        when(taskCommentRepository.save(any(TaskComment.class))).thenAnswer(invocation -> {
+        when(taskCommentRepository.saveAndFlush(any(TaskComment.class))).thenAnswer(invocation -> {
             TaskComment comment = invocation.getArgument(0);
             comment.setId(100L);
             return comment;
         });
 
-        TaskComment result = taskCreationService.addComment(command);
+        TaskCommentSnapshot result = taskCreationService.addComment(command);
 
+        assertEquals(100L, result.getId());
+        assertEquals(9L, result.getTaskId());
         assertEquals("Looks good", result.getComment());
-        assertEquals(task, result.getTask());
-        assertEquals(author, result.getUser());
+        assertEquals("tester@example.com", result.getAuthorEmail());
         verify(faultInjectionService).applyFaults("ADD_COMMENT");
         verify(distributedEventService).record("TASK_COMMENT_ADDED", "taskId=9,commentId=100");
+        verify(taskOutboxRepository).append(9L, "TASK_COMMENT_ADDED");
+    }
+
+    @Test
+    @DisplayName("Paczka poleceń utworzenia - błąd jednego polecenia nie blokuje pozostałych")
+    void createTasks_IsolatesDomainFailuresAndRecordsEventsInOneBatch() {
+        UUID projectId = UUID.randomUUID();
+        UUID missingProjectId = UUID.randomUUID();
+        CreateTaskCommand valid = new CreateTaskCommand(projectId, "A", null, TaskStatus.TODO,
+                TaskPriority.LOW, null, 2L, "manager@example.com", null);
+        CreateTaskCommand invalid = new CreateTaskCommand(missingProjectId, "B", null, TaskStatus.TODO,
+                TaskPriority.LOW, null, 2L, "manager@example.com", null);
+
+        Project project = new Project();
+        project.setId(projectId);
+        User manager = new User();
+        manager.setId(1L);
+        User assignee = new User();
+        assignee.setId(2L);
+
+        when(projectRepository.findById(projectId)).thenReturn(Optional.of(project));
+        when(projectRepository.findById(missingProjectId)).thenReturn(Optional.empty());
+        when(userRepository.findByEmail("manager@example.com")).thenReturn(Optional.of(manager));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(assignee));
+        when(taskRepository.save(any(Task.class))).thenAnswer(invocation -> {
+            Task task = invocation.getArgument(0);
+            task.setId(11L);
+            return task;
+        });
+
+        List<CreateTaskResult> results = taskCreationService.createTasks(List.of(valid, invalid));
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(11L, results.get(0).getTask().getId());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Project not found", results.get(1).getErrorMessage());
+        verify(taskRepository).flush();
+        verify(distributedEventService).recordAll("TASK_CREATED", List.of("taskId=11"));
+        verify(taskOutboxRepository).appendAll("TASK_CREATED", List.of(11L));
+        verify(taskOutboxRepository, never()).append(any(), anyString());
+        verify(distributedEventService, never()).record(anyString(), anyString());
+        verifyNoInteractions(faultInjectionService);
+    }
+
+    @Test
+    @DisplayName("Zapis węzła z nieaktualną epoką lidera jest odrzucany przed zmianą danych")
+    void updateTasks_Throws_WhenLeaderEpochIsStale() {
+        UpdateTaskCommand command = new UpdateTaskCommand(7L, "Title", null, null, null, null, null, 3L, null);
+        doThrow(new IllegalStateException("Node node-1 is no longer the leader (epoch 7, current 8)"))
+                .when(leaderElectionService).verifyLeaderEpoch();
+
+        assertThrows(IllegalStateException.class, () -> taskCreationService.updateTasks(List.of(command)));
+
+        verifyNoInteractions(taskRepository, taskOutboxRepository, distributedEventService);
+    }
+
+    @Test
+    @DisplayName("Paczka aktualizacji - kolejne polecenie dla tego samego zadania kończy się konfliktem")
+    void updateTasks_ReturnsConflict_ForDuplicateTaskInBatch() {
+        Task task = new Task();
+        task.setId(7L);
+        task.setTitle("Old");
+        task.setVersion(3L);
+        UpdateTaskCommand first = new UpdateTaskCommand(7L, "First", null, null, null, null, null, 3L, null);
+        UpdateTaskCommand second = new UpdateTaskCommand(7L, "Second", null, null, null, null, null, 3L, null);
+
+        when(taskRepository.findById(7L)).thenReturn(Optional.of(task));
+        when(taskRepository.save(task)).thenReturn(task);
+
+        List<TaskOperationResult> results = taskCreationService.updateTasks(List.of(first, second));
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("First", results.get(0).getTask().getTitle());
+        assertTrue(results.get(1).isConflict());
+        assertEquals("First", task.getTitle());
+        verify(taskRepository).save(task);
+        verify(taskOutboxRepository).appendAll("TASK_UPDATED", List.of(7L));
+    }
+
+    @Test
+    @DisplayName("Paczka komentarzy - ponowienie z użytym kluczem nie zapisuje komentarza ponownie")
+    void addComments_ReturnsOriginalComment_ForReplayedKeyAndSavesOnlyNewOnes() {
+        Task task = new Task();
+        task.setId(9L);
+        User author = new User();
+        author.setId(4L);
+        author.setEmail("tester@example.com");
+        TaskComment original = new TaskComment();
+        original.setId(100L);
+        original.setTask(task);
+        original.setComment("First");
+        AddTaskCommentCommand retried = new AddTaskCommentCommand(9L, "First", "tester@example.com", "comment-key-1");
+        AddTaskCommentCommand fresh = new AddTaskCommentCommand(9L, "Second", "tester@example.com", null);
+
+        when(idempotencyService.findResult(eq(IdempotencyService.ADD_COMMENT), eq("tester@example.com"),
+                eq("comment-key-1"), anyString())).thenReturn(Optional.of(100L));
+        when(idempotencyService.findResult(eq(IdempotencyService.ADD_COMMENT), eq("tester@example.com"),
+                eq(null), anyString())).thenReturn(Optional.empty());
+        when(taskCommentRepository.findById(100L)).thenReturn(Optional.of(original));
+        when(taskRepository.findById(9L)).thenReturn(Optional.of(task));
+        when(userRepository.findByEmail("tester@example.com")).thenReturn(Optional.of(author));
+        when(taskCommentRepository.save(any(TaskComment.class))).thenAnswer(invocation -> {
+            TaskComment comment = invocation.getArgument(0);
+            comment.setId(101L);
+            return comment;
+        });
+
+        List<TaskOperationResult> results = taskCreationService.addComments(List.of(retried, fresh));
+
+        assertEquals(100L, results.get(0).getComment().getId());
+        assertEquals(101L, results.get(1).getComment().getId());
+        verify(taskCommentRepository).save(any(TaskComment.class));
+        verify(idempotencyService).recordResult(eq(IdempotencyService.ADD_COMMENT), eq("tester@example.com"),
+                eq(null), anyString(), eq(101L));
+        verify(distributedEventService).recordAll("TASK_COMMENT_ADDED", List.of("taskId=9,commentId=101"));
+        verify(taskOutboxRepository).appendAll("TASK_COMMENT_ADDED", List.of(9L));
+    }
+
+    private TaskSnapshot snapshot(Long id, String title, TaskStatus status, TaskPriority priority, Long assigneeId, Long version) {
+        TaskSnapshot snapshot = new TaskSnapshot();
+        snapshot.setId(id);
+        snapshot.setTitle(title);
+        snapshot.setStatus(status);
+        snapshot.setPriority(priority);
+        snapshot.setAssignedToId(assigneeId);
+        snapshot.setVersion(version);
+        return snapshot;
     }
 }